@@ -19,7 +19,7 @@ function App() {
 
   // SSE: курсы
   useEffect(() => {
-    const eventSource = new EventSource('http://localhost:8080/api/currency');
+    const eventSource = new EventSource('http://localhost:8080/api/currency?rate=1s');
     eventSource.onmessage = (e) => {
       if (e.data) {
         const dataObj = JSON.parse(e.data);
@@ -0,0 +1,98 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сопоставление одной заявки со стаканом заданной глубины.
+ * Лимитные заявки ставятся рядом с рынком, рыночные пробивают несколько уровней.
+ * {@code priceLevels} — сколько разных цен на каждой стороне: вставка и снятие уровня
+ * в глубине стакана не должны дорожать линейно с их числом.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LimitOrderBookBenchmark {
+
+    private static final int ORDERS = 1 << 16;
+    private static final long MID = 100_000_000;
+    private static final long TICK = 100;
+
+    @Param({"100", "10000", "100000"})
+    private int bookDepth;
+
+    @Param({"0.5", "0.8"})
+    private double buyRatio;
+
+    @Param({"0.0", "0.2"})
+    private double marketRatio;
+
+    @Param({"1000", "100000"})
+    private int priceLevels;
+
+    private LimitOrderBook book;
+    private final Side[] sides = new Side[ORDERS];
+    private final long[] prices = new long[ORDERS];
+    private final long[] volumes = new long[ORDERS];
+    // цены между уровнями стакана на случайной глубине: каждая создаёт и снимает новый уровень
+    private final long[] deepPrices = new long[ORDERS];
+    private long traded;
+    private final TradeListener listener = (maker, price, volume) -> traded += volume;
+    private int cursor;
+    // id 0 зарезервирован индексом заявок
+    private long nextId = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        book = new LimitOrderBook("USD", new PriceScale(4, 2));
+        for (int i = 0; i < bookDepth; i++) {
+            long offset = (1 + random.nextInt(priceLevels)) * TICK;
+            book.add(nextId++, Side.BUY, MID - offset, 1 + random.nextInt(100), true);
+            book.add(nextId++, Side.SELL, MID + offset, 1 + random.nextInt(100), true);
+        }
+        for (int i = 0; i < ORDERS; i++) {
+            Side side = random.nextDouble() < buyRatio ? Side.BUY : Side.SELL;
+            boolean market = random.nextDouble() < marketRatio;
+            long offset = (1 + random.nextInt(market ? 50 : priceLevels)) * TICK;
+            // рыночная заявка пересекает спред, лимитная встаёт на свою сторону
+            long price = (side == Side.BUY) == market ? MID + offset : MID - offset;
+            sides[i] = side;
+            prices[i] = price;
+            volumes[i] = 1 + random.nextInt(100);
+            long depth = (1 + random.nextInt(priceLevels)) * TICK + TICK / 2;
+            deepPrices[i] = side == Side.BUY ? MID - depth : MID + depth;
+        }
+    }
+
+    @Benchmark
+    public long matchAndRest() {
+        int i = cursor++ & (ORDERS - 1);
+        long remaining = book.match(sides[i], prices[i], volumes[i], listener);
+        if (remaining > 0) {
+            book.add(nextId++, sides[i], prices[i], remaining, true);
+        }
+        return traded;
+    }
+
+    @Benchmark
+    public Object addAndCancel() {
+        int i = cursor++ & (ORDERS - 1);
+        long id = nextId++;
+        book.add(id, sides[i], sides[i] == Side.BUY ? MID / 2 : MID * 2, volumes[i], true);
+        return book.cancel(id);
+    }
+
+    @Benchmark
+    public Object addAndCancelDeepLevel() {
+        int i = cursor++ & (ORDERS - 1);
+        long id = nextId++;
+        book.add(id, sides[i], deepPrices[i], volumes[i], true);
+        return book.cancel(id);
+    }
+}
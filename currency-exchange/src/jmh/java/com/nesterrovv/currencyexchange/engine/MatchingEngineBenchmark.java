@@ -0,0 +1,62 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность приёма заявок через кольцевые буферы в потоки сопоставления.
+ * При заполненном буфере производитель ждёт потребителя, так что измеряется
+ * установившаяся скорость сопоставления.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchingEngineBenchmark {
+
+    private static final int ORDERS = 1 << 16;
+
+    @Param({"1", "3", "8"})
+    private int currencies;
+
+    @Param({"0.5", "0.8"})
+    private double buyRatio;
+
+    private MatchingEngine[] engines;
+    private final Side[] sides = new Side[ORDERS];
+    private final long[] prices = new long[ORDERS];
+    private int cursor;
+    // id 0 зарезервирован индексом заявок
+    private long nextId = 1;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engines = new MatchingEngine[currencies];
+        for (int i = 0; i < currencies; i++) {
+            engines[i] = new MatchingEngine(new LimitOrderBook("C" + i, new PriceScale(4, 2)), 1 << 16, (maker, price, volume) -> { });
+            engines[i].start();
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < ORDERS; i++) {
+            sides[i] = random.nextDouble() < buyRatio ? Side.BUY : Side.SELL;
+            prices[i] = 800_000 + (random.nextInt(200) - 100) * 100;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (MatchingEngine engine : engines) {
+            engine.stop();
+        }
+    }
+
+    @Benchmark
+    public void submit() {
+        int i = cursor++;
+        engines[i % currencies].submit(nextId++, sides[i & (ORDERS - 1)], prices[i & (ORDERS - 1)], 1_000);
+    }
+}
@@ -0,0 +1,61 @@
+package com.nesterrovv.currencyexchange.journal;
+
+import com.nesterrovv.currencyexchange.engine.Side;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Запись в журнал из нескольких потоков сопоставления сразу: каждый поток пишет заявки своего
+ * инструмента, как при работе биржи. Запускать с {@code -t 1}, {@code -t 4} и т. д.: время одной
+ * записи не должно расти с числом потоков, пока им хватает ядер.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedFileJournalBenchmark {
+
+    private Path directory;
+    private MappedFileJournal journal;
+    private final AtomicInteger instruments = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int currency;
+        long orderId;
+
+        @Setup(Level.Trial)
+        public void setUp(MappedFileJournalBenchmark benchmark) {
+            currency = benchmark.instruments.getAndIncrement();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-bench");
+        journal = new MappedFileJournal(directory, 1 << 20, 2, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long append(Writer writer) {
+        return journal.append(JournalRecord.ORDER, writer.currency, Side.BUY, 0, ++writer.orderId,
+                800_000, 1_000, writer.orderId);
+    }
+}
@@ -0,0 +1,78 @@
+package com.nesterrovv.currencyexchange.model;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nesterrovv.currencyexchange.stream.EncodedEvent;
+import com.nesterrovv.currencyexchange.stream.SseEventEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость доставки одного события всем подписчикам SSE:
+ * fanOut — Jackson отдельно для каждого соединения (как WebFlux для Flux объектов),
+ * preEncodedFanOut — одна сериализация и обёртка общих байтов для каждого соединения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SseSerializationBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int subscribers;
+
+    @Param({"currency", "orderbook", "stats"})
+    private String payload;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SseEventEncoder encoder = new SseEventEncoder(objectMapper);
+    private Object event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        event = switch (payload) {
+            case "currency" -> new CurrencyData("USD", 80.1234, System.currentTimeMillis(), 0.42);
+            case "orderbook" -> {
+                List<OrderBook.Order> bids = new ArrayList<>();
+                List<OrderBook.Order> asks = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    bids.add(new OrderBook.Order(80 - i * 0.01, 10 + i));
+                    asks.add(new OrderBook.Order(80 + i * 0.01, 10 + i));
+                }
+                yield new OrderBook("USD", bids, asks);
+            }
+            default -> {
+                StatsData stats = new StatsData();
+                stats.setCurrency("USD");
+                stats.setLastPrice(80.4);
+                stats.setDayHigh(81.5);
+                stats.setDayLow(79.2);
+                stats.setDayVolume(123456);
+                stats.setDayVwap(80.1);
+                stats.setDayTradeCount(4321);
+                yield stats;
+            }
+        };
+    }
+
+    @Benchmark
+    public void fanOut(Blackhole blackhole) throws JsonProcessingException {
+        for (int i = 0; i < subscribers; i++) {
+            blackhole.consume(objectMapper.writeValueAsBytes(event));
+        }
+    }
+
+    @Benchmark
+    public void preEncodedFanOut(Blackhole blackhole) {
+        EncodedEvent encoded = encoder.encode("USD", event);
+        for (int i = 0; i < subscribers; i++) {
+            blackhole.consume(encoded.toDataBuffer());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.cluster.ClusterProperties;
+import com.nesterrovv.currencyexchange.engine.LimitOrderBook;
+import com.nesterrovv.currencyexchange.engine.Side;
+import com.nesterrovv.currencyexchange.execution.ExecutionProperties;
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.generator.GeneratorProperties;
+import com.nesterrovv.currencyexchange.generator.PriceModels;
+import com.nesterrovv.currencyexchange.generator.SineModelProvider;
+import com.nesterrovv.currencyexchange.journal.Journal;
+import com.nesterrovv.currencyexchange.model.CurrencyData;
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.snapshot.SnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Регрессия для тика цены: его стоимость не должна зависеть от числа заявок — ни стоящих
+ * в стакане, ни поданных в окне влияния на цену.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenerateCurrencyBenchmark {
+
+    // разных уровней цены на каждой стороне стакана
+    private static final int LEVELS = 10_000;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int pendingOrders;
+
+    private CurrencyService service;
+    private ExecutionSchedulers schedulers;
+    private Instrument usd;
+    // момент, на который считается тик: все заявки итерации поданы в окне до него
+    private long now;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GeneratorProperties.Instrument properties = new GeneratorProperties.Instrument();
+        properties.setSymbol("USD");
+        properties.setPrice(80);
+        GeneratorProperties generator = new GeneratorProperties();
+        // собственный генератор сервиса не запускаем: тик вызывается из бенчмарка
+        generator.setTicksPerSecond(0);
+        generator.setInstruments(List.of(properties));
+        schedulers = new ExecutionSchedulers(new ExecutionProperties());
+        service = new CurrencyService(Journal.NONE, SnapshotStore.NONE, new SimpleMeterRegistry(),
+                generator, new PriceModels(List.of(new SineModelProvider())), new ClusterProperties(), schedulers);
+        usd = service.getInstruments().get("USD");
+        // заявки далеко от рынка на многих уровнях: ни одна не исполняется, все остаются в стакане
+        for (int i = 0; i < pendingOrders; i++) {
+            boolean buy = (i & 1) == 0;
+            double offset = (i >> 1) % LEVELS * 0.0001;
+            UserOrder order = new UserOrder(buy ? "BUY" : "SELL", "USD", 1, buy ? 1.0 + offset : 1_000_000.0 + offset);
+            // кольцо заполнено — ждём, пока поток сопоставления его разберёт
+            while (service.addUserOrder(order).isCompletedExceptionally()) {
+                Thread.onSpinWait();
+            }
+        }
+        usd.engine.query(LimitOrderBook::size).join();
+    }
+
+    /**
+     * Тик читает только заявки за последние 500 мс, поэтому перед каждой итерацией окно заново
+     * заполняется всеми заявками параметра, поданными на протяжении окна до {@link #now}.
+     * Поток сопоставления в это время простаивает, так что трекер пишет по-прежнему один поток.
+     */
+    @Setup(Level.Iteration)
+    public void fillWindow() {
+        now = System.currentTimeMillis();
+        long window = NetVolumeTracker.WINDOW_MILLIS;
+        for (int i = 0; i < pendingOrders; i++) {
+            usd.netVolume.onAccepted((i & 1) == 0 ? Side.BUY : Side.SELL, 100 + i % 7,
+                    now - window + 1 + (long) i * window / pendingOrders);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.stopEngines();
+        schedulers.dispose();
+    }
+
+    @Benchmark
+    public CurrencyData tick() {
+        return service.generateCurrency(usd.getId(), 80, now);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обновление статистики (день и окна 1 мин / 1 ч) одной сделкой и выпуск StatsData,
+ * как в initStatsFlux. Сделки идут по 100 в секунду, так что окна сдвигаются.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsAccumulatorBenchmark {
+
+    private static final int TRADES = 1 << 12;
+
+    private final StatsAccumulator accumulator = new StatsAccumulator("USD");
+    private final TradeEvent[] trades = new TradeEvent[TRADES];
+    private int cursor;
+    private long timeShift;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < TRADES; i++) {
+            trades[i] = new TradeEvent("USD", 80 + random.nextDouble(-1, 1), 1 + random.nextInt(100), i * 10L);
+        }
+    }
+
+    @Benchmark
+    public StatsData update() {
+        int i = cursor++ & (TRADES - 1);
+        if (i == 0) {
+            timeShift += TRADES * 10L;
+        }
+        TradeEvent trade = trades[i];
+        trade.setTimestamp(timeShift + i * 10L);
+        return accumulator.update(trade);
+    }
+}
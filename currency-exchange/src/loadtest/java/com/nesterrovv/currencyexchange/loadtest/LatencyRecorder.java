@@ -0,0 +1,45 @@
+package com.nesterrovv.currencyexchange.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Все замеры задержки прогона в растущем массиве; перцентили считаются по отсортированной
+ * копии в конце. Прогон короткий, так что память — единицы мегабайт.
+ */
+final class LatencyRecorder {
+
+    private long[] values = new long[1 << 16];
+    private int size;
+
+    synchronized void record(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    synchronized int count() {
+        return size;
+    }
+
+    /**
+     * Строка "count, p50, p90, p99, p99.9, max" в единицах {@code unit} от значений, делённых на {@code divisor}.
+     */
+    synchronized String summary(double divisor, String unit) {
+        if (size == 0) {
+            return "no samples";
+        }
+        long[] sorted = Arrays.copyOf(values, size);
+        Arrays.sort(sorted);
+        return String.format("n=%d p50=%.2f%s p90=%.2f%s p99=%.2f%s p99.9=%.2f%s max=%.2f%s", size,
+                percentile(sorted, 0.5) / divisor, unit,
+                percentile(sorted, 0.9) / divisor, unit,
+                percentile(sorted, 0.99) / divisor, unit,
+                percentile(sorted, 0.999) / divisor, unit,
+                sorted[size - 1] / divisor, unit);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,292 @@
+package com.nesterrovv.currencyexchange.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Сквозной нагрузочный прогон против запущенного приложения: N подписчиков SSE на каждый из потоков
+ * /api/currency, /api/orderbook, /api/stats и /api/notification и M отправителей заявок в /api/order
+ * с заданной частотой. Заявки каждого отправителя берутся из своего {@link Random} с общим зерном,
+ * так что при том же {@code --seed} последовательность заявок та же от прогона к прогону.
+ * <p>
+ * Отчёт: пропускная способность по заявкам и событиям, задержки тика (генерация → клиент),
+ * сделки (исполнение → отчёт у клиента) и приёма заявки (отправка → отчёт ACCEPTED),
+ * куча и паузы GC сервера по /actuator/prometheus. Клиент и сервер на одной машине,
+ * поэтому задержки по серверным меткам времени точны до миллисекунды.
+ * <p>
+ * Запуск: {@code mvn spring-boot:run} в одном терминале, затем в другом
+ * <pre>
+ * mvn -Ploadtest compile exec:exec -Dloadtest.args="--subscribers=100 --submitters=8 --rate=500 --duration=60"
+ * </pre>
+ * Параметры: --url, --subscribers (на поток), --submitters, --rate (заявок/с на отправителя),
+ * --warmup и --duration (с), --seed.
+ */
+public final class LoadTest {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE =
+            new ParameterizedTypeReference<>() {
+            };
+    private static final String[] STREAMS = {"currency", "orderbook", "stats", "notification"};
+    // запросов одного отправителя в полёте; больше — отправитель пропускает такты (missed)
+    private static final int MAX_IN_FLIGHT = 64;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, LongAdder> events = new LinkedHashMap<>();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder ordersSent = new LongAdder();
+    private final LongAdder ordersFailed = new LongAdder();
+    private final LongAdder ordersMissed = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+    private final LatencyRecorder tickLatency = new LatencyRecorder();
+    private final LatencyRecorder tradeLatency = new LatencyRecorder();
+    private final LatencyRecorder acceptLatency = new LatencyRecorder();
+    // отчёт ACCEPTED может прийти раньше ответа на POST — сводим по номеру заявки в конце
+    private final Map<Long, Long> sentNanos = new ConcurrentHashMap<>();
+    private final Map<Long, Long> acceptedNanos = new ConcurrentHashMap<>();
+    private volatile long measureFromNanos = Long.MAX_VALUE;
+
+    private LoadTest() {
+        for (String stream : STREAMS) {
+            events.put(stream, new LongAdder());
+        }
+        events.put("executions", new LongAdder());
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = options(args);
+        new LoadTest().run(options.getOrDefault("url", "http://localhost:8080"),
+                Integer.parseInt(options.getOrDefault("subscribers", "50")),
+                Integer.parseInt(options.getOrDefault("submitters", "4")),
+                Double.parseDouble(options.getOrDefault("rate", "100")),
+                Integer.parseInt(options.getOrDefault("warmup", "10")),
+                Integer.parseInt(options.getOrDefault("duration", "60")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+    }
+
+    private void run(String url, int subscribers, int submitters, double rate, int warmup, int duration,
+                     long seed) throws InterruptedException {
+        // потоки SSE живут весь прогон и не должны занимать пул соединений заявок
+        WebClient streams = client(url, ConnectionProvider.newConnection());
+        WebClient requests = client(url, ConnectionProvider.builder("loadtest-orders")
+                .maxConnections(submitters * MAX_IN_FLIGHT)
+                .pendingAcquireMaxCount(-1)
+                .build());
+
+        List<Instrument> instruments = instruments(requests);
+        ServerMetrics before = metrics(requests);
+        System.out.printf("Instruments %s; %d subscribers per stream, %d submitters x %.0f orders/s%n",
+                instruments.stream().map(Instrument::symbol).toList(), subscribers, submitters, rate);
+
+        Disposable.Composite subscriptions = Disposables.composite();
+        for (String stream : STREAMS) {
+            for (int i = 0; i < subscribers; i++) {
+                String uri = stream.equals("orderbook")
+                        ? "/api/orderbook?currency=" + instruments.get(i % instruments.size()).symbol()
+                        : "/api/" + stream;
+                subscriptions.add(sse(streams, uri).subscribe(data -> onEvent(stream, data)));
+            }
+        }
+        for (int i = 0; i < submitters; i++) {
+            subscriptions.add(sse(streams, "/api/executions?user=" + user(i)).subscribe(this::onReport));
+        }
+        // подписки устанавливаются до первых заявок
+        Thread.sleep(1000);
+
+        long start = System.nanoTime();
+        measureFromNanos = start + TimeUnit.SECONDS.toNanos(warmup);
+        Disposable.Composite senders = Disposables.composite();
+        for (int i = 0; i < submitters; i++) {
+            OrderMix mix = new OrderMix(new Random(seed + i), instruments, user(i));
+            senders.add(Flux.interval(Duration.ofNanos((long) (TimeUnit.SECONDS.toNanos(1) / rate)))
+                    .onBackpressureDrop(tick -> ordersMissed.increment())
+                    .map(tick -> mix.next())
+                    .flatMap(order -> submit(requests, order), MAX_IN_FLIGHT)
+                    .subscribe());
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmup + duration));
+        senders.dispose();
+        // последние отчёты и события после остановки отправителей
+        Thread.sleep(1000);
+        subscriptions.dispose();
+        ServerMetrics after = metrics(requests);
+
+        report(duration, before, after);
+    }
+
+    private void onEvent(String stream, String data) {
+        if (System.nanoTime() < measureFromNanos) {
+            return;
+        }
+        events.get(stream).increment();
+        if (stream.equals("currency")) {
+            tickLatency.record(System.currentTimeMillis() - json(data).path("timestamp").asLong());
+        }
+    }
+
+    private void onReport(String data) {
+        long now = System.nanoTime();
+        if (now < measureFromNanos) {
+            return;
+        }
+        events.get("executions").increment();
+        JsonNode report = json(data);
+        switch (report.path("status").asText()) {
+            case "ACCEPTED" -> acceptedNanos.putIfAbsent(report.path("orderId").asLong(), now);
+            case "FILLED", "PARTIALLY_FILLED" -> {
+                fills.increment();
+                tradeLatency.record(System.currentTimeMillis() - report.path("timestamp").asLong());
+            }
+            default -> {
+                // снятия и отказы прогон не создаёт
+            }
+        }
+    }
+
+    private Mono<Void> submit(WebClient requests, Map<String, Object> order) {
+        return Mono.defer(() -> {
+            long sent = System.nanoTime();
+            return requests.post().uri("/api/order")
+                    .bodyValue(order)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .doOnNext(body -> {
+                        ordersSent.increment();
+                        if (sent >= measureFromNanos) {
+                            sentNanos.put(json(body).path("orderId").asLong(), sent);
+                        }
+                    })
+                    .then()
+                    .onErrorResume(e -> {
+                        ordersFailed.increment();
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private void report(int duration, ServerMetrics before, ServerMetrics after) {
+        sentNanos.forEach((orderId, sent) -> {
+            Long accepted = acceptedNanos.get(orderId);
+            if (accepted != null) {
+                acceptLatency.record(accepted - sent);
+            }
+        });
+        System.out.printf("Orders: %d sent (%.0f/s), %d failed, %d missed by the client; %d fills (%.0f/s)%n",
+                ordersSent.sum(), ordersSent.sum() / (double) duration, ordersFailed.sum(), ordersMissed.sum(),
+                fills.sum(), fills.sum() / (double) duration);
+        events.forEach((stream, count) -> System.out.printf("Stream %-12s %10d events (%.0f/s)%n",
+                stream, count.sum(), count.sum() / (double) duration));
+        System.out.printf("Reconnects after server disconnects: %d%n", reconnects.sum());
+        System.out.println("Tick latency:   " + tickLatency.summary(1, " ms"));
+        System.out.println("Trade latency:  " + tradeLatency.summary(1, " ms"));
+        System.out.println("Accept latency: " + acceptLatency.summary(1e6, " ms"));
+        System.out.println("Server: " + after.summary(before, duration));
+    }
+
+    private Flux<String> sse(WebClient client, String uri) {
+        // политики сервера отключают отставших подписчиков — переподключаемся, как браузер
+        return client.get().uri(uri)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(SSE)
+                .mapNotNull(ServerSentEvent::data)
+                .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, Duration.ofMillis(100))
+                        .doBeforeRetry(signal -> reconnects.increment()));
+    }
+
+    private List<Instrument> instruments(WebClient requests) {
+        List<Instrument> instruments = new ArrayList<>();
+        json(requests.get().uri("/api/instruments").retrieve().bodyToMono(String.class).block())
+                .forEach(node -> instruments.add(new Instrument(node.path("symbol").asText(),
+                        node.path("price").asDouble())));
+        if (instruments.isEmpty()) {
+            throw new IllegalStateException("Server has no instruments");
+        }
+        return instruments;
+    }
+
+    private static ServerMetrics metrics(WebClient requests) {
+        return ServerMetrics.parse(requests.get().uri("/actuator/prometheus")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block());
+    }
+
+    private JsonNode json(String text) {
+        try {
+            return mapper.readTree(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static WebClient client(String url, ConnectionProvider provider) {
+        return WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)))
+                .build();
+    }
+
+    private static String user(int submitter) {
+        return "loadtest-" + submitter;
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private record Instrument(String symbol, double basePrice) {
+    }
+
+    /**
+     * Заявки одного отправителя: валюта, сторона, цена вокруг базовой (часть сразу исполняется
+     * по котировкам маркет-мейкера, часть встаёт в стакан) и объём — всё из одного генератора.
+     */
+    private record OrderMix(Random random, List<Instrument> instruments, String user) {
+
+        Map<String, Object> next() {
+            Instrument instrument = instruments.get(random.nextInt(instruments.size()));
+            boolean buy = random.nextBoolean();
+            // от 1 за рынком до 3 в его сторону: котировки стоят в пределах ±5 от базовой цены
+            double offset = random.nextDouble() * 4 - 1;
+            double price = instrument.basePrice() + (buy ? offset : -offset);
+            return Map.of(
+                    "side", buy ? "BUY" : "SELL",
+                    "currency", instrument.symbol(),
+                    "volume", 1 + random.nextInt(50),
+                    "userPrice", Math.round(price * 100) / 100.0,
+                    "user", user);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.nesterrovv.currencyexchange.loadtest;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Метрики JVM сервера из текстового формата Prometheus (/actuator/prometheus):
+ * значения с одним именем суммируются по всем меткам.
+ */
+record ServerMetrics(Map<String, Double> values) {
+
+    static final String HEAP_USED = "jvm_memory_used_bytes{area=\"heap\"";
+    static final String GC_PAUSE_COUNT = "jvm_gc_pause_seconds_count";
+    static final String GC_PAUSE_SUM = "jvm_gc_pause_seconds_sum";
+    static final String GC_PAUSE_MAX = "jvm_gc_pause_seconds_max";
+    static final String ALLOCATED = "jvm_gc_memory_allocated_bytes_total";
+
+    static ServerMetrics parse(String text) {
+        Map<String, Double> values = new TreeMap<>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.lastIndexOf(' ');
+            String series = line.substring(0, space);
+            double value;
+            try {
+                value = Double.parseDouble(line.substring(space + 1));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            for (String name : new String[]{HEAP_USED, GC_PAUSE_COUNT, GC_PAUSE_SUM, ALLOCATED}) {
+                if (series.startsWith(name)) {
+                    values.merge(name, value, Double::sum);
+                }
+            }
+            if (series.startsWith(GC_PAUSE_MAX)) {
+                values.merge(GC_PAUSE_MAX, value, Math::max);
+            }
+        }
+        return new ServerMetrics(values);
+    }
+
+    double get(String name) {
+        return values.getOrDefault(name, 0.0);
+    }
+
+    /**
+     * Куча в конце, паузы GC и выделенная память за прогон.
+     */
+    String summary(ServerMetrics before, double seconds) {
+        // max у Micrometer — за последнее окно публикации, а не за весь прогон
+        return String.format("heap used %.1f MB, GC pauses %d (%.1f ms total, recent max %.1f ms), "
+                        + "allocated %.1f MB/s",
+                get(HEAP_USED) / (1 << 20),
+                (long) (get(GC_PAUSE_COUNT) - before.get(GC_PAUSE_COUNT)),
+                (get(GC_PAUSE_SUM) - before.get(GC_PAUSE_SUM)) * 1000,
+                get(GC_PAUSE_MAX) * 1000,
+                (get(ALLOCATED) - before.get(ALLOCATED)) / (1 << 20) / seconds);
+    }
+}
@@ -0,0 +1,149 @@
+package com.nesterrovv.currencyexchange.alert;
+
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.model.AlertNotification;
+import com.nesterrovv.currencyexchange.model.AlertRule;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.InstrumentRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Оповещения по правилам пользователей вместо общих порогов для всех. Правила каждой валюты
+ * лежат в отсортированных индексах порогов ({@link InstrumentAlerts}), так что тик и сделка
+ * затрагивают только сработавшие правила. Проверка идёт на агрегации, а сработавшее правило
+ * уходит сразу в поток своего пользователя, без фильтрации общего потока на каждом подписчике.
+ */
+@Service
+public class AlertService {
+
+    private final CurrencyService currencyService;
+    private final ExecutionSchedulers schedulers;
+    private final AtomicLong ruleIds = new AtomicLong();
+    private final Map<Long, AlertRule> rules = new ConcurrentHashMap<>();
+    private final Map<String, InstrumentAlerts> byCurrency = new ConcurrentHashMap<>();
+    // поток пользователя живёт, пока на него есть подписчики
+    private final Map<String, UserAlerts> byUser = new ConcurrentHashMap<>();
+    private Disposable subscription;
+
+    public AlertService(CurrencyService currencyService, ExecutionSchedulers schedulers) {
+        this.currencyService = currencyService;
+        this.schedulers = schedulers;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        // правила переживают удаление инструмента и снова работают, если его добавят
+        subscription = currencyService.getInstruments().added()
+                .flatMap(instrument -> {
+                    InstrumentAlerts alerts = alerts(instrument.getSymbol());
+                    return Flux.merge(
+                            schedulers.toAggregation(instrument.getTickFlux())
+                                    .doOnNext(data -> alerts.onPrice(data.getPrice(), data.getTimestamp())),
+                            schedulers.toAggregation(instrument.getTradeFlux())
+                                    .doOnNext(trade -> alerts.onTrade(trade.getVolume(), trade.getTimestamp())));
+                }, InstrumentRegistry.MAX_INSTRUMENTS)
+                .subscribe();
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        subscription.dispose();
+    }
+
+    /**
+     * Регистрирует правило и присваивает ему номер.
+     *
+     * @throws IllegalArgumentException неизвестная валюта или тип, порог не больше нуля, окно не задано или длиннее часа
+     */
+    public AlertRule addRule(AlertRule rule) {
+        if (rule.getUser() == null || rule.getUser().isBlank()) {
+            throw new IllegalArgumentException("Alert user is required");
+        }
+        if (currencyService.currencyId(rule.getCurrency()) < 0) {
+            throw new IllegalArgumentException("Unknown currency: " + rule.getCurrency());
+        }
+        AlertType type = AlertType.of(rule.getType());
+        if (!(rule.getThreshold() > 0)) {
+            throw new IllegalArgumentException("Alert threshold must be positive");
+        }
+        if (type.isWindowed()
+                && (rule.getWindowMs() <= 0 || rule.getWindowMs() > InstrumentAlerts.MAX_WINDOW_SECONDS * 1000L)) {
+            throw new IllegalArgumentException("Alert window must be positive and at most 1 h");
+        }
+        AlertRule registered = new AlertRule(ruleIds.incrementAndGet(), rule.getUser(), rule.getCurrency(),
+                type.name(), rule.getThreshold(), type.isWindowed() ? rule.getWindowMs() : 0);
+        rules.put(registered.getId(), registered);
+        alerts(registered.getCurrency()).add(registered, type);
+        return registered;
+    }
+
+    /**
+     * Удаляет правило пользователя; чужое или неизвестное правило не трогается.
+     */
+    public boolean removeRule(long id, String user) {
+        AlertRule rule = rules.get(id);
+        if (rule == null || !rule.getUser().equals(user) || !rules.remove(id, rule)) {
+            return false;
+        }
+        alerts(rule.getCurrency()).remove(rule, AlertType.of(rule.getType()));
+        return true;
+    }
+
+    public List<AlertRule> getRules(String user) {
+        return rules.values().stream()
+                .filter(rule -> rule.getUser().equals(user))
+                .toList();
+    }
+
+    /**
+     * Срабатывания правил пользователя. Пока подписчиков нет, срабатывания не копятся,
+     * а с уходом последнего подписчика поток пользователя удаляется.
+     */
+    public Flux<AlertNotification> subscribe(String user) {
+        return Flux.defer(() -> {
+            // счётчик меняется только внутри compute, то есть под замком ключа
+            UserAlerts alerts = byUser.compute(user, (key, existing) -> {
+                UserAlerts result = existing == null ? new UserAlerts() : existing;
+                result.subscribers++;
+                return result;
+            });
+            return alerts.sink.asFlux()
+                    .doFinally(signal -> byUser.computeIfPresent(user,
+                            (key, existing) -> --existing.subscribers == 0 ? null : existing));
+        });
+    }
+
+    private InstrumentAlerts alerts(String currency) {
+        return byCurrency.computeIfAbsent(currency, key -> new InstrumentAlerts(this::notify));
+    }
+
+    private void notify(AlertRule rule, double value, long timestamp) {
+        UserAlerts alerts = byUser.get(rule.getUser());
+        if (alerts == null) {
+            return;
+        }
+        Sinks.Many<AlertNotification> sink = alerts.sink;
+        AlertNotification notification = new AlertNotification(rule.getId(), rule.getUser(), rule.getCurrency(),
+                rule.getType(), rule.getThreshold(), value, timestamp);
+        // правила разных валют одного пользователя срабатывают на разных потоках агрегации
+        while (sink.tryEmitNext(notification) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static final class UserAlerts {
+
+        final Sinks.Many<AlertNotification> sink = Sinks.many().multicast().directBestEffort();
+        int subscribers;
+    }
+}
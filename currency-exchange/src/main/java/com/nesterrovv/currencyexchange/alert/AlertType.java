@@ -0,0 +1,34 @@
+package com.nesterrovv.currencyexchange.alert;
+
+/**
+ * Типы правил оповещения; строковое имя — то же, что в {@code AlertRule.type}.
+ */
+public enum AlertType {
+
+    PRICE_ABOVE(false),
+    PRICE_BELOW(false),
+    MOVE_UP(true),
+    MOVE_DOWN(true),
+    VOLUME_ABOVE(true);
+
+    private final boolean windowed;
+
+    AlertType(boolean windowed) {
+        this.windowed = windowed;
+    }
+
+    public static AlertType of(String name) {
+        try {
+            return valueOf(name.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Unknown alert type: " + name);
+        }
+    }
+
+    /**
+     * Правило считается по окну {@code windowMs}.
+     */
+    public boolean isWindowed() {
+        return windowed;
+    }
+}
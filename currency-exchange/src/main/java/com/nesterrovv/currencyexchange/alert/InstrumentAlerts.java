@@ -0,0 +1,209 @@
+package com.nesterrovv.currencyexchange.alert;
+
+import com.nesterrovv.currencyexchange.model.AlertRule;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Правила одной валюты, разложенные по сигналам: цена, изменение цены за окно, объём за окно.
+ * У каждого сигнала свои отсортированные индексы порогов, у правил с окном — по индексу на
+ * длину окна, так что тик стоит O(число разных окон · log n) плюс сработавшие правила.
+ * Тики и сделки приходят с разных потоков, правила добавляются из HTTP — всё под монитором объекта.
+ */
+final class InstrumentAlerts {
+
+    /**
+     * Получатель сработавших правил; вызывается под монитором валюты.
+     */
+    interface Listener {
+        void onTriggered(AlertRule rule, double value, long timestamp);
+    }
+
+    // окна считаются посекундно, не длиннее часа
+    static final int MAX_WINDOW_SECONDS = 3600;
+
+    private final Listener listener;
+
+    private final ThresholdIndex priceAbove = new ThresholdIndex();
+    // пороги и значения с обратным знаком: падение цены — рост её отрицания
+    private final ThresholdIndex priceBelow = new ThresholdIndex();
+    private double lastPrice = Double.NaN;
+
+    private final Map<Integer, MoveWindow> moves = new TreeMap<>();
+    private final Map<Integer, VolumeWindow> volumes = new TreeMap<>();
+    // история цены создаётся с первым правилом на изменение за окно
+    private PriceHistory history;
+
+    InstrumentAlerts(Listener listener) {
+        this.listener = listener;
+    }
+
+    synchronized void add(AlertRule rule, AlertType type) {
+        switch (type) {
+            case PRICE_ABOVE -> priceAbove.add(rule.getThreshold(), rule);
+            case PRICE_BELOW -> priceBelow.add(-rule.getThreshold(), rule);
+            case MOVE_UP, MOVE_DOWN -> {
+                if (history == null) {
+                    history = new PriceHistory();
+                }
+                MoveWindow window = moves.computeIfAbsent(windowSeconds(rule), MoveWindow::new);
+                (type == AlertType.MOVE_UP ? window.up : window.down).add(rule.getThreshold(), rule);
+            }
+            case VOLUME_ABOVE -> volumes.computeIfAbsent(windowSeconds(rule), VolumeWindow::new)
+                    .rules.add(rule.getThreshold(), rule);
+        }
+    }
+
+    synchronized void remove(AlertRule rule, AlertType type) {
+        switch (type) {
+            case PRICE_ABOVE -> priceAbove.remove(rule.getThreshold(), rule);
+            case PRICE_BELOW -> priceBelow.remove(-rule.getThreshold(), rule);
+            case MOVE_UP, MOVE_DOWN -> {
+                MoveWindow window = moves.get(windowSeconds(rule));
+                if (window != null) {
+                    (type == AlertType.MOVE_UP ? window.up : window.down).remove(rule.getThreshold(), rule);
+                    if (window.up.isEmpty() && window.down.isEmpty()) {
+                        moves.remove(window.seconds);
+                    }
+                }
+            }
+            case VOLUME_ABOVE -> {
+                VolumeWindow window = volumes.get(windowSeconds(rule));
+                if (window != null && window.rules.remove(rule.getThreshold(), rule) && window.rules.isEmpty()) {
+                    volumes.remove(window.seconds);
+                }
+            }
+        }
+    }
+
+    synchronized void onPrice(double price, long timestamp) {
+        priceAbove.crossed(lastPrice, price, rule -> listener.onTriggered(rule, price, timestamp));
+        priceBelow.crossed(-lastPrice, -price, rule -> listener.onTriggered(rule, price, timestamp));
+        lastPrice = price;
+
+        if (history == null) {
+            return;
+        }
+        long second = timestamp / 1000;
+        history.record(second, price);
+        for (MoveWindow window : moves.values()) {
+            double reference = history.at(second - window.seconds);
+            double move = reference > 0 ? (price - reference) / reference * 100 : Double.NaN;
+            window.up.crossed(window.lastMove, move, rule -> listener.onTriggered(rule, move, timestamp));
+            window.down.crossed(-window.lastMove, -move, rule -> listener.onTriggered(rule, move, timestamp));
+            window.lastMove = move;
+        }
+    }
+
+    synchronized void onTrade(double volume, long timestamp) {
+        long second = timestamp / 1000;
+        for (VolumeWindow window : volumes.values()) {
+            double before = window.advance(second);
+            window.add(second, volume);
+            double after = window.sum;
+            window.rules.crossed(before, after, rule -> listener.onTriggered(rule, after, timestamp));
+        }
+    }
+
+    static int windowSeconds(AlertRule rule) {
+        return (int) Math.max(1, (rule.getWindowMs() + 999) / 1000);
+    }
+
+    /**
+     * Правила на изменение цены за одно окно и значение изменения на прошлом тике.
+     */
+    private static final class MoveWindow {
+
+        final int seconds;
+        final ThresholdIndex up = new ThresholdIndex();
+        // пороги падения хранятся положительными, значение — с обратным знаком
+        final ThresholdIndex down = new ThresholdIndex();
+        double lastMove = Double.NaN;
+
+        MoveWindow(int seconds) {
+            this.seconds = seconds;
+        }
+    }
+
+    /**
+     * Сумма объёма сделок за окно в кольце посекундных корзин.
+     */
+    private static final class VolumeWindow {
+
+        final int seconds;
+        final ThresholdIndex rules = new ThresholdIndex();
+        final double[] buckets;
+        long lastSecond = Long.MIN_VALUE;
+        double sum;
+
+        VolumeWindow(int seconds) {
+            this.seconds = seconds;
+            this.buckets = new double[seconds];
+        }
+
+        /**
+         * Сдвигает окно к {@code second}, вычитая выпавшие корзины; возвращает сумму после сдвига.
+         */
+        double advance(long second) {
+            if (second > lastSecond) {
+                long from = lastSecond == Long.MIN_VALUE ? second : Math.max(lastSecond + 1, second - seconds + 1);
+                for (long s = from; s <= second; s++) {
+                    int i = (int) Math.floorMod(s, (long) seconds);
+                    sum -= buckets[i];
+                    buckets[i] = 0;
+                }
+                lastSecond = second;
+            }
+            return sum;
+        }
+
+        void add(long second, double volume) {
+            // сделка с отставшей меткой времени считается в текущую секунду
+            buckets[(int) Math.floorMod(Math.max(second, lastSecond), (long) seconds)] += volume;
+            sum += volume;
+        }
+    }
+
+    /**
+     * Цена на конец каждой из последних {@link #MAX_WINDOW_SECONDS} секунд; секунды без тиков
+     * заполняются последней известной ценой.
+     */
+    private static final class PriceHistory {
+
+        private final long[] seconds = new long[MAX_WINDOW_SECONDS + 1];
+        private final double[] prices = new double[MAX_WINDOW_SECONDS + 1];
+        private long lastSecond = Long.MIN_VALUE;
+        private double lastPrice;
+
+        PriceHistory() {
+            Arrays.fill(seconds, Long.MIN_VALUE);
+        }
+
+        void record(long second, double price) {
+            if (second < lastSecond) {
+                return;
+            }
+            if (lastSecond != Long.MIN_VALUE) {
+                for (long s = Math.max(lastSecond + 1, second - prices.length + 1); s < second; s++) {
+                    set(s, lastPrice);
+                }
+            }
+            set(second, price);
+            lastSecond = second;
+            lastPrice = price;
+        }
+
+        double at(long second) {
+            int i = (int) Math.floorMod(second, (long) prices.length);
+            return seconds[i] == second ? prices[i] : Double.NaN;
+        }
+
+        private void set(long second, double price) {
+            int i = (int) Math.floorMod(second, (long) prices.length);
+            seconds[i] = second;
+            prices[i] = price;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.nesterrovv.currencyexchange.alert;
+
+import com.nesterrovv.currencyexchange.model.AlertRule;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Правила, отсортированные по порогу, в параллельных массивах. Пересечение значения
+ * снизу вверх находит сработавшие правила двоичным поиском и обходит только их:
+ * O(log n + k) на событие независимо от числа правил. Пересечение сверху вниз
+ * сводится к этому же, если хранить пороги и значения с обратным знаком.
+ * Класс не потокобезопасен.
+ */
+final class ThresholdIndex {
+
+    private double[] thresholds = new double[16];
+    private AlertRule[] rules = new AlertRule[16];
+    private int size;
+
+    void add(double threshold, AlertRule rule) {
+        if (size == thresholds.length) {
+            thresholds = Arrays.copyOf(thresholds, size * 2);
+            rules = Arrays.copyOf(rules, size * 2);
+        }
+        // после равных порогов: правила с одинаковым порогом срабатывают в порядке добавления
+        int i = upperBound(threshold);
+        System.arraycopy(thresholds, i, thresholds, i + 1, size - i);
+        System.arraycopy(rules, i, rules, i + 1, size - i);
+        thresholds[i] = threshold;
+        rules[i] = rule;
+        size++;
+    }
+
+    boolean remove(double threshold, AlertRule rule) {
+        for (int i = upperBound(Math.nextDown(threshold)); i < size && thresholds[i] == threshold; i++) {
+            if (rules[i] == rule) {
+                System.arraycopy(thresholds, i + 1, thresholds, i, size - i - 1);
+                System.arraycopy(rules, i + 1, rules, i, size - i - 1);
+                rules[--size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Правила с порогом в (previous, current] — те, чей порог значение только что достигло, идя вверх.
+     */
+    void crossed(double previous, double current, Consumer<AlertRule> action) {
+        if (!(current > previous)) {
+            return;
+        }
+        for (int i = upperBound(previous); i < size && thresholds[i] <= current; i++) {
+            action.accept(rules[i]);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    // первый индекс с порогом больше value
+    private int upperBound(double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,279 @@
+package com.nesterrovv.currencyexchange.cluster;
+
+import com.nesterrovv.currencyexchange.model.CurrencyData;
+import com.nesterrovv.currencyexchange.model.ExecutionReport;
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Кадры между узлами кластера: length:4 и тело, big-endian. Номер инструмента — номер
+ * в реестре узла-владельца.
+ *
+ * <pre>
+ * от узла-владельца:
+ * INSTRUMENT : type:1 id:1 price:8 symbol:str model:str
+ * REMOVED    : type:1 id:1
+ * TICK       : type:1 id:1 timestamp:8 price:8 change:8
+ * TRADE      : type:1 id:1 timestamp:8 price:8 volume:8
+ * STATS      : type:1 id:1 lastPrice:8, затем за день, минуту и час: high:8 low:8 volume:8 vwap:8 count:8
+ * BOOK       : type:1 id:1 bids:4 (price:8 volume:8)* asks:4 (price:8 volume:8)*
+ * ORDER_ID   : type:1 id:1 requestId:8 orderId:8
+ * EXECUTION  : type:1 id:1 orderId:8 replacedBy:8 timestamp:8 side:1 price:8 volume:8
+ *              lastPrice:8 lastVolume:8 filled:8 remaining:8 user:str status:str
+ *
+ * к узлу-владельцу:
+ * ORDER      : type:1 id:1 requestId:8 side:1 volume:8 hasPrice:1 price:8 user:str
+ * CANCEL     : type:1 id:1 orderId:8 user:str
+ * REPLACE    : type:1 id:1 requestId:8 orderId:8 side:1 volume:8 hasPrice:1 price:8 user:str
+ * </pre>
+ * Цены и объёмы идут как double без пересчёта, так что шлюз отдаёт клиентам ровно то же,
+ * что и узел. Строки — length:2 и UTF-8. Номера заявок выдаёт узел-владелец и возвращает
+ * в ORDER_ID с номером запроса шлюза; side в EXECUTION: 0 — нет, 1 — BUY, 2 — SELL.
+ */
+public final class ClusterCodec {
+
+    public static final byte INSTRUMENT = 1;
+    public static final byte REMOVED = 2;
+    public static final byte TICK = 3;
+    public static final byte TRADE = 4;
+    public static final byte STATS = 5;
+    public static final byte BOOK = 6;
+    public static final byte ORDER_ID = 7;
+    public static final byte EXECUTION = 8;
+    public static final byte ORDER = 32;
+    public static final byte CANCEL = 33;
+    public static final byte REPLACE = 34;
+
+    private static final int LENGTH_SIZE = 4;
+    private static final int HEADER_SIZE = 2;
+    private static final int MAX_FRAME = 1 << 20;
+
+    private ClusterCodec() {
+    }
+
+    /**
+     * Декодер, нарезающий входящий поток на тела кадров; ставится в каждое соединение.
+     */
+    public static LengthFieldBasedFrameDecoder frameDecoder() {
+        return new LengthFieldBasedFrameDecoder(MAX_FRAME, 0, LENGTH_SIZE, 0, LENGTH_SIZE);
+    }
+
+    public static byte[] instrument(Instrument instrument) {
+        byte[] symbol = instrument.getSymbol().getBytes(StandardCharsets.UTF_8);
+        byte[] model = instrument.getModelName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(8 + 2 + symbol.length + 2 + model.length, INSTRUMENT, instrument.getId())
+                .putDouble(instrument.getBasePrice());
+        putString(frame, symbol);
+        putString(frame, model);
+        return frame.array();
+    }
+
+    public static byte[] removed(int id) {
+        return frame(0, REMOVED, id).array();
+    }
+
+    public static byte[] tick(int id, CurrencyData data) {
+        return frame(24, TICK, id)
+                .putLong(data.getTimestamp())
+                .putDouble(data.getPrice())
+                .putDouble(data.getChange())
+                .array();
+    }
+
+    public static byte[] trade(int id, TradeEvent trade) {
+        return frame(24, TRADE, id)
+                .putLong(trade.getTimestamp())
+                .putDouble(trade.getPrice())
+                .putDouble(trade.getVolume())
+                .array();
+    }
+
+    public static byte[] stats(int id, StatsData stats) {
+        return frame(8 + 3 * 40, STATS, id)
+                .putDouble(stats.getLastPrice())
+                .putDouble(stats.getDayHigh())
+                .putDouble(stats.getDayLow())
+                .putDouble(stats.getDayVolume())
+                .putDouble(stats.getDayVwap())
+                .putLong(stats.getDayTradeCount())
+                .putDouble(stats.getMinuteHigh())
+                .putDouble(stats.getMinuteLow())
+                .putDouble(stats.getMinuteVolume())
+                .putDouble(stats.getMinuteVwap())
+                .putLong(stats.getMinuteTradeCount())
+                .putDouble(stats.getHourHigh())
+                .putDouble(stats.getHourLow())
+                .putDouble(stats.getHourVolume())
+                .putDouble(stats.getHourVwap())
+                .putLong(stats.getHourTradeCount())
+                .array();
+    }
+
+    public static byte[] book(int id, OrderBook book) {
+        ByteBuffer frame = frame(8 + 16 * (book.getBids().size() + book.getAsks().size()), BOOK, id);
+        putLevels(frame, book.getBids());
+        putLevels(frame, book.getAsks());
+        return frame.array();
+    }
+
+    public static byte[] order(int id, long requestId, UserOrder order) {
+        byte[] user = order.getUser().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(8 + 18 + 2 + user.length, ORDER, id)
+                .putLong(requestId);
+        putOrder(frame, order, user);
+        return frame.array();
+    }
+
+    public static byte[] cancel(int id, long orderId, String user) {
+        byte[] userBytes = user.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(8 + 2 + userBytes.length, CANCEL, id)
+                .putLong(orderId);
+        putString(frame, userBytes);
+        return frame.array();
+    }
+
+    /**
+     * Сторона в кадре не используется: новая заявка встаёт на сторону заменяемой.
+     */
+    public static byte[] replace(int id, long requestId, long orderId, UserOrder order, String user) {
+        byte[] userBytes = user.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(16 + 18 + 2 + userBytes.length, REPLACE, id)
+                .putLong(requestId)
+                .putLong(orderId);
+        putOrder(frame, order, userBytes);
+        return frame.array();
+    }
+
+    public static byte[] orderId(int id, long requestId, long orderId) {
+        return frame(16, ORDER_ID, id)
+                .putLong(requestId)
+                .putLong(orderId)
+                .array();
+    }
+
+    public static byte[] execution(int id, ExecutionReport report) {
+        byte[] user = report.getUser().getBytes(StandardCharsets.UTF_8);
+        byte[] status = report.getStatus().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = frame(24 + 1 + 48 + 2 + user.length + 2 + status.length, EXECUTION, id)
+                .putLong(report.getOrderId())
+                .putLong(report.getReplacedBy())
+                .putLong(report.getTimestamp())
+                .put(report.getSide() == null ? (byte) 0 : "BUY".equals(report.getSide()) ? (byte) 1 : (byte) 2)
+                .putDouble(report.getPrice())
+                .putDouble(report.getVolume())
+                .putDouble(report.getLastPrice())
+                .putDouble(report.getLastVolume())
+                .putDouble(report.getFilledVolume())
+                .putDouble(report.getRemainingVolume());
+        putString(frame, user);
+        putString(frame, status);
+        return frame.array();
+    }
+
+    // чтение: тело кадра уже без длины, тип и номер прочитаны вызывающим
+
+    public static CurrencyData readTick(ByteBuffer frame, String symbol) {
+        long timestamp = frame.getLong();
+        double price = frame.getDouble();
+        double change = frame.getDouble();
+        return new CurrencyData(symbol, price, timestamp, change);
+    }
+
+    public static TradeEvent readTrade(ByteBuffer frame, String symbol) {
+        long timestamp = frame.getLong();
+        double price = frame.getDouble();
+        double volume = frame.getDouble();
+        return new TradeEvent(symbol, price, volume, timestamp);
+    }
+
+    public static StatsData readStats(ByteBuffer frame, String symbol) {
+        return new StatsData(symbol, frame.getDouble(),
+                frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getLong(),
+                frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getLong(),
+                frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getLong());
+    }
+
+    public static OrderBook readBook(ByteBuffer frame, String symbol) {
+        List<OrderBook.Order> bids = readLevels(frame);
+        List<OrderBook.Order> asks = readLevels(frame);
+        return new OrderBook(symbol, bids, asks);
+    }
+
+    /**
+     * Заявка из ORDER или REPLACE; номера запроса и заявки прочитаны вызывающим.
+     */
+    public static UserOrder readOrder(ByteBuffer frame, String symbol) {
+        String side = frame.get() == 1 ? "SELL" : "BUY";
+        double volume = frame.getDouble();
+        boolean hasPrice = frame.get() == 1;
+        double price = frame.getDouble();
+        return new UserOrder(side, symbol, volume, hasPrice ? price : null, readString(frame));
+    }
+
+    public static ExecutionReport readExecution(ByteBuffer frame, String symbol) {
+        long orderId = frame.getLong();
+        long replacedBy = frame.getLong();
+        long timestamp = frame.getLong();
+        byte side = frame.get();
+        double price = frame.getDouble();
+        double volume = frame.getDouble();
+        double lastPrice = frame.getDouble();
+        double lastVolume = frame.getDouble();
+        double filled = frame.getDouble();
+        double remaining = frame.getDouble();
+        String user = readString(frame);
+        String status = readString(frame);
+        return new ExecutionReport(orderId, user, symbol, side == 0 ? null : side == 1 ? "BUY" : "SELL",
+                price, volume, lastPrice, lastVolume, filled, remaining, status, replacedBy, timestamp);
+    }
+
+    public static String readString(ByteBuffer frame) {
+        byte[] bytes = new byte[frame.getShort() & 0xFFFF];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer frame(int payloadSize, byte type, int id) {
+        return ByteBuffer.allocate(LENGTH_SIZE + HEADER_SIZE + payloadSize)
+                .putInt(HEADER_SIZE + payloadSize)
+                .put(type)
+                .put((byte) id);
+    }
+
+    private static void putOrder(ByteBuffer frame, UserOrder order, byte[] user) {
+        frame.put("BUY".equalsIgnoreCase(order.getSide()) ? (byte) 0 : (byte) 1)
+                .putDouble(order.getVolume())
+                .put(order.getUserPrice() != null ? (byte) 1 : (byte) 0)
+                .putDouble(order.getUserPrice() != null ? order.getUserPrice() : 0);
+        putString(frame, user);
+    }
+
+    private static void putString(ByteBuffer frame, byte[] bytes) {
+        frame.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static void putLevels(ByteBuffer frame, List<OrderBook.Order> levels) {
+        frame.putInt(levels.size());
+        for (OrderBook.Order level : levels) {
+            frame.putDouble(level.getPrice()).putDouble(level.getVolume());
+        }
+    }
+
+    private static List<OrderBook.Order> readLevels(ByteBuffer frame) {
+        int count = frame.getInt();
+        List<OrderBook.Order> levels = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            levels.add(new OrderBook.Order(frame.getDouble(), frame.getDouble()));
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,7 @@
+package com.nesterrovv.currencyexchange.cluster;
+
+/**
+ * Закодированный кадр для другого узла; тип и номер нужны политикам буферизации.
+ */
+record ClusterFrame(byte type, int instrument, byte[] bytes) {
+}
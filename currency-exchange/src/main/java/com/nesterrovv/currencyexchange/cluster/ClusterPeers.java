@@ -0,0 +1,246 @@
+package com.nesterrovv.currencyexchange.cluster;
+
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import com.nesterrovv.currencyexchange.service.InstrumentRegistry;
+import com.nesterrovv.currencyexchange.service.OrderRoute;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.Connection;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.tcp.TcpClient;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Подключения к другим узлам кластера. Инструменты узла регистрируются здесь как удалённые:
+ * их события и отчёты об исполнении попадают в общие потоки этого узла (SSE, WebSocket, свечи),
+ * а заявки, снятия и замены по ним уходят узлу-владельцу. При разрыве инструменты узла
+ * убираются, ожидающие номера заявок запросы завершаются ошибкой, соединение
+ * восстанавливается с заданным интервалом. Запрос, на который узел не ответил за
+ * {@code request-timeout-ms}, тоже завершается ошибкой.
+ */
+@Slf4j
+@Component
+public class ClusterPeers {
+
+    private final ClusterProperties properties;
+    private final CurrencyService currencyService;
+    private final Disposable.Composite connections = Disposables.composite();
+
+    public ClusterPeers(ClusterProperties properties, CurrencyService currencyService) {
+        this.properties = properties;
+        this.currencyService = currencyService;
+    }
+
+    @PostConstruct
+    void connect() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Duration reconnectInterval = Duration.ofMillis(properties.getReconnectIntervalMs());
+        for (String peer : properties.getPeers()) {
+            int colon = peer.lastIndexOf(':');
+            String host = peer.substring(0, colon);
+            int port = Integer.parseInt(peer.substring(colon + 1));
+            connections.add(Mono.defer(() -> session(peer, host, port))
+                    .onErrorResume(e -> {
+                        log.warn("Cluster peer {} unavailable: {}", peer, e.toString());
+                        return Mono.empty();
+                    })
+                    .then(Mono.delay(reconnectInterval))
+                    .repeat()
+                    .subscribe());
+        }
+    }
+
+    @PreDestroy
+    void disconnect() {
+        connections.dispose();
+    }
+
+    private Mono<Void> session(String peer, String host, int port) {
+        return TcpClient.create()
+                .host(host)
+                .port(port)
+                .doOnConnected(connection -> connection.addHandlerLast(ClusterCodec.frameDecoder()))
+                .handle((inbound, outbound) -> new PeerSession(peer).run(inbound, outbound))
+                .connect()
+                .flatMap(Connection::onDispose);
+    }
+
+    /**
+     * Одно соединение с узлом: его номера инструментов в наши, очередь заявок к нему
+     * и запросы, ждущие номера заявки. Входящие кадры обрабатывает один поток соединения.
+     */
+    private final class PeerSession {
+
+        private final String peer;
+        private final Instrument[] instruments = new Instrument[InstrumentRegistry.MAX_INSTRUMENTS];
+        // заявки приходят из многих потоков, отправляются по очереди
+        private final Sinks.Many<byte[]> orders = Sinks.many().unicast().onBackpressureBuffer();
+        private final Map<Long, CompletableFuture<Long>> pending = new ConcurrentHashMap<>();
+        private final AtomicLong requestIds = new AtomicLong();
+        private volatile boolean closed;
+
+        PeerSession(String peer) {
+            this.peer = peer;
+        }
+
+        Mono<Void> run(NettyInbound inbound, NettyOutbound outbound) {
+            log.info("Connected to cluster peer {}", peer);
+            Mono<Void> events = inbound.receive()
+                    .asByteArray()
+                    .doOnNext(bytes -> onFrame(ByteBuffer.wrap(bytes)))
+                    .then()
+                    .doFinally(signal -> close());
+            return outbound.sendByteArray(orders.asFlux().takeUntilOther(events)).then();
+        }
+
+        private void onFrame(ByteBuffer frame) {
+            byte type = frame.get();
+            int id = frame.get() & 0xFF;
+            Instrument instrument = instruments[id];
+            switch (type) {
+                case ClusterCodec.INSTRUMENT -> {
+                    double price = frame.getDouble();
+                    String symbol = ClusterCodec.readString(frame);
+                    String model = ClusterCodec.readString(frame);
+                    try {
+                        instruments[id] = currencyService.addRemoteInstrument(symbol, price, model, new Route(id));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Instrument {} of cluster peer {} ignored: {}", symbol, peer, e.getMessage());
+                    }
+                }
+                case ClusterCodec.REMOVED -> {
+                    instruments[id] = null;
+                    if (instrument != null) {
+                        currencyService.removeRemoteInstrument(instrument);
+                    }
+                }
+                case ClusterCodec.TICK -> {
+                    if (instrument != null) {
+                        currencyService.publishRemote(instrument, ClusterCodec.readTick(frame, instrument.getSymbol()));
+                    }
+                }
+                case ClusterCodec.TRADE -> {
+                    if (instrument != null) {
+                        currencyService.publishRemote(instrument, ClusterCodec.readTrade(frame, instrument.getSymbol()));
+                    }
+                }
+                case ClusterCodec.STATS -> {
+                    if (instrument != null) {
+                        currencyService.publishRemote(instrument, ClusterCodec.readStats(frame, instrument.getSymbol()));
+                    }
+                }
+                case ClusterCodec.BOOK -> {
+                    if (instrument != null) {
+                        currencyService.publishRemote(instrument, ClusterCodec.readBook(frame, instrument.getSymbol()));
+                    }
+                }
+                case ClusterCodec.EXECUTION -> {
+                    if (instrument != null) {
+                        currencyService.publishRemote(instrument,
+                                ClusterCodec.readExecution(frame, instrument.getSymbol()));
+                    }
+                }
+                case ClusterCodec.ORDER_ID -> {
+                    CompletableFuture<Long> request = pending.remove(frame.getLong());
+                    if (request != null) {
+                        request.complete(frame.getLong());
+                    }
+                }
+                default -> {
+                    // неизвестные кадры пропускаем
+                }
+            }
+        }
+
+        private void send(byte[] frame) {
+            // после разрыва кадр отбрасывается, как и заявка по неизвестной валюте
+            orders.emitNext(frame, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+        }
+
+        private CompletableFuture<Long> request(LongFunction<byte[]> frame) {
+            long requestId = requestIds.incrementAndGet();
+            CompletableFuture<Long> result = new CompletableFuture<>();
+            pending.put(requestId, result);
+            // запрос, зарегистрированный после разрыва, завершается здесь, до него — в close()
+            if (closed) {
+                pending.remove(requestId);
+                result.completeExceptionally(disconnected());
+            } else {
+                send(frame.apply(requestId));
+            }
+            return result.orTimeout(properties.getRequestTimeoutMs(), TimeUnit.MILLISECONDS)
+                    .exceptionallyCompose(error -> {
+                        pending.remove(requestId);
+                        return CompletableFuture.failedFuture(error instanceof TimeoutException
+                                ? new IllegalStateException("Cluster peer " + peer + " did not answer in "
+                                + properties.getRequestTimeoutMs() + " ms")
+                                : error);
+                    });
+        }
+
+        private IllegalStateException disconnected() {
+            return new IllegalStateException("Cluster peer " + peer + " disconnected");
+        }
+
+        private void close() {
+            log.info("Disconnected from cluster peer {}", peer);
+            closed = true;
+            orders.tryEmitComplete();
+            pending.values().forEach(request -> request.completeExceptionally(disconnected()));
+            pending.clear();
+            for (int id = 0; id < instruments.length; id++) {
+                if (instruments[id] != null) {
+                    currencyService.removeRemoteInstrument(instruments[id]);
+                    instruments[id] = null;
+                }
+            }
+        }
+
+        /**
+         * Маршрут заявок одного инструмента узла; {@code id} — номер в реестре узла.
+         */
+        private final class Route implements OrderRoute {
+
+            private final int id;
+
+            Route(int id) {
+                this.id = id;
+            }
+
+            @Override
+            public CompletableFuture<Long> send(UserOrder order) {
+                return request(requestId -> ClusterCodec.order(id, requestId, order));
+            }
+
+            @Override
+            public void cancel(long orderId, String user) {
+                PeerSession.this.send(ClusterCodec.cancel(id, orderId, user));
+            }
+
+            @Override
+            public CompletableFuture<Long> replace(long orderId, UserOrder order, String user) {
+                return request(requestId -> ClusterCodec.replace(id, requestId, orderId, order, user));
+            }
+        }
+    }
+}
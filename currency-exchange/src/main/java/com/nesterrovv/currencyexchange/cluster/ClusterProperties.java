@@ -0,0 +1,48 @@
+package com.nesterrovv.currencyexchange.cluster;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки кластера: какие инструменты из exchange.generator.instruments принадлежат
+ * этому узлу, на каком порту он отдаёт их другим узлам и к каким узлам подключается сам.
+ * Узел без своих инструментов, подключённый ко всем остальным, работает как шлюз.
+ */
+@Data
+@ConfigurationProperties(prefix = "exchange.cluster")
+public class ClusterProperties {
+
+    /**
+     * Без кластера все инструменты из настроек свои, соединений между узлами нет.
+     */
+    private boolean enabled;
+
+    /**
+     * TCP-порт, на котором узел публикует свои инструменты и принимает для них заявки.
+     */
+    private int port = 7070;
+
+    /**
+     * Символы инструментов, чьи стаканы и журнал ведёт этот узел.
+     */
+    private List<String> ownedInstruments = new ArrayList<>();
+
+    /**
+     * Узлы, чьи инструменты видны через этот узел, в виде host:port.
+     */
+    private List<String> peers = new ArrayList<>();
+
+    private long reconnectIntervalMs = 1000;
+
+    /**
+     * Сколько шлюз ждёт номер заявки от узла-владельца, прежде чем ответить ошибкой.
+     */
+    private long requestTimeoutMs = 5000;
+
+    public boolean owns(String symbol) {
+        return !enabled || ownedInstruments.contains(symbol);
+    }
+}
@@ -0,0 +1,190 @@
+package com.nesterrovv.currencyexchange.cluster;
+
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import com.nesterrovv.currencyexchange.service.InstrumentRegistry;
+import com.nesterrovv.currencyexchange.stream.SubscriberPolicies;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.tcp.TcpServer;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Публикует инструменты этого узла другим узлам кластера по TCP и принимает от них заявки,
+ * снятия и замены. Каждое соединение сначала получает объявления всех своих инструментов,
+ * затем их события. Тики, статистика и стаканы склеиваются до последнего значения; объявления,
+ * сделки и отчёты об исполнении не теряются — отставшее соединение рвётся, и узел-подписчик
+ * переподключается заново. Номера принятых заявок уходят ответами ORDER_ID вне этих политик.
+ */
+@Slf4j
+@Component
+public class ClusterServer {
+
+    private final ClusterProperties properties;
+    private final CurrencyService currencyService;
+    private final SubscriberPolicies policies;
+    private DisposableServer server;
+
+    public ClusterServer(ClusterProperties properties, CurrencyService currencyService,
+                         SubscriberPolicies policies) {
+        this.properties = properties;
+        this.currencyService = currencyService;
+        this.policies = policies;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        server = TcpServer.create()
+                .port(properties.getPort())
+                .doOnConnection(connection -> connection.addHandlerLast(ClusterCodec.frameDecoder()))
+                .handle(this::serve)
+                .bindNow();
+        log.info("Cluster node publishes {} on port {}", properties.getOwnedInstruments(), server.port());
+    }
+
+    @PreDestroy
+    void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Mono<Void> serve(NettyInbound inbound, NettyOutbound outbound) {
+        // ответы на заявки этого соединения; их столько же, сколько запросов от узла
+        Sinks.Many<byte[]> replies = Sinks.many().unicast().onBackpressureBuffer();
+        Mono<Void> orders = inbound.receive()
+                .asByteArray()
+                .doOnNext(bytes -> onRequest(ByteBuffer.wrap(bytes), replies))
+                .then();
+
+        InstrumentRegistry instruments = currencyService.getInstruments();
+        Flux<ClusterFrame> frames = Flux.merge(
+                instruments.added()
+                        .filter(instrument -> !instrument.isRemote())
+                        .flatMap(ClusterServer::frames, InstrumentRegistry.MAX_INSTRUMENTS),
+                currencyService.getOrderBookFlux()
+                        .mapNotNull(book -> bookFrame(instruments.get(book.getCurrency()), book)));
+        Flux<byte[]> out = frames
+                .publish(shared -> Flux.merge(
+                        policies.conflateLatest("cluster-market", shared.filter(ClusterServer::conflatable),
+                                frame -> frame.type() << 8 | frame.instrument()),
+                        policies.disconnectWhenBehind("cluster-events", shared.filter(frame -> !conflatable(frame)))))
+                .map(ClusterFrame::bytes);
+        // подписчик отключился — прекращаем и отправку
+        return outbound.sendByteArray(Flux.merge(out, replies.asFlux()).takeUntilOther(orders)).then();
+    }
+
+    private static Flux<ClusterFrame> frames(Instrument instrument) {
+        int id = instrument.getId();
+        return Flux.merge(
+                        instrument.getTickFlux().map(data ->
+                                new ClusterFrame(ClusterCodec.TICK, id, ClusterCodec.tick(id, data))),
+                        instrument.getTradeFlux().map(trade ->
+                                new ClusterFrame(ClusterCodec.TRADE, id, ClusterCodec.trade(id, trade))),
+                        instrument.getStatsFlux().map(stats ->
+                                new ClusterFrame(ClusterCodec.STATS, id, ClusterCodec.stats(id, stats))),
+                        instrument.getReportFlux().map(report ->
+                                new ClusterFrame(ClusterCodec.EXECUTION, id, ClusterCodec.execution(id, report))))
+                .startWith(new ClusterFrame(ClusterCodec.INSTRUMENT, id, ClusterCodec.instrument(instrument)))
+                // потоки инструмента завершаются при его удалении
+                .concatWith(Mono.fromSupplier(() ->
+                        new ClusterFrame(ClusterCodec.REMOVED, id, ClusterCodec.removed(id))));
+    }
+
+    private static ClusterFrame bookFrame(Instrument instrument, OrderBook book) {
+        if (instrument == null || instrument.isRemote()) {
+            return null;
+        }
+        return new ClusterFrame(ClusterCodec.BOOK, instrument.getId(), ClusterCodec.book(instrument.getId(), book));
+    }
+
+    private static boolean conflatable(ClusterFrame frame) {
+        return frame.type() == ClusterCodec.TICK || frame.type() == ClusterCodec.STATS
+                || frame.type() == ClusterCodec.BOOK;
+    }
+
+    private void onRequest(ByteBuffer frame, Sinks.Many<byte[]> replies) {
+        byte type = frame.get();
+        int id = frame.get() & 0xFF;
+        Instrument instrument = currencyService.getInstruments().get(id);
+        boolean local = instrument != null && !instrument.isRemote();
+        switch (type) {
+            case ClusterCodec.ORDER -> {
+                long requestId = frame.getLong();
+                if (!local) {
+                    reply(replies, id, requestId, 0);
+                    return;
+                }
+                reply(replies, id, requestId, () ->
+                        currencyService.addUserOrder(id, ClusterCodec.readOrder(frame, instrument.getSymbol())));
+            }
+            case ClusterCodec.CANCEL -> {
+                long orderId = frame.getLong();
+                if (local) {
+                    try {
+                        currencyService.cancelOrder(instrument.getSymbol(), orderId, ClusterCodec.readString(frame));
+                    } catch (IllegalStateException e) {
+                        // очередь заполнена: снятие теряется, как и при разрыве связи, соединение живёт дальше
+                        log.warn("Cancel of order {} dropped: {}", orderId, e.getMessage());
+                    }
+                }
+            }
+            case ClusterCodec.REPLACE -> {
+                long requestId = frame.getLong();
+                long orderId = frame.getLong();
+                if (!local) {
+                    reply(replies, id, requestId, 0);
+                    return;
+                }
+                UserOrder order = ClusterCodec.readOrder(frame, instrument.getSymbol());
+                reply(replies, id, requestId, () ->
+                        currencyService.replaceOrder(instrument.getSymbol(), orderId, order, order.getUser()));
+            }
+            default -> {
+                // неизвестные кадры пропускаем
+            }
+        }
+    }
+
+    /**
+     * Отвечает номером принятой заявки; на отклонённую (заполнена очередь, неверные данные) —
+     * нулём, как на неизвестный инструмент: узел-шлюз не должен ждать ответа, которого не будет.
+     */
+    private void reply(Sinks.Many<byte[]> replies, int id, long requestId,
+                       Supplier<CompletableFuture<Long>> request) {
+        CompletableFuture<Long> result;
+        try {
+            result = request.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((orderId, error) -> {
+            if (error != null) {
+                log.debug("Cluster request {} rejected: {}", requestId, error.getMessage());
+            }
+            reply(replies, id, requestId, error == null ? orderId : 0);
+        });
+    }
+
+    private static void reply(Sinks.Many<byte[]> replies, int id, long requestId, long orderId) {
+        replies.emitNext(ClusterCodec.orderId(id, requestId, orderId),
+                Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+}
@@ -0,0 +1,10 @@
+package com.nesterrovv.currencyexchange.config;
+
+import com.nesterrovv.currencyexchange.cluster.ClusterProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ClusterProperties.class)
+public class ClusterConfig {
+}
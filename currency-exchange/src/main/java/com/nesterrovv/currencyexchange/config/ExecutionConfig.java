@@ -0,0 +1,45 @@
+package com.nesterrovv.currencyexchange.config;
+
+import com.nesterrovv.currencyexchange.cluster.ClusterProperties;
+import com.nesterrovv.currencyexchange.execution.EventLoopWatchdog;
+import com.nesterrovv.currencyexchange.execution.ExecutionProperties;
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.util.concurrent.EventExecutorGroup;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpResources;
+import reactor.netty.tcp.TcpResources;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+public class ExecutionConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ExecutionSchedulers executionSchedulers(ExecutionProperties properties) {
+        return new ExecutionSchedulers(properties);
+    }
+
+    /**
+     * Следит за циклами HTTP-сервера и, в кластере, за циклами соединений между узлами.
+     */
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "exchange.execution.watchdog-enabled", matchIfMissing = true)
+    public EventLoopWatchdog eventLoopWatchdog(ExecutionProperties properties, ClusterProperties clusterProperties,
+                                               MeterRegistry meterRegistry) {
+        List<EventExecutorGroup> groups = new ArrayList<>();
+        groups.add(HttpResources.get().onServer(true));
+        if (clusterProperties.isEnabled()) {
+            // сервер и клиенты кластера делят одни циклы TcpResources
+            groups.add(TcpResources.get().onServer(true));
+        }
+        return new EventLoopWatchdog(groups, Duration.ofMillis(properties.getWatchdogIntervalMs()),
+                Duration.ofMillis(properties.getWatchdogThresholdMs()), meterRegistry);
+    }
+}
@@ -0,0 +1,10 @@
+package com.nesterrovv.currencyexchange.config;
+
+import com.nesterrovv.currencyexchange.generator.GeneratorProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(GeneratorProperties.class)
+public class GeneratorConfig {
+}
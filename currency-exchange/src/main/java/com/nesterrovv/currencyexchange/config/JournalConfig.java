@@ -0,0 +1,26 @@
+package com.nesterrovv.currencyexchange.config;
+
+import com.nesterrovv.currencyexchange.journal.Journal;
+import com.nesterrovv.currencyexchange.journal.MappedFileJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class JournalConfig {
+
+    @Bean(destroyMethod = "close")
+    public Journal journal(@Value("${exchange.journal.enabled:true}") boolean enabled,
+                           @Value("${exchange.journal.dir:data/journal}") String directory,
+                           @Value("${exchange.journal.records-per-segment:1048576}") int recordsPerSegment,
+                           @Value("${exchange.journal.flush-interval-ms:2}") long flushIntervalMs) {
+        if (!enabled) {
+            return Journal.NONE;
+        }
+        return new MappedFileJournal(Path.of(directory), recordsPerSegment, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.nesterrovv.currencyexchange.config;
+
+import com.nesterrovv.currencyexchange.snapshot.FileSnapshotStore;
+import com.nesterrovv.currencyexchange.snapshot.SnapshotStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class SnapshotConfig {
+
+    @Bean
+    public SnapshotStore snapshotStore(@Value("${exchange.snapshot.enabled:true}") boolean enabled,
+                                       @Value("${exchange.snapshot.dir:data/snapshot}") String directory) {
+        if (!enabled) {
+            return SnapshotStore.NONE;
+        }
+        return new FileSnapshotStore(Path.of(directory));
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.nesterrovv.currencyexchange.config;
+
+import com.nesterrovv.currencyexchange.websocket.MarketDataWebSocketHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.reactive.handler.SimpleUrlHandlerMapping;
+
+import java.util.Map;
+
+@Configuration
+public class WebSocketConfig {
+
+    @Bean
+    public HandlerMapping marketDataWebSocketMapping(MarketDataWebSocketHandler handler) {
+        // приоритет выше, чем у аннотированных контроллеров
+        return new SimpleUrlHandlerMapping(Map.of("/api/ws/market", handler), -1);
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.nesterrovv.currencyexchange.controller;
+
+import com.nesterrovv.currencyexchange.alert.AlertService;
+import com.nesterrovv.currencyexchange.model.AlertNotification;
+import com.nesterrovv.currencyexchange.model.AlertRule;
+import com.nesterrovv.currencyexchange.stream.SubscriberPolicies;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Правила оповещений пользователя и поток их срабатываний.
+ */
+@RestController
+@RequestMapping("/api/alerts")
+public class AlertController {
+
+    private final AlertService alertService;
+    private final SubscriberPolicies policies;
+
+    public AlertController(AlertService alertService, SubscriberPolicies policies) {
+        this.alertService = alertService;
+        this.policies = policies;
+    }
+
+    @GetMapping
+    public List<AlertRule> rules(@RequestParam String user) {
+        return alertService.getRules(user);
+    }
+
+    @PostMapping
+    public Mono<AlertRule> addRule(@RequestBody AlertRule rule) {
+        return Mono.fromSupplier(() -> alertService.addRule(rule))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<Void> removeRule(@PathVariable long id, @RequestParam String user) {
+        return alertService.removeRule(id, user) ? Mono.empty() : Mono.error(
+                new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown alert: " + id));
+    }
+
+    /**
+     * Срабатывания правил пользователя. Как и в потоке исполнений, оповещения не пропускаются
+     * молча: отставший подписчик отключается.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<AlertNotification> stream(@RequestParam String user) {
+        return policies.disconnectWhenBehind("alerts", alertService.subscribe(user));
+    }
+}
@@ -1,46 +1,234 @@
 package com.nesterrovv.currencyexchange.controller;
 
+import com.nesterrovv.currencyexchange.generator.GeneratorProperties;
 import com.nesterrovv.currencyexchange.model.*;
+import com.nesterrovv.currencyexchange.service.CandleService;
 import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import com.nesterrovv.currencyexchange.service.OrderBookDeltaService;
+import com.nesterrovv.currencyexchange.stream.EncodedEvent;
+import com.nesterrovv.currencyexchange.stream.EncodedStreams;
+import com.nesterrovv.currencyexchange.stream.StreamRate;
+import com.nesterrovv.currencyexchange.stream.SubscriberPolicies;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 @RestController
 @RequestMapping("/api")
 public class CurrencyController {
 
+    // пачка уходит в сопоставление, набрав ORDER_BATCH_SIZE заявок или через ORDER_BATCH_LINGER
+    private static final int ORDER_BATCH_SIZE = 1024;
+    private static final Duration ORDER_BATCH_LINGER = Duration.ofMillis(1);
+
     private final CurrencyService currencyService;
+    private final OrderBookDeltaService orderBookDeltaService;
+    private final EncodedStreams encodedStreams;
+    private final CandleService candleService;
+    private final SubscriberPolicies policies;
 
-    public CurrencyController(CurrencyService currencyService) {
+    public CurrencyController(CurrencyService currencyService,
+                              OrderBookDeltaService orderBookDeltaService,
+                              EncodedStreams encodedStreams,
+                              CandleService candleService,
+                              SubscriberPolicies policies) {
         this.currencyService = currencyService;
+        this.orderBookDeltaService = orderBookDeltaService;
+        this.encodedStreams = encodedStreams;
+        this.candleService = candleService;
+        this.policies = policies;
     }
 
+    // потоки ниже отдают заранее сериализованные события (см. EncodedStreams);
+    // у каждого подписчика свой ограниченный буфер с политикой, подходящей потоку
+
+    /**
+     * Тики с выбранной частотой: raw — каждый тик, 100ms и 1s — последняя цена каждой валюты за период.
+     */
     @GetMapping(value = "/currency", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<CurrencyData> streamCurrency() {
-        return currencyService.getCurrencyFlux();
+    public Mono<Void> streamCurrency(@RequestParam(defaultValue = "raw") String rate, ServerHttpResponse response) {
+        return streamRate(rate).flatMap(streamRate -> {
+            String stream = streamRate.streamName("currency");
+            return encodedStreams.write(response, stream, policies.conflateLatest(stream,
+                    encodedStreams.currency(streamRate), EncodedEvent::currency));
+        });
     }
 
     @GetMapping(value = "/orderbook", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<OrderBook> streamOrderBook() {
-        return currencyService.getOrderBookFlux();
+    public Mono<Void> streamOrderBook(@RequestParam(defaultValue = "USD") String currency,
+                                      ServerHttpResponse response) {
+        Flux<EncodedEvent> events = encodedStreams.orderBook()
+                .filter(event -> event.currency().equals(currency));
+        return encodedStreams.write(response, "orderbook",
+                policies.conflateLatest("orderbook", events, EncodedEvent::currency));
+    }
+
+    @GetMapping(value = "/orderbook/delta", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<OrderBookUpdate> streamOrderBookDelta(@RequestParam(defaultValue = "USD") String currency) {
+        return policies.disconnectWhenBehind("orderbook-delta", orderBookDeltaService.subscribe(currency));
+    }
+
+    @GetMapping("/orderbook/snapshot")
+    public Mono<OrderBookUpdate> orderBookSnapshot(@RequestParam(defaultValue = "USD") String currency) {
+        return orderBookDeltaService.resync(currency);
     }
 
     @GetMapping(value = "/notification", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<CurrencyChangedNotification> streamCurrencyChangedNotification() {
-        return currencyService.getCurrencyChangedNotificationFlux();
+    public Mono<Void> streamCurrencyChangedNotification(ServerHttpResponse response) {
+        return encodedStreams.write(response, "notification",
+                policies.dropOldest("notification", encodedStreams.notification(),
+                        (missed, event) -> event.withGap(missed)));
     }
 
     @GetMapping(value = "/stats", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<StatsData> streamStats() {
-        return currencyService.getStatsFlux();
+    public Mono<Void> streamStats(@RequestParam(defaultValue = "raw") String rate, ServerHttpResponse response) {
+        return streamRate(rate).flatMap(streamRate -> {
+            String stream = streamRate.streamName("stats");
+            return encodedStreams.write(response, stream, policies.conflateLatest(stream,
+                    encodedStreams.stats(streamRate), EncodedEvent::currency));
+        });
     }
 
+    private static Mono<StreamRate> streamRate(String rate) {
+        return Mono.fromSupplier(() -> StreamRate.of(rate))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    /**
+     * Потери по потокам: склеенные, вытесненные события и отключённые подписчики.
+     */
+    @GetMapping("/streams/metrics")
+    public Map<String, Map<String, Long>> streamMetrics() {
+        Map<String, Map<String, Long>> result = new TreeMap<>();
+        policies.getCounters().forEach((stream, counters) -> result.put(stream, Map.of(
+                "subscribers", (long) counters.subscribers().get(),
+                "conflated", counters.conflated().sum(),
+                "dropped", counters.dropped().sum(),
+                "disconnected", counters.disconnected().sum())));
+        result.put("engine", Map.of("emitFailures", currencyService.getEmitFailures()));
+        return result;
+    }
+
+    @GetMapping("/candles")
+    public Mono<CandleSeries> candles(@RequestParam(defaultValue = "USD") String currency,
+                                      @RequestParam(defaultValue = "1m") String resolution,
+                                      @RequestParam(defaultValue = "0") long from,
+                                      @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) {
+        return Mono.fromSupplier(() -> candleService.getCandles(currency, resolution, from, to))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    /**
+     * Заявка уходит в сопоставление без ожидания; в ответ — её номер (по инструменту другого узла
+     * номер выдаёт он), ход исполнения — в {@code /executions}. Неизвестная валюта, объём меньше лота
+     * и неположительная или нечисловая цена — 400, как у снятия и замены.
+     * Заполненная очередь сопоставления — 503: поток цикла событий не ждёт, пока она разберётся.
+     */
     @PostMapping("/order")
-    public Mono<Void> placeOrder(@RequestBody UserOrder userOrder) {
-        currencyService.addUserOrder(userOrder);
-        // логика добавления — fire-and-forget
-        return Mono.empty();
+    public Mono<Map<String, Long>> placeOrder(@RequestBody UserOrder userOrder) {
+        return Mono.fromFuture(() -> currencyService.addUserOrder(userOrder))
+                .map(orderId -> Map.of("orderId", orderId))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e))
+                .onErrorMap(IllegalStateException.class,
+                        e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e));
+    }
+
+    /**
+     * Снимает заявку; результат — отчёт CANCELLED или REJECTED в {@code /executions}.
+     */
+    @DeleteMapping("/order/{orderId}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<Void> cancelOrder(@PathVariable long orderId,
+                                  @RequestParam String currency,
+                                  @RequestParam(defaultValue = UserOrder.ANONYMOUS) String user) {
+        return Mono.<Void>fromRunnable(() -> currencyService.cancelOrder(currency, orderId, user))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e))
+                .onErrorMap(IllegalStateException.class,
+                        e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e));
+    }
+
+    /**
+     * Заменяет заявку новой ценой и объёмом из тела; в ответ — номер новой заявки.
+     */
+    @PutMapping("/order/{orderId}")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public Mono<Map<String, Long>> replaceOrder(@PathVariable long orderId,
+                                                @RequestParam String currency,
+                                                @RequestParam(defaultValue = UserOrder.ANONYMOUS) String user,
+                                                @RequestBody UserOrder replacement) {
+        return Mono.fromFuture(() -> currencyService.replaceOrder(currency, orderId, replacement, user))
+                .map(replacementId -> Map.of("orderId", replacementId))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e))
+                .onErrorMap(IllegalStateException.class,
+                        e -> new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e));
+    }
+
+    /**
+     * Отчёты об исполнении заявок пользователя. Пропуск отчёта исказил бы картину исполнения,
+     * поэтому отставший подписчик отключается и переподключается сам.
+     */
+    @GetMapping(value = "/executions", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ExecutionReport> streamExecutions(@RequestParam(defaultValue = UserOrder.ANONYMOUS) String user) {
+        return policies.disconnectWhenBehind("executions", currencyService.getExecutionFlux()
+                .filter(report -> user.equals(report.getUser())));
+    }
+
+    /**
+     * Поток заявок (NDJSON или JSON-массив). Тело читается по мере поступления и режется на пачки;
+     * в ответ по строке NDJSON на каждую заявку — номер и исполнение, в порядке заявок.
+     */
+    @PostMapping(value = "/orders",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<OrderReport> placeOrders(@RequestBody Flux<UserOrder> orders) {
+        // честное обратное давление: пока пачка в работе, тело дальше не читается
+        return orders.bufferTimeout(ORDER_BATCH_SIZE, ORDER_BATCH_LINGER, true)
+                .concatMap(currencyService::addUserOrders);
+    }
+
+    @GetMapping("/instruments")
+    public List<InstrumentInfo> instruments() {
+        return currencyService.getInstruments().list().stream()
+                .map(CurrencyController::toInfo)
+                .toList();
+    }
+
+    /**
+     * Добавляет инструмент на ходу; тело — как элемент exchange.generator.instruments.
+     */
+    @PostMapping("/instruments")
+    public Mono<InstrumentInfo> addInstrument(@RequestBody GeneratorProperties.Instrument instrument) {
+        return Mono.fromSupplier(() -> toInfo(currencyService.addInstrument(instrument)))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e));
+    }
+
+    @DeleteMapping("/instruments/{symbol}")
+    public Mono<Void> removeInstrument(@PathVariable String symbol) {
+        return Mono.fromSupplier(() -> currencyService.removeInstrument(symbol))
+                .onErrorMap(IllegalArgumentException.class,
+                        e -> new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e))
+                .flatMap(removed -> removed ? Mono.<Void>empty() : Mono.error(
+                        new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown currency: " + symbol)));
+    }
+
+    private static InstrumentInfo toInfo(Instrument instrument) {
+        return new InstrumentInfo(instrument.getId(), instrument.getSymbol(), instrument.getBasePrice(),
+                instrument.getModelName());
     }
 }
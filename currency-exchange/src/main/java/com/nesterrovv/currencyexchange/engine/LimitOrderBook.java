@@ -0,0 +1,161 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import com.nesterrovv.currencyexchange.model.OrderBook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Стакан одной валюты, живущий между тиками.
+ * Цены — целые шаги цены, объёмы — целые лоты (см. {@link PriceScale}), поэтому сравнения
+ * уровней точные. Уровни хранятся в списках с пропусками по цене ({@link PriceLevels}),
+ * внутри уровня — FIFO-очередь, снятие заявки по id — за O(1) через примитивный индекс
+ * {@link OrderIndex}.
+ * Класс не потокобезопасен: изменять его должен один поток.
+ */
+public class LimitOrderBook {
+
+    private final String currency;
+    private final PriceScale scale;
+    private final PriceLevels bids = new PriceLevels(Side.BUY);
+    private final PriceLevels asks = new PriceLevels(Side.SELL);
+    private final OrderIndex orders = new OrderIndex(1024);
+
+    public LimitOrderBook(String currency, PriceScale scale) {
+        this.currency = currency;
+        this.scale = scale;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public PriceScale getScale() {
+        return scale;
+    }
+
+    /**
+     * Сопоставляет входящую заявку с противоположной стороной стакана.
+     *
+     * @return неисполненный остаток объёма в лотах
+     */
+    public long match(Side side, long limitPrice, long volume, TradeListener listener) {
+        PriceLevels opposite = side == Side.BUY ? asks : bids;
+        long remaining = volume;
+        while (remaining > 0 && !opposite.isEmpty()) {
+            PriceLevel level = opposite.best();
+            if (side == Side.BUY ? level.price > limitPrice : level.price < limitPrice) {
+                break;
+            }
+            while (remaining > 0 && level.head != null) {
+                RestingOrder maker = level.head;
+                long filled = Math.min(maker.getVolume(), remaining);
+                remaining -= filled;
+                listener.onTrade(maker, level.price, filled);
+                if (filled == maker.getVolume()) {
+                    level.unlink(maker);
+                    orders.remove(maker.getId());
+                } else {
+                    maker.reduce(filled);
+                }
+            }
+            if (level.isEmpty()) {
+                opposite.removeBest();
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Ставит заявку в хвост очереди своего ценового уровня.
+     */
+    public RestingOrder add(long orderId, Side side, long price, long volume, boolean userOrder) {
+        return append(new RestingOrder(orderId, side, price, volume, volume, userOrder, null));
+    }
+
+    /**
+     * Ставит остаток {@code volume} пользовательской заявки исходным объёмом {@code originalVolume}.
+     *
+     * @param owner пользователь, которому уходят отчёты об исполнении; null — неизвестен
+     */
+    public RestingOrder add(long orderId, Side side, long price, long volume, long originalVolume, String owner) {
+        return append(new RestingOrder(orderId, side, price, volume, originalVolume, true, owner));
+    }
+
+    private RestingOrder append(RestingOrder order) {
+        (order.getSide() == Side.BUY ? bids : asks).getOrCreate(order.getPrice()).append(order);
+        orders.put(order.getId(), order);
+        return order;
+    }
+
+    /**
+     * Снимает заявку из стакана.
+     *
+     * @return снятая заявка или null, если её уже нет в стакане
+     */
+    public RestingOrder cancel(long orderId) {
+        RestingOrder order = orders.remove(orderId);
+        if (order == null) {
+            return null;
+        }
+        PriceLevel level = order.level;
+        level.unlink(order);
+        if (level.isEmpty()) {
+            (order.getSide() == Side.BUY ? bids : asks).remove(level.price);
+        }
+        return order;
+    }
+
+    public RestingOrder get(long orderId) {
+        return orders.get(orderId);
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    /**
+     * Лучшая цена покупки в шагах цены, {@link Long#MIN_VALUE} если покупок нет.
+     */
+    public long bestBid() {
+        return bids.isEmpty() ? Long.MIN_VALUE : bids.best().price;
+    }
+
+    /**
+     * Лучшая цена продажи в шагах цены, {@link Long#MAX_VALUE} если продаж нет.
+     */
+    public long bestAsk() {
+        return asks.isEmpty() ? Long.MAX_VALUE : asks.best().price;
+    }
+
+    /**
+     * Обходит заявки стороны от лучшего уровня к худшему, внутри уровня — в порядке очереди.
+     * Добавление заявок в том же порядке восстанавливает тот же приоритет.
+     */
+    public void forEach(Side side, Consumer<RestingOrder> action) {
+        PriceLevels levels = side == Side.BUY ? bids : asks;
+        for (PriceLevel level = levels.best(); level != null; level = levels.after(level)) {
+            for (RestingOrder order = level.head; order != null; order = order.next) {
+                action.accept(order);
+            }
+        }
+    }
+
+    /**
+     * Агрегированный по уровням срез верхних {@code depth} уровней каждой стороны.
+     */
+    public OrderBook snapshot(int depth) {
+        return new OrderBook(currency, topLevels(bids, depth), topLevels(asks, depth));
+    }
+
+    private List<OrderBook.Order> topLevels(PriceLevels levels, int depth) {
+        int count = Math.min(depth, levels.size());
+        List<OrderBook.Order> result = new ArrayList<>(count);
+        PriceLevel level = levels.best();
+        for (int rank = 0; rank < count; rank++, level = levels.after(level)) {
+            result.add(new OrderBook.Order(scale.toPrice(level.price), scale.toVolume(level.totalVolume)));
+        }
+        return result;
+    }
+}
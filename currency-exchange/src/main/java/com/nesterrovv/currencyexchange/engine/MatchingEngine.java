@@ -0,0 +1,439 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Единственный поток, изменяющий стакан одной валюты. Заявки приходят через
+ * {@link OrderRingBuffer} и сопоставляются сразу по мере поступления.
+ * Исключение при обработке команды (сбой журнала, наблюдателя) не останавливает поток:
+ * команда считается отклонённой ({@link OrderListener#onFailed}), буфер продвигается дальше,
+ * иначе производители ждали бы освобождения слотов вечно.
+ * <p>
+ * {@link #stop} сначала закрывает приём: новые команды отклоняются, а уже занявшие слот
+ * производители успевают их опубликовать. Поток останавливается, только разобрав всё кольцо,
+ * так что ни одна принятая команда не теряется и ни одна пачка не остаётся без результата.
+ */
+public class MatchingEngine implements Runnable {
+
+    private static final int SPIN_TRIES = 1_000;
+    private static final long PARK_NANOS = 50_000;
+    private static final long STOP_TIMEOUT_MILLIS = 1_000;
+    // старший бит — приём закрыт, остальные — производители, занявшие слот и ещё не опубликовавшие его
+    private static final int CLOSED = Integer.MIN_VALUE;
+
+    private final LimitOrderBook book;
+    private final OrderRingBuffer ring;
+    private final TradeListener tradeListener;
+    private final OrderListener orderListener;
+    private final OrderRingBuffer.Handler handler = this::process;
+    // сделки заявки из пачки дополнительно копятся в её результатах
+    private final TradeListener batchTradeListener = this::onBatchTrade;
+    private OrderBatch currentBatch;
+    private int currentIndex;
+    private final Thread thread;
+    private final AtomicInteger gate = new AtomicInteger();
+    private volatile boolean running;
+    // пишет только поток сопоставления
+    private volatile long failures;
+
+    public MatchingEngine(LimitOrderBook book, int ringCapacity, TradeListener tradeListener) {
+        this(book, ringCapacity, tradeListener, OrderListener.NONE);
+    }
+
+    public MatchingEngine(LimitOrderBook book, int ringCapacity, TradeListener tradeListener,
+                          OrderListener orderListener) {
+        this(book, ringCapacity, tradeListener, orderListener, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param threadFactory создаёт поток сопоставления; имя потоку — matching-&lt;валюта&gt; — даёт движок
+     */
+    public MatchingEngine(LimitOrderBook book, int ringCapacity, TradeListener tradeListener,
+                          OrderListener orderListener, ThreadFactory threadFactory) {
+        this.book = book;
+        this.ring = new OrderRingBuffer(ringCapacity);
+        this.tradeListener = tradeListener;
+        this.orderListener = orderListener;
+        this.thread = threadFactory.newThread(this);
+        this.thread.setName("matching-" + book.getCurrency());
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        stop(book -> { });
+    }
+
+    /**
+     * Закрывает приём команд, дожидается производителей, уже занявших слот, выполняет {@code last}
+     * последней командой и останавливает поток, когда кольцо разобрано. После закрытия
+     * try-методы возвращают false, а блокирующие бросают {@link IllegalStateException}.
+     */
+    public void stop(Consumer<LimitOrderBook> last) {
+        int state = gate.getAndUpdate(current -> current | CLOSED);
+        if (state < 0) {
+            return;
+        }
+        while (gate.get() != CLOSED) {
+            Thread.onSpinWait();
+        }
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setCommand(last);
+        } finally {
+            ring.publish(sequence);
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getCurrency() {
+        return book.getCurrency();
+    }
+
+    /**
+     * Приём команд закрыт {@link #stop}.
+     */
+    public boolean isStopped() {
+        return gate.get() < 0;
+    }
+
+    /**
+     * @param price  цена в шагах цены
+     * @param volume объём в лотах
+     */
+    public void submit(long orderId, Side side, long price, long volume) {
+        submit(orderId, side, price, volume, null);
+    }
+
+    /**
+     * @param owner пользователь заявки, запоминается в стакане вместе с остатком
+     */
+    public void submit(long orderId, Side side, long price, long volume, String owner) {
+        publishOrder(claim(), orderId, side, price, volume, owner);
+    }
+
+    /**
+     * Как {@link #submit(long, Side, long, long, String)}, но без ожидания места в кольце:
+     * поток цикла событий не должен стоять, пока сопоставление разбирает очередь.
+     *
+     * @return false, если кольцо заполнено и заявка не принята
+     */
+    public boolean trySubmit(long orderId, Side side, long price, long volume, String owner) {
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        publishOrder(sequence, orderId, side, price, volume, owner);
+        return true;
+    }
+
+    private void publishOrder(long sequence, long orderId, Side side, long price, long volume, String owner) {
+        try {
+            ring.get(sequence).setOrder(orderId, side, price, volume, owner, System.nanoTime());
+        } finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Передаёт пачку заявок одним слотом кольца; результаты — в {@link OrderBatch#done()}.
+     */
+    public void submit(OrderBatch batch) {
+        publishBatch(claim(), batch);
+    }
+
+    /**
+     * @return false, если кольцо заполнено и пачка не принята
+     */
+    public boolean trySubmit(OrderBatch batch) {
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        publishBatch(sequence, batch);
+        return true;
+    }
+
+    private void publishBatch(long sequence, OrderBatch batch) {
+        try {
+            ring.get(sequence).setBatch(batch, System.nanoTime());
+        } finally {
+            publish(sequence);
+        }
+    }
+
+    public void cancel(long orderId) {
+        cancel(orderId, null);
+    }
+
+    /**
+     * Снимает пользовательскую заявку; чужая заявка или котировка не снимается
+     * ({@link OrderListener#onRejected}). Без {@code owner} владелец не проверяется.
+     */
+    public void cancel(long orderId, String owner) {
+        publishCancel(claim(), orderId, owner);
+    }
+
+    /**
+     * @return false, если кольцо заполнено и снятие не принято
+     */
+    public boolean tryCancel(long orderId, String owner) {
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        publishCancel(sequence, orderId, owner);
+        return true;
+    }
+
+    private void publishCancel(long sequence, long orderId, String owner) {
+        try {
+            ring.get(sequence).setCancel(orderId, owner);
+        } finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Атомарно для потока сопоставления снимает заявку и ставит на её стороне новую
+     * с другими ценой и объёмом; новая заявка встаёт в конец очереди своего уровня.
+     */
+    public void replace(long replacedId, long orderId, long price, long volume, String owner) {
+        publishReplace(claim(), replacedId, orderId, price, volume, owner);
+    }
+
+    /**
+     * @return false, если кольцо заполнено и замена не принята
+     */
+    public boolean tryReplace(long replacedId, long orderId, long price, long volume, String owner) {
+        long sequence = tryClaim();
+        if (sequence < 0) {
+            return false;
+        }
+        publishReplace(sequence, replacedId, orderId, price, volume, owner);
+        return true;
+    }
+
+    private void publishReplace(long sequence, long replacedId, long orderId, long price, long volume,
+                                String owner) {
+        try {
+            ring.get(sequence).setReplace(replacedId, orderId, price, volume, owner, System.nanoTime());
+        } finally {
+            publish(sequence);
+        }
+    }
+
+    /**
+     * Выполняет действие над стаканом в потоке сопоставления, в общем порядке с заявками.
+     *
+     * @return false, если движок остановлен и действие не будет выполнено
+     */
+    public boolean execute(Consumer<LimitOrderBook> command) {
+        if (!enter()) {
+            return false;
+        }
+        long sequence = ring.next();
+        try {
+            ring.get(sequence).setCommand(command);
+        } finally {
+            publish(sequence);
+        }
+        return true;
+    }
+
+    /**
+     * @return результат запроса; после остановки движка — завершённый {@link IllegalStateException}
+     */
+    public <T> CompletableFuture<T> query(Function<LimitOrderBook, T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        boolean accepted = execute(book -> {
+            try {
+                result.complete(query.apply(book));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        if (!accepted) {
+            result.completeExceptionally(stopped());
+        }
+        return result;
+    }
+
+    private boolean enter() {
+        while (true) {
+            int state = gate.get();
+            if (state < 0) {
+                return false;
+            }
+            if (gate.compareAndSet(state, state + 1)) {
+                return true;
+            }
+        }
+    }
+
+    // слот под команду; ожидает места в кольце
+    private long claim() {
+        if (!enter()) {
+            throw stopped();
+        }
+        return ring.next();
+    }
+
+    // слот под команду или -1, если кольцо заполнено или движок остановлен
+    private long tryClaim() {
+        if (!enter()) {
+            return -1;
+        }
+        long sequence = ring.tryNext();
+        if (sequence < 0) {
+            gate.decrementAndGet();
+        }
+        return sequence;
+    }
+
+    private void publish(long sequence) {
+        ring.publish(sequence);
+        gate.decrementAndGet();
+    }
+
+    private IllegalStateException stopped() {
+        return new IllegalStateException("Matching engine of " + book.getCurrency() + " is stopped");
+    }
+
+    public long pending() {
+        return ring.size();
+    }
+
+    /**
+     * Сколько команд завершилось исключением.
+     */
+    public long failures() {
+        return failures;
+    }
+
+    @Override
+    public void run() {
+        int idle = 0;
+        while (running) {
+            if (ring.drain(handler) > 0) {
+                idle = 0;
+            } else if (idle < SPIN_TRIES) {
+                idle++;
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+        // приём уже закрыт: разбираем то, что успели опубликовать, включая последнюю команду
+        while (ring.drain(handler) > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void process(OrderEvent event) {
+        try {
+            onEvent(event);
+        } catch (RuntimeException e) {
+            failures++;
+            OrderEvent.Type type = event.getType();
+            boolean order = type == OrderEvent.Type.ORDER || type == OrderEvent.Type.CANCEL
+                    || type == OrderEvent.Type.REPLACE;
+            try {
+                orderListener.onFailed(type, order ? event.getOrderId() : 0, order ? event.getOwner() : null, e);
+            } catch (RuntimeException ignored) {
+                // наблюдатель сам не справился; счётчик уже учёл сбой
+            }
+        }
+    }
+
+    private void onEvent(OrderEvent event) {
+        switch (event.getType()) {
+            case ORDER -> match(event.getOrderId(), event.getSide(), event.getPrice(), event.getVolume(),
+                    event.getOwner(), event.getSubmittedNanos(), tradeListener);
+            case CANCEL -> {
+                if (cancellable(event.getOrderId(), event.getOwner()) != null) {
+                    orderListener.onCancel(event.getOrderId());
+                    book.cancel(event.getOrderId());
+                }
+            }
+            case REPLACE -> {
+                RestingOrder replaced = cancellable(event.getReplacedId(), event.getOwner());
+                if (replaced != null) {
+                    orderListener.onReplace(event.getReplacedId(), event.getOrderId());
+                    book.cancel(event.getReplacedId());
+                    match(event.getOrderId(), replaced.getSide(), event.getPrice(), event.getVolume(),
+                            replaced.getOwner(), event.getSubmittedNanos(), tradeListener);
+                }
+            }
+            case COMMAND -> event.getCommand().accept(book);
+            case BATCH -> matchBatch(event.getBatch(), event.getSubmittedNanos());
+        }
+    }
+
+    private long match(long orderId, Side side, long price, long volume, String owner, long submittedNanos,
+                       TradeListener listener) {
+        orderListener.onOrder(orderId, side, price, volume, owner);
+        long remaining = book.match(side, price, volume, listener);
+        // Остаток (не исполненная часть) остаётся в стакане
+        if (remaining > 0) {
+            book.add(orderId, side, price, remaining, volume, owner);
+        }
+        orderListener.onMatched(orderId, System.nanoTime() - submittedNanos);
+        return remaining;
+    }
+
+    private void matchBatch(OrderBatch batch, long submittedNanos) {
+        try {
+            currentBatch = batch;
+            for (int i = 0; i < batch.size(); i++) {
+                currentIndex = i;
+                batch.setRemaining(i, match(batch.orderId(i), batch.side(i), batch.price(i), batch.volume(i),
+                        batch.owner(i), submittedNanos, batchTradeListener));
+            }
+            orderListener.onBatch(batch);
+            batch.done().complete(batch);
+        } catch (RuntimeException e) {
+            batch.done().completeExceptionally(e);
+            throw e;
+        } finally {
+            currentBatch = null;
+        }
+    }
+
+    /**
+     * Заявка, которую можно снять от имени {@code owner}, или null (после {@link OrderListener#onRejected}).
+     * Владелец не проверяется только у внутренних команд; заявку без владельца пользователь снять не может.
+     */
+    private RestingOrder cancellable(long orderId, String owner) {
+        RestingOrder order = book.get(orderId);
+        boolean allowed = order != null && (owner == null || order.isUserOrder() && owner.equals(order.getOwner()));
+        if (!allowed) {
+            orderListener.onRejected(orderId, owner);
+            return null;
+        }
+        return order;
+    }
+
+    private void onBatchTrade(RestingOrder maker, long price, long volume) {
+        tradeListener.onTrade(maker, price, volume);
+        currentBatch.addFill(currentIndex, price, volume);
+    }
+}
@@ -0,0 +1,110 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Пачка заявок одной валюты: занимает один слот кольца и сопоставляется подряд,
+ * без возврата в цикл ожидания между заявками. Поля заявок — колонки примитивов;
+ * результаты (остаток и сумма цена×объём сделок) пишет поток сопоставления,
+ * читать их можно после {@link #done()}.
+ */
+public class OrderBatch {
+
+    private final long[] orderIds;
+    private final Side[] sides;
+    private final String[] owners;
+    private final long[] prices;
+    private final long[] volumes;
+    private final long[] remaining;
+    private final long[] filledNotional;
+    private int size;
+    private long journalSequence;
+    private final CompletableFuture<OrderBatch> done = new CompletableFuture<>();
+
+    public OrderBatch(int capacity) {
+        this.orderIds = new long[capacity];
+        this.sides = new Side[capacity];
+        this.owners = new String[capacity];
+        this.prices = new long[capacity];
+        this.volumes = new long[capacity];
+        this.remaining = new long[capacity];
+        this.filledNotional = new long[capacity];
+    }
+
+    /**
+     * @param price  цена в шагах цены
+     * @param volume объём в лотах
+     */
+    public void add(long orderId, Side side, long price, long volume, String owner) {
+        orderIds[size] = orderId;
+        sides[size] = side;
+        owners[size] = owner;
+        prices[size] = price;
+        volumes[size] = volume;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long orderId(int i) {
+        return orderIds[i];
+    }
+
+    public Side side(int i) {
+        return sides[i];
+    }
+
+    public String owner(int i) {
+        return owners[i];
+    }
+
+    public long price(int i) {
+        return prices[i];
+    }
+
+    public long volume(int i) {
+        return volumes[i];
+    }
+
+    /**
+     * Неисполненный остаток, оставшийся в стакане, в лотах.
+     */
+    public long remaining(int i) {
+        return remaining[i];
+    }
+
+    /**
+     * Сумма цена×объём по сделкам заявки, в шагах цены × лоты.
+     */
+    public long filledNotional(int i) {
+        return filledNotional[i];
+    }
+
+    /**
+     * Номер последней записи журнала, сделанной при обработке пачки (см. {@link OrderListener#onBatch}).
+     */
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
+    /**
+     * Завершается на потоке сопоставления, когда все заявки пачки обработаны.
+     */
+    public CompletableFuture<OrderBatch> done() {
+        return done;
+    }
+
+    void setRemaining(int i, long volume) {
+        remaining[i] = volume;
+    }
+
+    void addFill(int i, long price, long volume) {
+        filledNotional[i] += price * volume;
+    }
+}
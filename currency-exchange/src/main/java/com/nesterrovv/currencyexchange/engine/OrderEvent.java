@@ -0,0 +1,130 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Переиспользуемый слот кольцевого буфера. Производитель заполняет его на месте,
+ * поэтому путь заявки до потока сопоставления не создаёт объектов.
+ */
+public class OrderEvent {
+
+    public enum Type {
+        ORDER,
+        CANCEL,
+        REPLACE,
+        COMMAND,
+        BATCH
+    }
+
+    private Type type;
+    private long orderId;
+    private long replacedId;
+    private String owner;
+    private Side side;
+    private long price;
+    private long volume;
+    private long submittedNanos;
+    private Consumer<LimitOrderBook> command;
+    private OrderBatch batch;
+
+    public void setOrder(long orderId, Side side, long price, long volume, String owner, long submittedNanos) {
+        this.type = Type.ORDER;
+        this.orderId = orderId;
+        this.side = side;
+        this.price = price;
+        this.volume = volume;
+        this.owner = owner;
+        this.submittedNanos = submittedNanos;
+        this.command = null;
+        this.batch = null;
+    }
+
+    public void setCancel(long orderId, String owner) {
+        this.type = Type.CANCEL;
+        this.orderId = orderId;
+        this.owner = owner;
+        this.command = null;
+        this.batch = null;
+    }
+
+    /**
+     * Снять заявку {@code replacedId} и на её стороне поставить новую {@code orderId}.
+     */
+    public void setReplace(long replacedId, long orderId, long price, long volume, String owner,
+                           long submittedNanos) {
+        this.type = Type.REPLACE;
+        this.replacedId = replacedId;
+        this.orderId = orderId;
+        this.price = price;
+        this.volume = volume;
+        this.owner = owner;
+        this.submittedNanos = submittedNanos;
+        this.command = null;
+        this.batch = null;
+    }
+
+    public void setCommand(Consumer<LimitOrderBook> command) {
+        this.type = Type.COMMAND;
+        this.command = command;
+        this.batch = null;
+    }
+
+    public void setBatch(OrderBatch batch, long submittedNanos) {
+        this.type = Type.BATCH;
+        this.batch = batch;
+        this.submittedNanos = submittedNanos;
+        this.command = null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getOrderId() {
+        return orderId;
+    }
+
+    public long getReplacedId() {
+        return replacedId;
+    }
+
+    /**
+     * Пользователь, от имени которого пришла команда; null — внутренняя команда без проверки владельца.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * Момент передачи заявки в буфер по {@link System#nanoTime()}.
+     */
+    public long getSubmittedNanos() {
+        return submittedNanos;
+    }
+
+    public Consumer<LimitOrderBook> getCommand() {
+        return command;
+    }
+
+    public OrderBatch getBatch() {
+        return batch;
+    }
+
+    void clear() {
+        owner = null;
+        command = null;
+        batch = null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.nesterrovv.currencyexchange.engine;
+
+/**
+ * Индекс заявок стакана по id: открытая адресация с линейным пробированием на примитивных
+ * ключах. В отличие от HashMap нет упаковки Long и узла на каждую заявку, а поиск
+ * обычно укладывается в одну-две соседние ячейки. Удаление сдвигает следующие записи
+ * назад, так что «надгробий» нет и цепочки не растут.
+ * Id 0 не используется: это признак пустой ячейки.
+ */
+class OrderIndex {
+
+    private static final long EMPTY = 0;
+
+    private long[] keys;
+    private RestingOrder[] values;
+    private int mask;
+    private int size;
+
+    OrderIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new RestingOrder[capacity];
+        this.mask = capacity - 1;
+    }
+
+    RestingOrder get(long id) {
+        if (id == EMPTY) {
+            return null;
+        }
+        for (int i = slot(id); ; i = (i + 1) & mask) {
+            long key = keys[i];
+            if (key == id) {
+                return values[i];
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+        }
+    }
+
+    void put(long id, RestingOrder order) {
+        if (id == EMPTY) {
+            throw new IllegalArgumentException("Order id 0 is reserved");
+        }
+        // заполнение не больше половины: цепочки линейного пробирования остаются короткими
+        if (size * 2 >= keys.length) {
+            resize(keys.length * 2);
+        }
+        int i = slot(id);
+        while (keys[i] != EMPTY && keys[i] != id) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == EMPTY) {
+            size++;
+        }
+        keys[i] = id;
+        values[i] = order;
+    }
+
+    RestingOrder remove(long id) {
+        if (id == EMPTY) {
+            return null;
+        }
+        int i = slot(id);
+        while (keys[i] != id) {
+            if (keys[i] == EMPTY) {
+                return null;
+            }
+            i = (i + 1) & mask;
+        }
+        RestingOrder removed = values[i];
+        // сдвиг назад: запись переезжает в освободившуюся ячейку, если та лежит
+        // между её исходной ячейкой и текущей позицией
+        for (int j = (i + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            boolean stays = i <= j ? i < home && home <= j : i < home || home <= j;
+            if (!stays) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = EMPTY;
+        values[i] = null;
+        size--;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        RestingOrder[] oldValues = values;
+        keys = new long[capacity];
+        values = new RestingOrder[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != EMPTY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    private int slot(long id) {
+        // id идут подряд: перемешиваем, чтобы соседние id не выстраивались в длинные цепочки
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,60 @@
+package com.nesterrovv.currencyexchange.engine;
+
+/**
+ * Наблюдатель за входящими командами стакана. Вызывается в потоке сопоставления
+ * в том же порядке, в котором команды исполняются.
+ */
+public interface OrderListener {
+
+    OrderListener NONE = new OrderListener() {
+    };
+
+    /**
+     * До сопоставления заявки.
+     */
+    default void onOrder(long orderId, Side side, long price, long volume, String owner) {
+    }
+
+    /**
+     * После сопоставления заявки и постановки остатка в стакан.
+     *
+     * @param latencyNanos время от передачи заявки в буфер до конца её обработки
+     */
+    default void onMatched(long orderId, long latencyNanos) {
+    }
+
+    /**
+     * После обработки всех заявок пачки, до завершения {@link OrderBatch#done()}.
+     */
+    default void onBatch(OrderBatch batch) {
+    }
+
+    /**
+     * До снятия заявки.
+     */
+    default void onCancel(long orderId) {
+    }
+
+    /**
+     * До снятия заявки {@code replacedId}, которую заменяет {@code orderId}; затем новая
+     * заявка проходит обычный путь, начиная с {@link #onOrder}.
+     */
+    default void onReplace(long replacedId, long orderId) {
+    }
+
+    /**
+     * Снятие или замена не выполнены: заявки уже нет в стакане или она принадлежит другому пользователю.
+     */
+    default void onRejected(long orderId, String owner) {
+    }
+
+    /**
+     * Команда завершилась исключением и пропущена; поток переходит к следующей.
+     * Часть её изменений могла уже попасть в стакан.
+     *
+     * @param orderId номер заявки (новой — для замены), 0 у команд без заявки
+     * @param owner   пользователь команды или null
+     */
+    default void onFailed(OrderEvent.Type type, long orderId, String owner, RuntimeException error) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Кольцевой буфер «много производителей — один потребитель» с заранее созданными слотами.
+ * Производители захватывают номер через {@link #next()} или {@link #tryNext()}, заполняют слот
+ * и вызывают {@link #publish(long)}; потребитель читает опубликованные слоты пачками.
+ */
+public class OrderRingBuffer {
+
+    public interface Handler {
+        void onEvent(OrderEvent event);
+    }
+
+    private final OrderEvent[] slots;
+    private final int mask;
+    private final int shift;
+    // для каждого слота — номер круга, на котором он был опубликован
+    private final AtomicIntegerArray available;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    public OrderRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.slots = new OrderEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new OrderEvent();
+        }
+        this.mask = capacity - 1;
+        this.shift = Integer.numberOfTrailingZeros(capacity);
+        this.available = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            available.set(i, -1);
+        }
+    }
+
+    /**
+     * Захватывает следующий слот; если буфер полон, ждёт, пока потребитель его освободит.
+     */
+    public long next() {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        while (wrapPoint > consumed.get()) {
+            LockSupport.parkNanos(1_000);
+        }
+        return sequence;
+    }
+
+    /**
+     * Захватывает следующий слот без ожидания, для потоков, которым нельзя блокироваться
+     * (циклы событий Netty).
+     *
+     * @return номер слота или -1, если буфер полон
+     */
+    public long tryNext() {
+        long current;
+        do {
+            current = claimed.get();
+            if (current + 1 - slots.length > consumed.get()) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+    public OrderEvent get(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        available.lazySet((int) sequence & mask, (int) (sequence >>> shift));
+    }
+
+    /**
+     * Обрабатывает все подряд опубликованные слоты. Вызывается только потоком-потребителем.
+     *
+     * @return количество обработанных событий
+     */
+    public int drain(Handler handler) {
+        long first = consumed.get() + 1;
+        long sequence = first;
+        while (available.get((int) sequence & mask) == (int) (sequence >>> shift)) {
+            OrderEvent event = slots[(int) sequence & mask];
+            handler.onEvent(event);
+            event.clear();
+            sequence++;
+        }
+        if (sequence != first) {
+            consumed.lazySet(sequence - 1);
+        }
+        return (int) (sequence - first);
+    }
+
+    public long size() {
+        return claimed.get() - consumed.get();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
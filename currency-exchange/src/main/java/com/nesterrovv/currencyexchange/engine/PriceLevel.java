@@ -0,0 +1,58 @@
+package com.nesterrovv.currencyexchange.engine;
+
+/**
+ * Ценовой уровень: заявки по одной цене в порядке поступления (price-time priority).
+ */
+class PriceLevel {
+
+    final long price;
+    long totalVolume;
+    int size;
+
+    RestingOrder head;
+    RestingOrder tail;
+
+    // следующие уровни стороны на каждой высоте списка с пропусками (см. PriceLevels)
+    final PriceLevel[] forward;
+
+    PriceLevel(long price, int height) {
+        this.price = price;
+        this.forward = new PriceLevel[height];
+    }
+
+    void append(RestingOrder order) {
+        order.level = this;
+        order.prev = tail;
+        order.next = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        totalVolume += order.getVolume();
+        size++;
+    }
+
+    void unlink(RestingOrder order) {
+        if (order.prev == null) {
+            head = order.next;
+        } else {
+            order.prev.next = order.next;
+        }
+        if (order.next == null) {
+            tail = order.prev;
+        } else {
+            order.next.prev = order.prev;
+        }
+        totalVolume -= order.getVolume();
+        size--;
+        order.level = null;
+        order.prev = null;
+        order.next = null;
+    }
+
+    boolean isEmpty() {
+        return head == null;
+    }
+}
@@ -0,0 +1,122 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import java.util.SplittableRandom;
+
+/**
+ * Уровни одной стороны стакана в списке с пропусками (skip list) по цене в шагах цены.
+ * Уровни идут от лучшего к худшему: взять и снять лучший — O(1), а найти, вставить или
+ * снять уровень на любой глубине — O(log n) в среднем, без упаковки ключей в объекты.
+ * Высота уровня случайная (p = 1/4); генератор с постоянным зерном, так что раскладка
+ * не зависит от запуска.
+ */
+class PriceLevels {
+
+    private static final int MAX_HEIGHT = 16;
+
+    private final long sign;
+    // голова без цены: head.forward[i] — первый уровень высоты больше i
+    private final PriceLevel head = new PriceLevel(0, MAX_HEIGHT);
+    // предшественники на каждой высоте при вставке и снятии; стакан меняет один поток
+    private final PriceLevel[] path = new PriceLevel[MAX_HEIGHT];
+    private final SplittableRandom random = new SplittableRandom(0x5EED);
+    private int height = 1;
+    private int size;
+
+    PriceLevels(Side side) {
+        this.sign = side == Side.BUY ? 1 : -1;
+    }
+
+    PriceLevel best() {
+        return head.forward[0];
+    }
+
+    /**
+     * Следующий уровень от лучшего к худшему, null после худшего.
+     */
+    PriceLevel after(PriceLevel level) {
+        return level.forward[0];
+    }
+
+    void removeBest() {
+        PriceLevel best = head.forward[0];
+        System.arraycopy(best.forward, 0, head.forward, 0, best.forward.length);
+        size--;
+        shrink();
+    }
+
+    PriceLevel get(long price) {
+        PriceLevel level = seek(price).forward[0];
+        return level != null && level.price == price ? level : null;
+    }
+
+    PriceLevel getOrCreate(long price) {
+        PriceLevel level = seek(price).forward[0];
+        if (level != null && level.price == price) {
+            return level;
+        }
+        int levelHeight = randomHeight();
+        for (; height < levelHeight; height++) {
+            path[height] = head;
+        }
+        level = new PriceLevel(price, levelHeight);
+        for (int i = 0; i < levelHeight; i++) {
+            level.forward[i] = path[i].forward[i];
+            path[i].forward[i] = level;
+        }
+        size++;
+        return level;
+    }
+
+    void remove(long price) {
+        PriceLevel level = seek(price).forward[0];
+        if (level == null || level.price != price) {
+            return;
+        }
+        for (int i = 0; i < level.forward.length; i++) {
+            path[i].forward[i] = level.forward[i];
+        }
+        size--;
+        shrink();
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Последний на каждой высоте уровень лучше {@code price} (или голова) — в {@link #path}.
+     *
+     * @return такой уровень на нижней высоте
+     */
+    private PriceLevel seek(long price) {
+        long key = sign * price;
+        PriceLevel node = head;
+        for (int i = height - 1; i >= 0; i--) {
+            PriceLevel next = node.forward[i];
+            while (next != null && sign * next.price > key) {
+                node = next;
+                next = node.forward[i];
+            }
+            path[i] = node;
+        }
+        return node;
+    }
+
+    private int randomHeight() {
+        int levelHeight = 1;
+        while (levelHeight < MAX_HEIGHT && random.nextInt(4) == 0) {
+            levelHeight++;
+        }
+        return levelHeight;
+    }
+
+    private void shrink() {
+        while (height > 1 && head.forward[height - 1] == null) {
+            height--;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.nesterrovv.currencyexchange.engine;
+
+/**
+ * Шаг цены и лота одной валюты. Внутри движка цены — целое число шагов (ticks),
+ * объёмы — целое число лотов; в double переводятся только на границе API.
+ */
+public final class PriceScale {
+
+    private final long priceFactor;
+    private final long volumeFactor;
+
+    /**
+     * @param priceDecimals  знаков после запятой в цене (4 — шаг 0.0001)
+     * @param volumeDecimals знаков после запятой в объёме (2 — лот 0.01)
+     */
+    public PriceScale(int priceDecimals, int volumeDecimals) {
+        this.priceFactor = pow10(priceDecimals);
+        this.volumeFactor = pow10(volumeDecimals);
+    }
+
+    public long toTicks(double price) {
+        return Math.round(price * priceFactor);
+    }
+
+    public double toPrice(long ticks) {
+        return (double) ticks / priceFactor;
+    }
+
+    public long toLots(double volume) {
+        return Math.round(volume * volumeFactor);
+    }
+
+    public double toVolume(long lots) {
+        return (double) lots / volumeFactor;
+    }
+
+    private static long pow10(int decimals) {
+        long factor = 1;
+        for (int i = 0; i < decimals; i++) {
+            factor *= 10;
+        }
+        return factor;
+    }
+}
@@ -0,0 +1,77 @@
+package com.nesterrovv.currencyexchange.engine;
+
+/**
+ * Заявка, стоящая в стакане. Одновременно является узлом двусвязной FIFO-очереди
+ * своего ценового уровня, поэтому снятие выполняется за O(1).
+ */
+public class RestingOrder {
+
+    private final long id;
+    private final Side side;
+    private final long price;
+    private final boolean userOrder;
+    private final String owner;
+    private final long originalVolume;
+    private long volume;
+
+    PriceLevel level;
+    RestingOrder prev;
+    RestingOrder next;
+
+    RestingOrder(long id, Side side, long price, long volume, long originalVolume, boolean userOrder,
+                 String owner) {
+        this.id = id;
+        this.side = side;
+        this.price = price;
+        this.volume = volume;
+        this.originalVolume = originalVolume;
+        this.userOrder = userOrder;
+        this.owner = owner;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Side getSide() {
+        return side;
+    }
+
+    /**
+     * Цена в шагах цены.
+     */
+    public long getPrice() {
+        return price;
+    }
+
+    /**
+     * Неисполненный остаток в лотах.
+     */
+    public long getVolume() {
+        return volume;
+    }
+
+    /**
+     * Исходный объём заявки в лотах, включая исполненное до постановки в стакан.
+     */
+    public long getOriginalVolume() {
+        return originalVolume;
+    }
+
+    public boolean isUserOrder() {
+        return userOrder;
+    }
+
+    /**
+     * Пользователь заявки; null у котировок и у заявок, восстановленных из снимка или журнала
+     * старого формата, где владельца не было.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    void reduce(long filled) {
+        volume -= filled;
+        level.totalVolume -= filled;
+    }
+}
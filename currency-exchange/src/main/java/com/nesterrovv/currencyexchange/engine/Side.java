@@ -0,0 +1,15 @@
+package com.nesterrovv.currencyexchange.engine;
+
+public enum Side {
+
+    BUY,
+    SELL;
+
+    public static Side of(String side) {
+        return "BUY".equalsIgnoreCase(side) ? BUY : SELL;
+    }
+
+    public Side opposite() {
+        return this == BUY ? SELL : BUY;
+    }
+}
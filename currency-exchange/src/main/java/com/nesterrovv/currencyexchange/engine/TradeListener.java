@@ -0,0 +1,11 @@
+package com.nesterrovv.currencyexchange.engine;
+
+/**
+ * Получатель сделок, возникающих при сопоставлении заявки со стаканом.
+ * Цена — в шагах цены, объём — в лотах.
+ */
+@FunctionalInterface
+public interface TradeListener {
+
+    void onTrade(RestingOrder maker, long price, long volume);
+}
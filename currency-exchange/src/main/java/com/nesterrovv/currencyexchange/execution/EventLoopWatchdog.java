@@ -0,0 +1,122 @@
+package com.nesterrovv.currencyexchange.execution;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сторож циклов событий Netty. Раз в интервал ставит в каждый цикл пустую задачу; если она
+ * не выполнилась за порог, цикл занят чужой работой (блокирующий вызов, тяжёлая стадия конвейера),
+ * и в лог уходит стек его потока — по нему видно, какая стадия блокирует.
+ * Задержка задач пишется в exchange.eventloop.delay, срабатывания — в exchange.eventloop.blocked.
+ */
+@Slf4j
+public class EventLoopWatchdog {
+
+    private final List<Probe> probes = new ArrayList<>();
+    private final long intervalNanos;
+    private final long thresholdNanos;
+    private final Timer delay;
+    private final Counter blocked;
+    private ScheduledExecutorService checker;
+
+    public EventLoopWatchdog(List<EventExecutorGroup> groups, Duration interval, Duration threshold,
+                             MeterRegistry meterRegistry) {
+        groups.forEach(group -> group.forEach(loop -> probes.add(new Probe(loop))));
+        this.intervalNanos = interval.toNanos();
+        this.thresholdNanos = threshold.toNanos();
+        this.delay = Timer.builder("exchange.eventloop.delay")
+                .description("Time an empty task waits for its Netty event loop")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.blocked = Counter.builder("exchange.eventloop.blocked")
+                .description("Times an event loop did not run a task within the watchdog threshold")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        checker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("event-loop-watchdog")
+                .daemon(true)
+                .factory());
+        checker.scheduleAtFixedRate(this::check, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stop() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Probe probe : probes) {
+            long posted = probe.postedNanos;
+            if (posted == 0) {
+                probe.post(now);
+            } else if (now - posted > thresholdNanos && !probe.reported) {
+                probe.reported = true;
+                blocked.increment();
+                Thread thread = probe.thread;
+                log.warn("Event loop {} is blocked for {} ms{}",
+                        thread != null ? thread.getName() : probe.loop,
+                        TimeUnit.NANOSECONDS.toMillis(now - posted),
+                        thread != null ? stackTrace(thread) : "");
+            }
+        }
+    }
+
+    private static String stackTrace(Thread thread) {
+        return Arrays.stream(thread.getStackTrace())
+                .map(frame -> "\n\tat " + frame)
+                .collect(Collectors.joining());
+    }
+
+    /**
+     * Пустая задача одного цикла; пока она не выполнилась, следующая не ставится.
+     */
+    private final class Probe implements Runnable {
+
+        final EventExecutor loop;
+        // момент постановки, 0 — задача выполнена; пишут оба потока по очереди
+        volatile long postedNanos;
+        volatile Thread thread;
+        // меняет только поток сторожа
+        boolean reported;
+
+        Probe(EventExecutor loop) {
+            this.loop = loop;
+        }
+
+        void post(long now) {
+            postedNanos = now;
+            reported = false;
+            try {
+                loop.execute(this);
+            } catch (RejectedExecutionException e) {
+                // цикл останавливается вместе с сервером
+                postedNanos = 0;
+            }
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            delay.record(System.nanoTime() - postedNanos, TimeUnit.NANOSECONDS);
+            postedNanos = 0;
+        }
+    }
+}
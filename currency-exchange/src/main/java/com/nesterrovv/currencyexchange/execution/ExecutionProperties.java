@@ -0,0 +1,42 @@
+package com.nesterrovv.currencyexchange.execution;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Модель исполнения: на каких потоках идёт каждая стадия конвейера.
+ * Сопоставление — собственные платформенные потоки по инструменту, агрегация и таймеры —
+ * ограниченный пул, блокирующий ввод-вывод — виртуальные потоки. Цикл событий Netty
+ * остаётся только для сети, за этим следит сторож.
+ */
+@Data
+@ConfigurationProperties(prefix = "exchange.execution")
+public class ExecutionProperties {
+
+    /**
+     * Приоритет потоков сопоставления. Привязка к ядрам средствами JDK невозможна: потоки
+     * называются matching-&lt;символ&gt;, их можно закрепить снаружи (taskset, cpuset).
+     */
+    private int matchingThreadPriority = Thread.MAX_PRIORITY;
+
+    /**
+     * Потоки для периодической работы и агрегации: снимки стаканов, прореживание потоков, снимки состояния.
+     */
+    private int aggregationThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / 4);
+
+    /**
+     * Блокирующий ввод-вывод (ожидание сброса журнала, запись снимков) на виртуальных потоках;
+     * false — на boundedElastic.
+     */
+    private boolean virtualThreadsForIo = true;
+
+    /**
+     * Сторож циклов событий: раз в интервал ставит в каждый цикл пустую задачу и сообщает,
+     * если она не выполнилась за порог.
+     */
+    private boolean watchdogEnabled = true;
+
+    private long watchdogIntervalMs = 100;
+
+    private long watchdogThresholdMs = 50;
+}
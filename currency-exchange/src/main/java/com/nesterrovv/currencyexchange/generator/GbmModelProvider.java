@@ -0,0 +1,41 @@
+package com.nesterrovv.currencyexchange.generator;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Геометрическое броуновское движение: S' = S * exp(mu - sigma^2 / 2 + sigma * Z) за тик.
+ */
+@Component
+public class GbmModelProvider implements PriceModelProvider {
+
+    @Override
+    public String name() {
+        return "gbm";
+    }
+
+    @Override
+    public PriceModel create(GeneratorProperties.Instrument instrument) {
+        return new Model(instrument.getPrice(), instrument.getDrift(), instrument.getVolatility());
+    }
+
+    private static final class Model implements PriceModel {
+
+        private final double driftTerm;
+        private final double volatility;
+        private double price;
+
+        Model(double price, double drift, double volatility) {
+            this.price = price;
+            this.driftTerm = drift - volatility * volatility / 2;
+            this.volatility = volatility;
+        }
+
+        @Override
+        public double next(long tick) {
+            price *= Math.exp(driftTerm + volatility * ThreadLocalRandom.current().nextGaussian());
+            return price;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.nesterrovv.currencyexchange.generator;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Настройки генератора котировок: общая частота тиков и инструменты с их моделями.
+ */
+@Data
+@ConfigurationProperties(prefix = "exchange.generator")
+public class GeneratorProperties {
+
+    /**
+     * Тиков в секунду на все инструменты вместе; тики раздаются инструментам по кругу.
+     */
+    private double ticksPerSecond = 3;
+
+    private List<Instrument> instruments = new ArrayList<>();
+
+    @Data
+    public static class Instrument {
+
+        private String symbol;
+
+        /**
+         * sine, gbm или replay (см. {@link PriceModelProvider}).
+         */
+        private String model = "sine";
+
+        /**
+         * Опорная цена: медиана синусоиды, начальная цена GBM; вокруг неё котирует маркет-мейкер.
+         */
+        private double price;
+
+        // sine
+        private double amplitude = 0.15;
+        private double omega = 0.05;
+        private double noise = 0.02;
+
+        // gbm, за один тик
+        private double drift;
+        private double volatility = 0.001;
+
+        // replay: файл с ценами, по одной в строке (или последним полем CSV)
+        private String file;
+    }
+}
@@ -0,0 +1,115 @@
+package com.nesterrovv.currencyexchange.generator;
+
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генератор тиков всех инструментов на собственном потоке.
+ * Тики раздаются инструментам по кругу с общей частотой {@code ticksPerSecond}:
+ * на малых частотах — по тику за срабатывание, на больших — пачками раз в миллисекунду,
+ * сколько положено к текущему моменту. Сам цикл объектов на тик не создаёт.
+ * Инструменты добавляются и убираются на ходу: набор моделей заменяется копией,
+ * поток генератора читает его без блокировок.
+ */
+public class MarketDataGenerator {
+
+    private static final long MIN_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Получатель тиков; вызывается только потоком генератора.
+     */
+    public interface TickHandler {
+        void onTick(int instrument, double price);
+    }
+
+    private volatile Slot[] slots = new Slot[0];
+    private final double ticksPerSecond;
+    private final long periodNanos;
+    private final long maxBatch;
+    private final TickHandler handler;
+
+    private Scheduler scheduler;
+    private Disposable task;
+    private long startNanos;
+    private long emitted;
+    private int next;
+
+    public MarketDataGenerator(double ticksPerSecond, TickHandler handler) {
+        this.ticksPerSecond = ticksPerSecond;
+        this.periodNanos = Math.max(MIN_PERIOD_NANOS, (long) (TimeUnit.SECONDS.toNanos(1) / ticksPerSecond));
+        // после паузы (GC, перегрузка) не догоняем больше двух периодов
+        this.maxBatch = Math.max(1, (long) (2 * ticksPerSecond * periodNanos / TimeUnit.SECONDS.toNanos(1)));
+        this.handler = handler;
+    }
+
+    /**
+     * Начинает выдавать тики инструмента с номером {@code instrument}.
+     */
+    public synchronized void add(int instrument, PriceModel model) {
+        Slot[] current = slots;
+        Slot[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Slot(instrument, model);
+        slots = updated;
+    }
+
+    public synchronized void remove(int instrument) {
+        slots = Arrays.stream(slots)
+                .filter(slot -> slot.instrument != instrument)
+                .toArray(Slot[]::new);
+    }
+
+    public void start() {
+        if (ticksPerSecond <= 0) {
+            return;
+        }
+        scheduler = Schedulers.newSingle("market-data-generator", true);
+        startNanos = System.nanoTime();
+        task = scheduler.schedulePeriodically(this::produce, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stop() {
+        if (task != null) {
+            task.dispose();
+            scheduler.dispose();
+        }
+    }
+
+    private void produce() {
+        long due = (long) ((System.nanoTime() - startNanos) * ticksPerSecond / TimeUnit.SECONDS.toNanos(1)) + 1
+                - emitted;
+        if (due > maxBatch) {
+            emitted += due - maxBatch;
+            due = maxBatch;
+        }
+        Slot[] current = slots;
+        if (current.length > 0) {
+            for (long i = 0; i < due; i++) {
+                if (next >= current.length) {
+                    next = 0;
+                }
+                Slot slot = current[next++];
+                handler.onTick(slot.instrument, slot.model.next(slot.tick++));
+            }
+        }
+        emitted += due;
+    }
+
+    /**
+     * Модель инструмента и номер её следующего тика; счётчик меняет только поток генератора.
+     */
+    private static final class Slot {
+
+        final int instrument;
+        final PriceModel model;
+        long tick;
+
+        Slot(int instrument, PriceModel model) {
+            this.instrument = instrument;
+            this.model = model;
+        }
+    }
+}
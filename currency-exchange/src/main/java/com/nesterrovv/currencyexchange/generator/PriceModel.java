@@ -0,0 +1,16 @@
+package com.nesterrovv.currencyexchange.generator;
+
+/**
+ * Модель цены одного инструмента. Вызывается только потоком генератора,
+ * поэтому может держать изменяемое состояние без синхронизации; на тик не должна
+ * создавать объектов.
+ */
+public interface PriceModel {
+
+    /**
+     * Цена очередного тика.
+     *
+     * @param tick номер тика этого инструмента, начиная с нуля
+     */
+    double next(long tick);
+}
@@ -0,0 +1,12 @@
+package com.nesterrovv.currencyexchange.generator;
+
+/**
+ * Точка расширения генератора: фабрика моделей цены одного вида.
+ * Реализации — бины Spring; вид модели выбирается по {@link #name()} из настроек инструмента.
+ */
+public interface PriceModelProvider {
+
+    String name();
+
+    PriceModel create(GeneratorProperties.Instrument instrument);
+}
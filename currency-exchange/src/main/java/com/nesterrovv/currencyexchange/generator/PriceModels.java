@@ -0,0 +1,31 @@
+package com.nesterrovv.currencyexchange.generator;
+
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Все доступные модели цены по именам.
+ */
+@Component
+public class PriceModels {
+
+    private final Map<String, PriceModelProvider> providers;
+
+    public PriceModels(List<PriceModelProvider> providers) {
+        this.providers = providers.stream()
+                .collect(Collectors.toMap(PriceModelProvider::name, Function.identity()));
+    }
+
+    public PriceModel create(GeneratorProperties.Instrument instrument) {
+        PriceModelProvider provider = providers.get(instrument.getModel());
+        if (provider == null) {
+            throw new IllegalArgumentException("Unknown price model '" + instrument.getModel()
+                    + "' for " + instrument.getSymbol() + ", available: " + providers.keySet());
+        }
+        return provider.create(instrument);
+    }
+}
@@ -0,0 +1,47 @@
+package com.nesterrovv.currencyexchange.generator;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Проигрывание записанных цен по кругу. Файл читается один раз при создании модели
+ * в массив примитивов: пустые строки и строки с '#' пропускаются, из CSV берётся последнее поле.
+ */
+@Component
+public class ReplayModelProvider implements PriceModelProvider {
+
+    @Override
+    public String name() {
+        return "replay";
+    }
+
+    @Override
+    public PriceModel create(GeneratorProperties.Instrument instrument) {
+        if (instrument.getFile() == null) {
+            throw new IllegalArgumentException("Replay model for " + instrument.getSymbol() + " needs a file");
+        }
+        double[] prices = load(Path.of(instrument.getFile()));
+        if (prices.length == 0) {
+            throw new IllegalArgumentException("No prices in " + instrument.getFile());
+        }
+        return tick -> prices[(int) (tick % prices.length)];
+    }
+
+    private static double[] load(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            return lines.stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .mapToDouble(line -> Double.parseDouble(line.substring(line.lastIndexOf(',') + 1).trim()))
+                    .toArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
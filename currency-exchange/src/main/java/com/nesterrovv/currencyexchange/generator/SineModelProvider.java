@@ -0,0 +1,31 @@
+package com.nesterrovv.currencyexchange.generator;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Синусоида вокруг опорной цены с равномерным шумом — прежняя модель генератора.
+ */
+@Component
+public class SineModelProvider implements PriceModelProvider {
+
+    @Override
+    public String name() {
+        return "sine";
+    }
+
+    @Override
+    public PriceModel create(GeneratorProperties.Instrument instrument) {
+        double median = instrument.getPrice();
+        double amplitude = instrument.getAmplitude();
+        double omega = instrument.getOmega();
+        double noise = instrument.getNoise();
+        double phase = ThreadLocalRandom.current().nextDouble(2 * Math.PI);
+        return tick -> {
+            double sin = Math.sin(omega * tick + phase);
+            double randomFactor = noise > 0 ? ThreadLocalRandom.current().nextDouble(-noise, noise) : 0;
+            return median * (1 + amplitude * sin + randomFactor);
+        };
+    }
+}
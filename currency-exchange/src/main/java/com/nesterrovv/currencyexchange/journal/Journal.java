@@ -0,0 +1,74 @@
+package com.nesterrovv.currencyexchange.journal;
+
+import com.nesterrovv.currencyexchange.engine.Side;
+
+/**
+ * Журнал принятых заявок, котировок, снятий и сделок, из которого состояние
+ * восстанавливается после перезапуска.
+ */
+public interface Journal extends AutoCloseable {
+
+    /**
+     * Журнал, который ничего не хранит.
+     */
+    Journal NONE = new Journal() {
+
+        @Override
+        public long append(byte type, int currency, Side side, int flags,
+                           long orderId, long price, long volume, long timestamp, String text) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long sequence) {
+        }
+
+        @Override
+        public void replay(JournalRecord.Handler handler) {
+        }
+
+        @Override
+        public void truncate(long sequence) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * Добавляет запись. На диск она попадает при ближайшем групповом сбросе.
+     *
+     * @return номер записи
+     */
+    default long append(byte type, int currency, Side side, int flags, long orderId, long price, long volume,
+                        long timestamp) {
+        return append(type, currency, side, flags, orderId, price, volume, timestamp, null);
+    }
+
+    /**
+     * То же со строкой, которую проигрывание вернёт в {@link JournalRecord#text()}.
+     *
+     * @return номер основной записи
+     */
+    long append(byte type, int currency, Side side, int flags, long orderId, long price, long volume, long timestamp,
+                String text);
+
+    /**
+     * Ждёт, пока запись с номером {@code sequence} не будет сброшена на диск.
+     */
+    void awaitDurable(long sequence) throws InterruptedException;
+
+    /**
+     * Проходит по всем целым записям в порядке добавления.
+     */
+    void replay(JournalRecord.Handler handler);
+
+    /**
+     * Удаляет сегменты, все записи которых не новее {@code sequence}: они уже учтены снимком.
+     */
+    void truncate(long sequence);
+
+    @Override
+    void close();
+}
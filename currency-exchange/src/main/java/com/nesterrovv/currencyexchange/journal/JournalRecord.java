@@ -0,0 +1,156 @@
+package com.nesterrovv.currencyexchange.journal;
+
+import com.nesterrovv.currencyexchange.engine.Side;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Запись журнала фиксированной длины {@link #SIZE} байт, big-endian:
+ * <pre>
+ * type:1 currency:1 side:1 flags:1 crc:4 sequence:8 orderId:8 price:8 volume:8 timestamp:8
+ * </pre>
+ * Цена — в шагах цены, объём — в лотах. crc (CRC32C) покрывает все байты, кроме самого crc,
+ * поэтому недописанная при сбое запись отличается от целой.
+ * <p>
+ * Строка к записи (владелец заявки) идёт перед ней записями {@link #TEXT}: в каждой до
+ * {@link #TEXT_CHUNK} байт UTF-8 на месте price/volume/timestamp, flags — их число.
+ * Они пишутся одним вызовом с основной записью и в тот же сегмент, а при чтении
+ * собираются в {@link #text()} следующей записи.
+ * Экземпляр переиспользуется при чтении, так что обработчик не должен его сохранять.
+ */
+public final class JournalRecord {
+
+    public static final int SIZE = 48;
+
+    /** Принятая заявка: сопоставляется, остаток встаёт в стакан. */
+    public static final byte ORDER = 1;
+    /** Котировка маркет-мейкера: встаёт в стакан без сопоставления, flags — номер уровня. */
+    public static final byte QUOTE = 2;
+    public static final byte CANCEL = 3;
+    public static final byte TRADE = 4;
+    /** Кусок строки следующей записи. */
+    public static final byte TEXT = 5;
+    /**
+     * Привязка номера инструмента к символу в {@link #text()}. Номер зависит от порядка
+     * регистрации и может смениться при перезапуске, поэтому записи после привязки
+     * относятся к её символу. Журнал повторяет привязки в начале каждого сегмента.
+     */
+    public static final byte INSTRUMENT = 6;
+    /** Пустое место в хвосте сегмента, куда не поместилась следующая запись; при чтении пропускается. */
+    public static final byte PADDING = 7;
+
+    static final int TEXT_CHUNK = 24;
+    private static final int TEXT_OFFSET = 24;
+
+    @FunctionalInterface
+    public interface Handler {
+        void onRecord(JournalRecord record);
+    }
+
+    private final byte[] bytes = new byte[SIZE];
+    private final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    private final CRC32C crc = new CRC32C();
+    private String text;
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    void encode(byte type, int currency, Side side, int flags, long sequence,
+                long orderId, long price, long volume, long timestamp) {
+        buffer.put(0, type)
+                .put(1, (byte) currency)
+                .put(2, (byte) (side == null ? 0 : side.ordinal() + 1))
+                .put(3, (byte) flags)
+                .putLong(8, sequence)
+                .putLong(16, orderId)
+                .putLong(24, price)
+                .putLong(32, volume)
+                .putLong(40, timestamp);
+        buffer.putInt(4, checksum());
+    }
+
+    void encodeText(int currency, long sequence, byte[] text, int offset, int length) {
+        buffer.put(0, TEXT)
+                .put(1, (byte) currency)
+                .put(2, (byte) 0)
+                .put(3, (byte) length)
+                .putLong(8, sequence)
+                .putLong(16, 0);
+        buffer.put(TEXT_OFFSET, text, offset, length);
+        Arrays.fill(bytes, TEXT_OFFSET + length, SIZE, (byte) 0);
+        buffer.putInt(4, checksum());
+    }
+
+    /**
+     * Копирует байты строки из записи {@link #TEXT}.
+     */
+    void textChunk(ByteArrayOutputStream out) {
+        out.write(bytes, TEXT_OFFSET, Math.min(flags(), TEXT_CHUNK));
+    }
+
+    void text(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Целая ли запись лежит в буфере.
+     */
+    boolean isValid() {
+        return type() != 0 && buffer.getInt(4) == checksum();
+    }
+
+    private int checksum() {
+        crc.reset();
+        crc.update(bytes, 0, 4);
+        crc.update(bytes, 8, SIZE - 8);
+        return (int) crc.getValue();
+    }
+
+    public byte type() {
+        return buffer.get(0);
+    }
+
+    public int currency() {
+        return buffer.get(1) & 0xFF;
+    }
+
+    public Side side() {
+        int side = buffer.get(2);
+        return side == 0 ? null : Side.values()[side - 1];
+    }
+
+    public int flags() {
+        return buffer.get(3) & 0xFF;
+    }
+
+    public long sequence() {
+        return buffer.getLong(8);
+    }
+
+    public long orderId() {
+        return buffer.getLong(16);
+    }
+
+    public long price() {
+        return buffer.getLong(24);
+    }
+
+    public long volume() {
+        return buffer.getLong(32);
+    }
+
+    public long timestamp() {
+        return buffer.getLong(40);
+    }
+
+    /**
+     * Строка, записанная вместе с записью (владелец заявки, символ инструмента), или null.
+     */
+    public String text() {
+        return text;
+    }
+}
@@ -0,0 +1,143 @@
+package com.nesterrovv.currencyexchange.journal;
+
+import com.nesterrovv.currencyexchange.engine.LimitOrderBook;
+import com.nesterrovv.currencyexchange.engine.MatchingEngine;
+import com.nesterrovv.currencyexchange.engine.PriceScale;
+import com.nesterrovv.currencyexchange.engine.Side;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Проигрывает записанный журнал через настоящие движки сопоставления на полной скорости —
+ * для воспроизведения нагрузки с продакшена и сравнения версий движка.
+ * <p>
+ * Запуск из собранного jar:
+ * <pre>
+ * java -cp target/currency-exchange-0.0.1-SNAPSHOT.jar \
+ *      -Dloader.main=com.nesterrovv.currencyexchange.journal.JournalReplayTool \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher data/journal
+ * </pre>
+ */
+public final class JournalReplayTool {
+
+    private static final int RING_CAPACITY = 1 << 16;
+    private static final PriceScale SCALE = new PriceScale(4, 2);
+
+    private JournalReplayTool() {
+    }
+
+    public static void main(String[] args) {
+        Path directory = Path.of(args.length > 0 ? args[0] : "data/journal");
+
+        // сначала весь журнал в память, чтобы замер не включал чтение с диска
+        Records records = new Records();
+        MappedFileJournal.read(directory, records::add);
+        if (records.size == 0) {
+            System.out.println("Journal " + directory + " is empty");
+            return;
+        }
+
+        MatchingEngine[] engines = new MatchingEngine[records.maxCurrency + 1];
+        LongAdder trades = new LongAdder();
+        for (int i = 0; i < engines.length; i++) {
+            engines[i] = new MatchingEngine(new LimitOrderBook(String.valueOf(i), SCALE), RING_CAPACITY,
+                    (maker, price, volume) -> trades.increment());
+            engines[i].start();
+        }
+
+        long commands = 0;
+        long journaledTrades = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < records.size; i++) {
+            MatchingEngine engine = engines[records.currency[i]];
+            long orderId = records.orderId[i];
+            Side side = records.side[i];
+            long price = records.price[i];
+            long volume = records.volume[i];
+            switch (records.type[i]) {
+                case JournalRecord.ORDER -> engine.submit(orderId, side, price, volume);
+                case JournalRecord.QUOTE -> engine.execute(book -> book.add(orderId, side, price, volume, false));
+                case JournalRecord.CANCEL -> engine.cancel(orderId);
+                case JournalRecord.TRADE -> {
+                    journaledTrades++;
+                    continue;
+                }
+                default -> {
+                    continue;
+                }
+            }
+            commands++;
+        }
+        // очередь каждого движка FIFO: ответ на запрос означает, что всё до него обработано
+        long resting = 0;
+        for (MatchingEngine engine : engines) {
+            resting += engine.query(LimitOrderBook::size).join();
+            engine.stop();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("Replayed %d commands in %.1f ms (%.0f commands/s)%n",
+                commands, elapsed / 1e6, commands * 1e9 / elapsed);
+        System.out.printf("Trades: %d replayed, %d journaled; %d orders resting%n",
+                trades.sum(), journaledTrades, resting);
+    }
+
+    /**
+     * Журнал в колонках примитивов. Номер инструмента заменяется номером движка по символу
+     * из привязки, так что записи разных запусков с другим порядком инструментов не смешиваются.
+     */
+    private static final class Records {
+
+        byte[] type = new byte[1024];
+        int[] currency = new int[1024];
+        Side[] side = new Side[1024];
+        long[] orderId = new long[1024];
+        long[] price = new long[1024];
+        long[] volume = new long[1024];
+        int size;
+        int maxCurrency;
+        final int[] engineOf = new int[256];
+        final Map<String, Integer> engineBySymbol = new HashMap<>();
+
+        Records() {
+            Arrays.fill(engineOf, -1);
+        }
+
+        void add(JournalRecord record) {
+            if (record.type() == JournalRecord.INSTRUMENT) {
+                engineOf[record.currency()] = engine(record.text());
+                return;
+            }
+            if (engineOf[record.currency()] < 0) {
+                // журнал без привязок: движок по номеру
+                engineOf[record.currency()] = engine("#" + record.currency());
+            }
+            if (size == type.length) {
+                int capacity = size * 2;
+                type = Arrays.copyOf(type, capacity);
+                currency = Arrays.copyOf(currency, capacity);
+                side = Arrays.copyOf(side, capacity);
+                orderId = Arrays.copyOf(orderId, capacity);
+                price = Arrays.copyOf(price, capacity);
+                volume = Arrays.copyOf(volume, capacity);
+            }
+            type[size] = record.type();
+            currency[size] = engineOf[record.currency()];
+            side[size] = record.side();
+            orderId[size] = record.orderId();
+            price[size] = record.price();
+            volume[size] = record.volume();
+            maxCurrency = Math.max(maxCurrency, currency[size]);
+            size++;
+        }
+
+        private int engine(String symbol) {
+            return engineBySymbol.computeIfAbsent(symbol, key -> engineBySymbol.size());
+        }
+    }
+
+}
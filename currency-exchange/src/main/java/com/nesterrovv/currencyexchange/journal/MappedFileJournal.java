@@ -0,0 +1,415 @@
+package com.nesterrovv.currencyexchange.journal;
+
+import com.nesterrovv.currencyexchange.engine.Side;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Журнал из сегментов фиксированного размера, отображённых в память.
+ * Запись захватывает места в сегменте атомарным счётчиком без общего замка и копирует
+ * в них 48 байт (и куски строки, если она есть), так что потоки сопоставления разных
+ * инструментов пишут параллельно. Номер записи — номер первого места сегмента плюс её место.
+ * Отдельный поток раз в {@code flushInterval} проходит записи, опубликованные подряд, и
+ * сбрасывает их одним force() (групповая фиксация); пройденный целиком сегмент сбрасывается и закрывается.
+ * <p>
+ * Запись, не поместившаяся в хвост сегмента, переходит в новый, а хвост заполняется
+ * записями {@link JournalRecord#PADDING}, поэтому номера идут подряд через границу сегментов.
+ * Новый сегмент начинается с действующих привязок {@link JournalRecord#INSTRUMENT}, так что
+ * после удаления старых сегментов номера инструментов по-прежнему сопоставляются символам.
+ */
+public class MappedFileJournal implements Journal {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final long flushIntervalNanos;
+    // у каждого пишущего потока своя запись: crc считается вне замка
+    private final ThreadLocal<JournalRecord> writeRecords = ThreadLocal.withInitial(JournalRecord::new);
+    private final Thread flusher;
+    // привязки номеров к символам, записанные этим процессом; меняются под замком смены сегмента
+    private final Map<Integer, byte[]> bindings = new TreeMap<>();
+    private volatile int bindingRecords;
+
+    private volatile Segment current;
+    // сегмент и место в нём, до которого записи опубликованы подряд; меняет только поток сброса
+    private Segment flushing;
+    private int flushed;
+
+    private volatile long durable;
+    private volatile boolean running = true;
+
+    /**
+     * @param recordsPerSegment сколько записей помещается в один файл сегмента
+     */
+    public MappedFileJournal(Path directory, int recordsPerSegment, long flushInterval, TimeUnit unit) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.flushIntervalNanos = unit.toNanos(flushInterval);
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments(directory);
+            current = segments.isEmpty() ? openSegment(0, 1, 0) : reopen(segments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.flushing = current;
+        this.flushed = current.claimed.get();
+        this.durable = current.firstSequence + flushed - 1;
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Дописываем в последний сегмент, начиная с первой нецелой записи. Если сбой случился сразу
+     * после смены сегмента и в последнем нет ни одной целой записи, номера продолжаются от
+     * последней записи предыдущих сегментов: иначе новые записи получили бы номера, которые
+     * снимок уже считает учтёнными, и восстановление их пропустило бы.
+     */
+    private Segment reopen(List<Path> segments) throws IOException {
+        JournalRecord record = new JournalRecord();
+        Path last = segments.get(segments.size() - 1);
+        int valid = validRecords(last, record);
+        long firstSequence = 1;
+        if (valid > 0) {
+            firstSequence = record.sequence() - valid + 1;
+        } else {
+            for (int i = segments.size() - 2; i >= 0; i--) {
+                if (validRecords(segments.get(i), record) > 0) {
+                    firstSequence = record.sequence() + 1;
+                    break;
+                }
+            }
+        }
+        return openSegment(segmentIndex(last), firstSequence, valid);
+    }
+
+    @Override
+    public long append(byte type, int currency, Side side, int flags,
+                       long orderId, long price, long volume, long timestamp, String text) {
+        byte[] textBytes = text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+        int records = chunks(textBytes) + 1;
+        if (bindingRecords + records > recordsPerSegment) {
+            throw new IllegalArgumentException("Journal record of " + records * JournalRecord.SIZE
+                    + " bytes does not fit a segment");
+        }
+        if (type == JournalRecord.INSTRUMENT) {
+            if (textBytes == null) {
+                throw new IllegalArgumentException("Instrument binding needs a symbol");
+            }
+            return bind(currency, timestamp, textBytes, records);
+        }
+        return claim(type, currency, side, flags, orderId, price, volume, timestamp, textBytes, records);
+    }
+
+    // привязка пишется и запоминается под замком смены сегмента: новый сегмент либо получит её копию,
+    // либо уже содержит её саму
+    private synchronized long bind(int currency, long timestamp, byte[] symbol, int records) {
+        long sequence = claim(JournalRecord.INSTRUMENT, currency, null, 0, 0, 0, 0, timestamp, symbol, records);
+        byte[] previous = bindings.put(currency, symbol);
+        bindingRecords += records - (previous == null ? 0 : chunks(previous) + 1);
+        return sequence;
+    }
+
+    private long claim(byte type, int currency, Side side, int flags, long orderId, long price, long volume,
+                       long timestamp, byte[] textBytes, int records) {
+        while (true) {
+            Segment segment = current;
+            int start = segment.claimed.getAndAdd(records);
+            // строка и её запись всегда в одном сегменте: удаление старых сегментов их не разделит
+            if (start + records <= recordsPerSegment) {
+                return write(segment, start, type, currency, side, flags, orderId, price, volume, timestamp,
+                        textBytes);
+            }
+            // хвост достался этой записи, но она в него не поместилась: заполняем его пустыми записями
+            if (start < recordsPerSegment) {
+                pad(segment, start, timestamp);
+            }
+            rollSegment(segment, timestamp);
+        }
+    }
+
+    private long write(Segment segment, int start, byte type, int currency, Side side, int flags,
+                       long orderId, long price, long volume, long timestamp, byte[] textBytes) {
+        JournalRecord record = writeRecords.get();
+        long sequence = segment.firstSequence + start;
+        int chunks = chunks(textBytes);
+        for (int i = 0; i < chunks; i++) {
+            int offset = i * JournalRecord.TEXT_CHUNK;
+            record.encodeText(currency, sequence + i, textBytes, offset,
+                    Math.min(JournalRecord.TEXT_CHUNK, textBytes.length - offset));
+            segment.buffer.put((start + i) * JournalRecord.SIZE, record.bytes());
+        }
+        record.encode(type, currency, side, flags, sequence + chunks, orderId, price, volume, timestamp);
+        segment.buffer.put((start + chunks) * JournalRecord.SIZE, record.bytes());
+        for (int i = 0; i <= chunks; i++) {
+            segment.published.lazySet(start + i, 1);
+        }
+        return sequence + chunks;
+    }
+
+    private void pad(Segment segment, int start, long timestamp) {
+        JournalRecord record = writeRecords.get();
+        for (int slot = start; slot < recordsPerSegment; slot++) {
+            record.encode(JournalRecord.PADDING, 0, null, 0, segment.firstSequence + slot, 0, 0, 0, timestamp);
+            segment.buffer.put(slot * JournalRecord.SIZE, record.bytes());
+            segment.published.lazySet(slot, 1);
+        }
+    }
+
+    private static int chunks(byte[] textBytes) {
+        return textBytes == null ? 0 : (textBytes.length + JournalRecord.TEXT_CHUNK - 1) / JournalRecord.TEXT_CHUNK;
+    }
+
+    @Override
+    public void awaitDurable(long sequence) throws InterruptedException {
+        synchronized (flusher) {
+            while (durable < sequence && running) {
+                flusher.wait();
+            }
+        }
+    }
+
+    @Override
+    public void replay(JournalRecord.Handler handler) {
+        read(directory, handler);
+    }
+
+    /**
+     * Читает журнал из каталога, не открывая его на запись (для офлайн-инструментов).
+     */
+    public static void read(Path directory, JournalRecord.Handler handler) {
+        JournalRecord record = new JournalRecord();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try {
+            for (Path path : segments(directory)) {
+                try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                    text.reset();
+                    for (int offset = 0; offset + JournalRecord.SIZE <= buffer.limit(); offset += JournalRecord.SIZE) {
+                        buffer.get(offset, record.bytes());
+                        if (!record.isValid()) {
+                            break;
+                        }
+                        if (record.type() == JournalRecord.TEXT) {
+                            record.textChunk(text);
+                            continue;
+                        }
+                        if (record.type() == JournalRecord.PADDING) {
+                            text.reset();
+                            continue;
+                        }
+                        record.text(text.size() == 0 ? null : text.toString(StandardCharsets.UTF_8));
+                        text.reset();
+                        handler.onRecord(record);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void truncate(long sequence) {
+        JournalRecord record = new JournalRecord();
+        try {
+            List<Path> segments = segments(directory);
+            // последний сегмент — текущий, его не трогаем; остальные удаляем, пока следующий
+            // за ними начинается не позже sequence + 1
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstSequence(segments.get(i + 1), record) > sequence + 1) {
+                    break;
+                }
+                Files.deleteIfExists(segments.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            flush();
+            current.buffer.force();
+            closeChannel(flushing.channel);
+            closeChannel(current.channel);
+        }
+    }
+
+    private void flushLoop() {
+        while (running) {
+            LockSupport.parkNanos(flushIntervalNanos);
+            flush();
+        }
+        synchronized (flusher) {
+            flusher.notifyAll();
+        }
+    }
+
+    /**
+     * Проходит записи, опубликованные подряд, и сбрасывает их одним force() на все записи,
+     * накопившиеся за интервал. Запись, которую другой поток ещё копирует, останавливает
+     * проход: durable не обгоняет дыру в журнале.
+     */
+    private void flush() {
+        Segment segment = flushing;
+        int position = flushed;
+        while (true) {
+            while (position < recordsPerSegment && segment.published.get(position) != 0) {
+                position++;
+            }
+            Segment next = segment.next;
+            if (position < recordsPerSegment || next == null) {
+                break;
+            }
+            // сегмент дописан целиком: в него больше никто не пишет
+            segment.buffer.force();
+            closeChannel(segment.channel);
+            segment = next;
+            position = 0;
+        }
+        flushing = segment;
+        flushed = position;
+        long target = segment.firstSequence + position - 1;
+        if (target > durable) {
+            segment.buffer.force();
+            synchronized (flusher) {
+                durable = target;
+                flusher.notifyAll();
+            }
+        }
+    }
+
+    private synchronized void rollSegment(Segment full, long timestamp) {
+        if (current != full) {
+            // сегмент уже сменил другой поток
+            return;
+        }
+        Segment next;
+        try {
+            next = openSegment(full.index + 1, full.firstSequence + recordsPerSegment, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // привязки занимают начало сегмента до того, как его увидят другие потоки
+        bindings.forEach((currency, symbol) -> write(next, next.claimed.getAndAdd(chunks(symbol) + 1),
+                JournalRecord.INSTRUMENT, currency, null, 0, 0, 0, 0, timestamp, symbol));
+        full.next = next;
+        current = next;
+    }
+
+    private Segment openSegment(int index, long firstSequence, int claimed) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(segmentName(index)),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                (long) recordsPerSegment * JournalRecord.SIZE);
+        return new Segment(index, firstSequence, channel, buffer, claimed, recordsPerSegment);
+    }
+
+    private static void closeChannel(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // сколько целых записей подряд лежит в начале сегмента; последняя из них остаётся в record
+    private static int validRecords(Path path, JournalRecord record) throws IOException {
+        try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            int valid = 0;
+            while ((valid + 1) * JournalRecord.SIZE <= buffer.limit()) {
+                buffer.get(valid * JournalRecord.SIZE, record.bytes());
+                if (!record.isValid()) {
+                    break;
+                }
+                valid++;
+            }
+            if (valid > 0) {
+                buffer.get((valid - 1) * JournalRecord.SIZE, record.bytes());
+            }
+            return valid;
+        }
+    }
+
+    private static long firstSequence(Path path, JournalRecord record) throws IOException {
+        try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (readChannel.size() < JournalRecord.SIZE) {
+                return Long.MAX_VALUE;
+            }
+            readChannel.map(FileChannel.MapMode.READ_ONLY, 0, JournalRecord.SIZE).get(0, record.bytes());
+            return record.isValid() ? record.sequence() : Long.MAX_VALUE;
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static String segmentName(int index) {
+        return String.format("%s%010d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+    }
+
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Файл сегмента. Запись на месте i имеет номер firstSequence + i; место считается
+     * записанным, когда после копирования байтов выставлен его флаг в published.
+     */
+    private static final class Segment {
+
+        final int index;
+        final long firstSequence;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+        final AtomicInteger claimed;
+        final AtomicIntegerArray published;
+        // следующий сегмент: выставляет смена сегмента, читает поток сброса
+        volatile Segment next;
+
+        Segment(int index, long firstSequence, FileChannel channel, MappedByteBuffer buffer,
+                int claimed, int records) {
+            this.index = index;
+            this.firstSequence = firstSequence;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.claimed = new AtomicInteger(claimed);
+            this.published = new AtomicIntegerArray(records);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Срабатывание правила: {@code value} — цена, изменение в процентах или объём за окно,
+ * в зависимости от типа правила.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertNotification {
+    private long ruleId;
+    private String user;
+    private String currency;
+    private String type;
+    private double threshold;
+    private double value;
+    private long timestamp;
+}
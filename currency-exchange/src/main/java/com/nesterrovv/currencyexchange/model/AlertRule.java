@@ -0,0 +1,24 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Правило оповещения пользователя по одной валюте. Типы:
+ * PRICE_ABOVE / PRICE_BELOW — цена пересекла {@code threshold} снизу вверх / сверху вниз;
+ * MOVE_UP / MOVE_DOWN — цена выросла / упала на {@code threshold} процентов за {@code windowMs};
+ * VOLUME_ABOVE — объём сделок за {@code windowMs} превысил {@code threshold}.
+ * Правило срабатывает при каждом пересечении порога и остаётся, пока его не удалят.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertRule {
+    private long id;
+    private String user;
+    private String currency;
+    private String type;
+    private double threshold;
+    private long windowMs;
+}
@@ -0,0 +1,24 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Свечи OHLCV в колоночном виде: i-я свеча — i-е элементы массивов.
+ * time — начало периода свечи, мс.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CandleSeries {
+
+    private String currency;
+    private String resolution;
+    private long[] time;
+    private double[] open;
+    private double[] high;
+    private double[] low;
+    private double[] close;
+    private double[] volume;
+}
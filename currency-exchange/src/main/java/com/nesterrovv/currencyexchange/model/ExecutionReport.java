@@ -0,0 +1,30 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Отчёт об исполнении заявки пользователя. Статусы: ACCEPTED, PARTIALLY_FILLED, FILLED,
+ * CANCELLED, REPLACED (заявка снята и заменена заявкой {@code replacedBy}),
+ * REJECTED (снять или заменить нельзя: заявки уже нет или она чужая).
+ * {@code lastPrice}/{@code lastVolume} — последняя сделка, {@code filledVolume} — исполнено всего.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExecutionReport {
+    private long orderId;
+    private String user;
+    private String currency;
+    private String side;
+    private double price;
+    private double volume;
+    private double lastPrice;
+    private double lastVolume;
+    private double filledVolume;
+    private double remainingVolume;
+    private String status;
+    private long replacedBy;
+    private long timestamp;
+}
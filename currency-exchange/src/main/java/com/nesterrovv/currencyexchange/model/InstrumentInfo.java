@@ -0,0 +1,19 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Инструмент в реестре: компактный номер (он же байт валюты в бинарном протоколе),
+ * символ, опорная цена и модель генератора.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InstrumentInfo {
+    private int id;
+    private String symbol;
+    private double price;
+    private String model;
+}
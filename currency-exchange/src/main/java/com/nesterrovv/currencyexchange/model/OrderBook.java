@@ -6,13 +6,14 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 /**
- * Простейшая модель стакана: bids, asks
+ * Срез стакана одной валюты: агрегированные по цене bids и asks
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class OrderBook {
 
+    private String currency;
     private List<Order> bids;
     private List<Order> asks;
 
@@ -0,0 +1,34 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Сообщение дельта-потока стакана. При snapshot == true changes содержит все уровни,
+ * иначе — только изменившиеся (volume == 0 означает, что уровень ушёл).
+ * Пропуск в sequence означает, что клиенту нужно запросить снимок заново.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderBookUpdate {
+
+    private String currency;
+    private long sequence;
+    private boolean snapshot;
+    private List<LevelChange> changes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LevelChange {
+
+        private String side;
+        private double price;
+        private double volume;
+
+    }
+}
@@ -0,0 +1,26 @@
+package com.nesterrovv.currencyexchange.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Результат заявки из пачки: присвоенный номер и исполнение на момент сопоставления.
+ * Статусы: FILLED, PARTIALLY_FILLED, RESTING (встала в стакан целиком),
+ * ROUTED (принята узлом-владельцем инструмента под его номером, исполнение — в отчётах об исполнении),
+ * REJECTED (неизвестная или удалённая валюта, недопустимые объём или цена, заполненная очередь,
+ * отказ узла-владельца).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderReport {
+    private long orderId;
+    private String currency;
+    private String side;
+    private double price;
+    private double volume;
+    private double filledVolume;
+    private double averagePrice;
+    private String status;
+}
@@ -4,13 +4,32 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Статистика сделок валюты: торговый день и скользящие окна 1 минута / 1 час.
+ */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 public class StatsData {
 
     private String currency;
+    private double lastPrice;
+
     private double dayHigh;
     private double dayLow;
     private double dayVolume;
+    private double dayVwap;
+    private long dayTradeCount;
+
+    private double minuteHigh;
+    private double minuteLow;
+    private double minuteVolume;
+    private double minuteVwap;
+    private long minuteTradeCount;
+
+    private double hourHigh;
+    private double hourLow;
+    private double hourVolume;
+    private double hourVwap;
+    private long hourTradeCount;
 }
@@ -9,8 +9,16 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class UserOrder {
 
+    public static final String ANONYMOUS = "anonymous";
+
     private String side;
     private String currency;
     private double volume;
     private Double userPrice;
+    // получатель отчётов об исполнении; только он может снять или заменить заявку
+    private String user = ANONYMOUS;
+
+    public UserOrder(String side, String currency, double volume, Double userPrice) {
+        this(side, currency, volume, userPrice, ANONYMOUS);
+    }
 }
@@ -0,0 +1,130 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.CandleSeries;
+
+import java.util.Arrays;
+
+/**
+ * Свечи одной валюты по всем периодам. Сделки и тики попадают только в секундные свечи;
+ * закрытая свеча вливается в свечу следующего периода, так что крупные периоды
+ * собираются из мелких инкрементально, без пересчёта по сделкам.
+ */
+class CandleAggregator {
+
+    private static final CandleResolution[] RESOLUTIONS = CandleResolution.values();
+
+    private final String currency;
+    private final CandleRing[] rings = new CandleRing[RESOLUTIONS.length];
+
+    CandleAggregator(String currency) {
+        this.currency = currency;
+        for (int level = 0; level < RESOLUTIONS.length; level++) {
+            rings[level] = new CandleRing(RESOLUTIONS[level].getCapacity());
+        }
+    }
+
+    synchronized void onPrice(long timestamp, double price, double volume) {
+        CandleRing seconds = rings[0];
+        long candleTime = RESOLUTIONS[0].floor(timestamp);
+        if (seconds.isEmpty() || candleTime > seconds.headTime()) {
+            if (!seconds.isEmpty()) {
+                rollUp(0);
+            }
+            seconds.append(candleTime, price, price, price, price, volume);
+        } else {
+            // опоздавшие данные попадают в открытую свечу
+            seconds.mergeIntoHead(price, price, price, volume);
+        }
+    }
+
+    /**
+     * Закрывает открытую свечу уровня {@code level}, вливая её в следующий период.
+     */
+    private void rollUp(int level) {
+        if (level + 1 == rings.length) {
+            return;
+        }
+        CandleRing lower = rings[level];
+        CandleRing upper = rings[level + 1];
+        int i = lower.head();
+        long candleTime = RESOLUTIONS[level + 1].floor(lower.time[i]);
+        if (upper.isEmpty() || candleTime > upper.headTime()) {
+            if (!upper.isEmpty()) {
+                rollUp(level + 1);
+            }
+            upper.append(candleTime, lower.open[i], lower.high[i], lower.low[i], lower.close[i], lower.volume[i]);
+        } else {
+            upper.mergeIntoHead(lower.high[i], lower.low[i], lower.close[i], lower.volume[i]);
+        }
+    }
+
+    /**
+     * Свечи периода со временем начала в [from, to). Открытые свечи более мелких
+     * периодов, ещё не влитые в этот период, учитываются в последних свечах ответа.
+     */
+    synchronized CandleSeries range(CandleResolution resolution, long from, long to) {
+        int level = resolution.ordinal();
+        CandleRing ring = rings[level];
+        long start = ring.lowerBound(from);
+        long end = ring.lowerBound(to);
+        int stored = (int) (end - start);
+        // не больше одной свечи сверху на каждый более мелкий уровень
+        int capacity = stored + level;
+
+        long[] time = new long[capacity];
+        double[] open = new double[capacity];
+        double[] high = new double[capacity];
+        double[] low = new double[capacity];
+        double[] close = new double[capacity];
+        double[] volume = new double[capacity];
+        int size = 0;
+        for (long logical = start; logical < end; logical++) {
+            int i = ring.index(logical);
+            time[size] = ring.time[i];
+            open[size] = ring.open[i];
+            high[size] = ring.high[i];
+            low[size] = ring.low[i];
+            close[size] = ring.close[i];
+            volume[size] = ring.volume[i];
+            size++;
+        }
+
+        // последняя свеча ответа может быть открытой: её хвост ещё лежит в мелких периодах
+        boolean tailIsHead = end == ring.count() && stored > 0;
+        for (int lower = level - 1; lower >= 0; lower--) {
+            CandleRing lowerRing = rings[lower];
+            if (lowerRing.isEmpty()) {
+                continue;
+            }
+            int i = lowerRing.head();
+            long candleTime = resolution.floor(lowerRing.time[i]);
+            if (candleTime < from || candleTime >= to) {
+                continue;
+            }
+            if (size > 0 && time[size - 1] == candleTime && (tailIsHead || size > stored)) {
+                if (lowerRing.high[i] > high[size - 1]) high[size - 1] = lowerRing.high[i];
+                if (lowerRing.low[i] < low[size - 1]) low[size - 1] = lowerRing.low[i];
+                close[size - 1] = lowerRing.close[i];
+                volume[size - 1] += lowerRing.volume[i];
+            } else if (size == 0 || candleTime > time[size - 1]) {
+                time[size] = candleTime;
+                open[size] = lowerRing.open[i];
+                high[size] = lowerRing.high[i];
+                low[size] = lowerRing.low[i];
+                close[size] = lowerRing.close[i];
+                volume[size] = lowerRing.volume[i];
+                size++;
+            }
+        }
+
+        if (size < capacity) {
+            time = Arrays.copyOf(time, size);
+            open = Arrays.copyOf(open, size);
+            high = Arrays.copyOf(high, size);
+            low = Arrays.copyOf(low, size);
+            close = Arrays.copyOf(close, size);
+            volume = Arrays.copyOf(volume, size);
+        }
+        return new CandleSeries(currency, resolution.getLabel(), time, open, high, low, close, volume);
+    }
+}
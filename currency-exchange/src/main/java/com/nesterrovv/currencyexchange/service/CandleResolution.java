@@ -0,0 +1,50 @@
+package com.nesterrovv.currencyexchange.service;
+
+/**
+ * Периоды свечей от мелкого к крупному; каждый следующий собирается из предыдущего.
+ */
+public enum CandleResolution {
+
+    S1("1s", 1_000L, 3_600),
+    M1("1m", 60_000L, 1_440),
+    M5("5m", 300_000L, 2_016),
+    H1("1h", 3_600_000L, 720);
+
+    private final String label;
+    private final long periodMillis;
+    private final int capacity;
+
+    CandleResolution(String label, long periodMillis, int capacity) {
+        this.label = label;
+        this.periodMillis = periodMillis;
+        this.capacity = capacity;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Сколько последних свечей хранится.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long floor(long timestamp) {
+        return Math.floorDiv(timestamp, periodMillis) * periodMillis;
+    }
+
+    public static CandleResolution of(String label) {
+        for (CandleResolution resolution : values()) {
+            if (resolution.label.equals(label)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown candle resolution: " + label);
+    }
+}
@@ -0,0 +1,92 @@
+package com.nesterrovv.currencyexchange.service;
+
+/**
+ * Кольцо свечей одного периода в примитивных массивах (по массиву на колонку).
+ * Последняя свеча (head) — открытая, в неё ещё поступают данные.
+ */
+class CandleRing {
+
+    final long[] time;
+    final double[] open;
+    final double[] high;
+    final double[] low;
+    final double[] close;
+    final double[] volume;
+    private final int capacity;
+    private long count;
+
+    CandleRing(int capacity) {
+        this.capacity = capacity;
+        this.time = new long[capacity];
+        this.open = new double[capacity];
+        this.high = new double[capacity];
+        this.low = new double[capacity];
+        this.close = new double[capacity];
+        this.volume = new double[capacity];
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int head() {
+        return index(count - 1);
+    }
+
+    long headTime() {
+        return time[head()];
+    }
+
+    void append(long candleTime, double o, double h, double l, double c, double v) {
+        int i = index(count++);
+        time[i] = candleTime;
+        open[i] = o;
+        high[i] = h;
+        low[i] = l;
+        close[i] = c;
+        volume[i] = v;
+    }
+
+    /**
+     * Вливает в открытую свечу данные за более короткий период.
+     */
+    void mergeIntoHead(double h, double l, double c, double v) {
+        int i = head();
+        if (h > high[i]) high[i] = h;
+        if (l < low[i]) low[i] = l;
+        close[i] = c;
+        volume[i] += v;
+    }
+
+    /**
+     * Логический номер первой хранимой свечи.
+     */
+    long first() {
+        return Math.max(0, count - capacity);
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Первый логический номер свечи со временем не меньше {@code t}.
+     */
+    long lowerBound(long t) {
+        long lo = first();
+        long hi = count;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (time[index(mid)] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    int index(long logical) {
+        return (int) (logical % capacity);
+    }
+}
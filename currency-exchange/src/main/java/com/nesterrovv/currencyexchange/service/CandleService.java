@@ -0,0 +1,66 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.model.CandleSeries;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * История OHLCV-свечей по сделкам и тикам цены, чтобы график можно было восстановить
+ * после перезагрузки страницы.
+ */
+@Service
+public class CandleService {
+
+    private final CurrencyService currencyService;
+    private final ExecutionSchedulers schedulers;
+    private final Map<String, CandleAggregator> aggregators = new ConcurrentHashMap<>();
+    private final Disposable.Composite subscriptions = Disposables.composite();
+
+    public CandleService(CurrencyService currencyService, ExecutionSchedulers schedulers) {
+        this.currencyService = currencyService;
+        this.schedulers = schedulers;
+    }
+
+    @PostConstruct
+    void subscribe() {
+        // у каждого инструмента свой агрегатор, подписанный на его раздел потоков:
+        // тики двигают цену без объёма, сделки — с объёмом; считается на агрегации, не на источнике
+        subscriptions.add(currencyService.getInstruments().added()
+                .flatMap(instrument -> {
+                    CandleAggregator aggregator = new CandleAggregator(instrument.getSymbol());
+                    aggregators.put(instrument.getSymbol(), aggregator);
+                    return Flux.merge(
+                            schedulers.toAggregation(instrument.getTickFlux())
+                                    .doOnNext(data -> aggregator.onPrice(data.getTimestamp(), data.getPrice(), 0)),
+                            schedulers.toAggregation(instrument.getTradeFlux())
+                                    .doOnNext(trade -> aggregator.onPrice(trade.getTimestamp(), trade.getPrice(),
+                                            trade.getVolume())))
+                            .doOnComplete(() -> aggregators.remove(instrument.getSymbol(), aggregator));
+                }, InstrumentRegistry.MAX_INSTRUMENTS)
+                .subscribe());
+    }
+
+    @PreDestroy
+    void unsubscribe() {
+        subscriptions.dispose();
+    }
+
+    /**
+     * Свечи со временем начала в [from, to), мс.
+     */
+    public CandleSeries getCandles(String currency, String resolution, long from, long to) {
+        CandleAggregator aggregator = aggregators.get(currency);
+        if (aggregator == null) {
+            throw new IllegalArgumentException("Unknown currency: " + currency);
+        }
+        return aggregator.range(CandleResolution.of(resolution), from, to);
+    }
+}
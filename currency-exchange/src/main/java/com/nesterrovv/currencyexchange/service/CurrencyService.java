@@ -1,17 +1,44 @@
 package com.nesterrovv.currencyexchange.service;
 
+import com.nesterrovv.currencyexchange.cluster.ClusterProperties;
+import com.nesterrovv.currencyexchange.engine.LimitOrderBook;
+import com.nesterrovv.currencyexchange.engine.MatchingEngine;
+import com.nesterrovv.currencyexchange.engine.OrderBatch;
+import com.nesterrovv.currencyexchange.engine.OrderEvent;
+import com.nesterrovv.currencyexchange.engine.OrderListener;
+import com.nesterrovv.currencyexchange.engine.PriceScale;
+import com.nesterrovv.currencyexchange.engine.RestingOrder;
+import com.nesterrovv.currencyexchange.engine.Side;
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.generator.GeneratorProperties;
+import com.nesterrovv.currencyexchange.generator.MarketDataGenerator;
+import com.nesterrovv.currencyexchange.generator.PriceModels;
+import com.nesterrovv.currencyexchange.journal.Journal;
+import com.nesterrovv.currencyexchange.journal.JournalRecord;
 import com.nesterrovv.currencyexchange.model.*;
-import jakarta.annotation.PostConstruct;
+import com.nesterrovv.currencyexchange.snapshot.CurrencySnapshot;
+import com.nesterrovv.currencyexchange.snapshot.SnapshotStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.publisher.Sinks;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+@Slf4j
 @Service
 public class CurrencyService {
 
@@ -19,72 +46,494 @@ public class CurrencyService {
     private Flux<OrderBook> orderBookFlux;
     private Flux<CurrencyChangedNotification> currencyChangedNotificationFlux;
 
-    private final ConcurrentLinkedQueue<UserOrder> userOrders = new ConcurrentLinkedQueue<>();
+    // цены во внутреннем представлении: 4 знака цены, 2 знака объёма
+    private static final PriceScale SCALE = new PriceScale(4, 2);
+
+    // инструменты из настроек генератора (exchange.generator.*) и добавленные на ходу;
+    // по символу ищем только на границе API, дальше всё идёт по номеру
+    private final InstrumentRegistry instruments = new InstrumentRegistry();
+    private final PriceModels priceModels;
+    private final MarketDataGenerator generator;
+
+    private volatile boolean autoGenerateOrderBook = true;
+
+    // у каждого инструмента свой стакан и свой поток сопоставления
+    private static final int QUOTE_LEVELS = 5;
+    private static final int BOOK_DEPTH = 20;
+    private static final int RING_CAPACITY = 1 << 16;
+    private final AtomicLong orderIds = new AtomicLong();
+    private final Journal journal;
+
+    // сделки, статистика и тики всех инструментов: слияние их разделов, новые подключаются на ходу
+    private final Flux<TradeEvent> tradeFlux;
+    private final Flux<StatsData> statsFlux;
+    private final Flux<ExecutionReport> executionFlux;
+    private final LongAdder emitFailures = new LongAdder();
+
+    // метрики: счётчики и гистограммы Micrometer пишутся без блокировок и аллокаций
+    private final MeterRegistry meterRegistry;
+    private final ExecutionSchedulers schedulers;
+
+    public CurrencyService(Journal journal, SnapshotStore snapshotStore, MeterRegistry meterRegistry,
+                           GeneratorProperties generatorProperties, PriceModels priceModels,
+                           ClusterProperties clusterProperties, ExecutionSchedulers schedulers) {
+        this.journal = journal;
+        this.meterRegistry = meterRegistry;
+        this.schedulers = schedulers;
+        this.priceModels = priceModels;
+        this.generator = new MarketDataGenerator(generatorProperties.getTicksPerSecond(),
+                (id, price) -> {
+                    Instrument instrument = instruments.get(id);
+                    if (instrument != null) {
+                        emit(instrument.tickSink, generateCurrency(instrument, price));
+                        advanceStats(instrument);
+                    }
+                });
+        // в кластере узел ведёт только свои инструменты, чужие появляются при подключении к их узлам
+        List<Instrument> configured = generatorProperties.getInstruments().stream()
+                .filter(instrument -> clusterProperties.owns(instrument.getSymbol()))
+                .map(this::register)
+                .toList();
+
+        // состояние восстанавливается из снимка и хвоста журнала до запуска потоков сопоставления
+        for (CurrencySnapshot snapshot : snapshotStore.read()) {
+            Instrument instrument = instruments.get(snapshot.getCurrency());
+            if (instrument != null) {
+                restore(instrument, snapshot);
+            }
+        }
+        recover();
+        configured.forEach(this::start);
+
+        FunctionCounter.builder("exchange.stream.emit.failures", emitFailures, LongAdder::sum)
+                .description("Ticks, trades and stats dropped because a sink overflowed")
+                .register(meterRegistry);
+        this.tradeFlux = instruments.added()
+                .flatMap(Instrument::getTradeFlux, InstrumentRegistry.MAX_INSTRUMENTS)
+                .share();
+        this.statsFlux = instruments.added()
+                .flatMap(Instrument::getStatsFlux, InstrumentRegistry.MAX_INSTRUMENTS)
+                .share();
+        this.executionFlux = instruments.added()
+                .flatMap(Instrument::getReportFlux, InstrumentRegistry.MAX_INSTRUMENTS)
+                .share();
 
-    private static final double MEDIAN_USD = 80;
-    private static final double MEDIAN_EUR = 85;
-    private static final double MEDIAN_CNY = 11;
+        // каждый сгенерированный тик уходит подписчикам; частота задаётся настройками, а не выборкой
+        this.currencyFlux = instruments.added()
+                .flatMap(Instrument::getTickFlux, InstrumentRegistry.MAX_INSTRUMENTS)
+                .share();
+        this.orderBookFlux = Flux.merge(createAutoOrderBookFlux(), instruments.added()
+                        .filter(Instrument::isRemote)
+                        .flatMap(Instrument::getBookFlux, InstrumentRegistry.MAX_INSTRUMENTS))
+                .share();
+        this.currencyChangedNotificationFlux = createNotificationFlux();
+        generator.start();
+    }
 
-    private static final double AMPLITUDE = 0.15;
-    private static final double OMEGA = 0.05;
+    /**
+     * Добавляет инструмент на ходу: пустой стакан, свой поток сопоставления и модель цены.
+     * В настройках он не сохраняется — после перезапуска остаются инструменты из настроек.
+     */
+    public synchronized Instrument addInstrument(GeneratorProperties.Instrument properties) {
+        Instrument instrument = register(properties);
+        start(instrument);
+        return instrument;
+    }
 
-    private final double phaseUsd = Math.random() * 2 * Math.PI;
-    private final double phaseEur = Math.random() * 2 * Math.PI;
-    private final double phaseCny = Math.random() * 2 * Math.PI;
+    /**
+     * Убирает инструмент: генератор перестаёт выдавать его тики, движок закрывает приём
+     * (новые заявки отклоняются как по неизвестной валюте), стоящие заявки пользователей
+     * снимаются с отчётами CANCELLED, поток сопоставления останавливается, разобрав уже
+     * принятое, а потоки событий инструмента завершаются.
+     */
+    public synchronized boolean removeInstrument(String symbol) {
+        Instrument existing = instruments.get(symbol);
+        if (existing != null && existing.isRemote()) {
+            throw new IllegalArgumentException("Instrument " + symbol + " is owned by another node");
+        }
+        Instrument instrument = instruments.remove(existing);
+        if (instrument == null) {
+            return false;
+        }
+        generator.remove(instrument.getId());
+        instrument.engine.stop(book -> cancelUserOrders(instrument, book));
+        instrument.complete();
+        instrument.meters.forEach(meterRegistry::remove);
+        return true;
+    }
 
-    private final AtomicReference<Double> prevUsd = new AtomicReference<>(MEDIAN_USD);
-    private final AtomicReference<Double> prevEur = new AtomicReference<>(MEDIAN_EUR);
-    private final AtomicReference<Double> prevCny = new AtomicReference<>(MEDIAN_CNY);
+    private Instrument register(GeneratorProperties.Instrument properties) {
+        int id = instruments.reserve(properties.getSymbol());
+        String symbol = properties.getSymbol();
+        // номер зависит от порядка регистрации: записи журнала после привязки относятся к символу
+        journal.append(JournalRecord.INSTRUMENT, id, null, 0, 0, 0, 0, System.currentTimeMillis(), symbol);
+        Instrument instrument = new Instrument(id, symbol, properties.getPrice(), properties.getModel(),
+                priceModels.create(properties), new LimitOrderBook(symbol, SCALE), null, 2 * QUOTE_LEVELS,
+                SCALE.toTicks(properties.getPrice()));
+
+        instrument.submittedOrders = Counter.builder("exchange.orders.submitted")
+                .description("User orders accepted for matching")
+                .tag("currency", symbol)
+                .register(meterRegistry);
+        Counter trades = Counter.builder("exchange.trades")
+                .description("Trades executed by the matching engine")
+                .tag("currency", symbol)
+                .register(meterRegistry);
+        Timer orderLatency = Timer.builder("exchange.order.latency")
+                .description("Time from order submission to the end of its matching")
+                .tag("currency", symbol)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(500))
+                .maximumExpectedValue(Duration.ofMillis(100))
+                .register(meterRegistry);
+        instrument.engine = new MatchingEngine(instrument.book, RING_CAPACITY,
+                (maker, price, volume) -> {
+                    trades.increment();
+                    long now = System.currentTimeMillis();
+                    journal(instrument, JournalRecord.TRADE, maker.getSide(), 0, maker.getId(), price, volume, now);
+                    TradeEvent trade = new TradeEvent(symbol, SCALE.toPrice(price), SCALE.toVolume(volume), now);
+                    emit(instrument.tradeSink, trade);
+                    // наружу уходят только неизменяемые снимки статистики
+                    emit(instrument.statsSink, instrument.stats.update(trade));
+                    reportFill(instrument, maker, price, volume, now);
+                },
+                new OrderListener() {
+                    @Override
+                    public void onOrder(long orderId, Side side, long price, long volume, String owner) {
+                        long now = System.currentTimeMillis();
+                        journal(instrument, JournalRecord.ORDER, side, 0, orderId, price, volume, now, owner);
+                        instrument.netVolume.onAccepted(side, volume, now);
+                        instrument.takerId = orderId;
+                        instrument.takerSide = side;
+                        instrument.takerPrice = price;
+                        instrument.takerVolume = volume;
+                        instrument.takerFilled = 0;
+                        instrument.takerOwner = owner;
+                        if (owner != null) {
+                            report(instrument, orderId, owner, side, price, volume, 0, 0, 0, volume,
+                                    "ACCEPTED", 0, now);
+                        }
+                    }
 
-    private boolean autoGenerateOrderBook = true;
+                    @Override
+                    public void onMatched(long orderId, long latencyNanos) {
+                        orderLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+                    }
 
-    // для сделок
-    private final Sinks.Many<TradeEvent> tradeSink = Sinks.many().multicast().onBackpressureBuffer();
-    private final Flux<TradeEvent> tradeFlux = tradeSink.asFlux().share();
+                    @Override
+                    public void onBatch(OrderBatch batch) {
+                        batch.setJournalSequence(instrument.journaledSequence);
+                    }
 
-    private Flux<StatsData> statsFlux;
+                    @Override
+                    public void onCancel(long orderId) {
+                        removed(instrument, orderId, "CANCELLED", 0);
+                    }
 
-    public CurrencyService() {
-        // backpressure + троттлинг
-        Flux<CurrencyData> usdStream = Flux.interval(Duration.ofMillis(200))
-                .map(tick -> generateCurrency("USD", MEDIAN_USD, AMPLITUDE, phaseUsd, prevUsd, tick))
-                .onBackpressureLatest()
-                .sample(Duration.ofSeconds(1));
+                    @Override
+                    public void onReplace(long replacedId, long orderId) {
+                        removed(instrument, replacedId, "REPLACED", orderId);
+                    }
 
-        Flux<CurrencyData> eurStream = Flux.interval(Duration.ofMillis(200))
-                .map(tick -> generateCurrency("EUR", MEDIAN_EUR, AMPLITUDE, phaseEur, prevEur, tick))
-                .onBackpressureLatest()
-                .sample(Duration.ofSeconds(1));
+                    @Override
+                    public void onRejected(long orderId, String owner) {
+                        if (owner != null) {
+                            report(instrument, orderId, owner, null, 0, 0, 0, 0, 0, 0,
+                                    "REJECTED", 0, System.currentTimeMillis());
+                        }
+                    }
 
-        Flux<CurrencyData> cnyStream = Flux.interval(Duration.ofMillis(200))
-                .map(tick -> generateCurrency("CNY", MEDIAN_CNY, AMPLITUDE, phaseCny, prevCny, tick))
-                .onBackpressureLatest()
-                .sample(Duration.ofSeconds(1));
+                    @Override
+                    public void onFailed(OrderEvent.Type type, long orderId, String owner, RuntimeException error) {
+                        log.error("Matching thread of {} failed on {} {}", symbol, type, orderId, error);
+                        onRejected(orderId, owner);
+                    }
+                }, schedulers.matchingThreads());
+        Gauge queueDepth = Gauge.builder("exchange.engine.queue.depth", instrument.engine, MatchingEngine::pending)
+                .description("Commands waiting in the matching engine ring buffer")
+                .tag("currency", symbol)
+                .register(meterRegistry);
+        instrument.capturePause = Timer.builder("exchange.snapshot.capture.pause")
+                .description("Time the matching thread spends copying the book for a state snapshot")
+                .tag("currency", symbol)
+                .register(meterRegistry);
+        FunctionCounter failures = FunctionCounter.builder("exchange.engine.failures", instrument.engine,
+                        MatchingEngine::failures)
+                .description("Matching engine commands rejected because they threw")
+                .tag("currency", symbol)
+                .register(meterRegistry);
+        instrument.meters.addAll(List.of(instrument.submittedOrders, trades, orderLatency, queueDepth, failures,
+                instrument.capturePause));
+        instruments.add(instrument);
+        return instrument;
+    }
 
-        this.currencyFlux = Flux.merge(usdStream, eurStream, cnyStream).share();
-        this.orderBookFlux = createAutoOrderBookFlux();
-        this.currencyChangedNotificationFlux = createNotificationFlux();
+    /**
+     * Регистрирует инструмент другого узла: заявки по нему уходят в {@code route},
+     * события приходят через {@link #publishRemote}.
+     */
+    public synchronized Instrument addRemoteInstrument(String symbol, double basePrice, String model,
+                                                       OrderRoute route) {
+        Instrument instrument = new Instrument(instruments.reserve(symbol), symbol, basePrice, model,
+                null, null, route, 0, SCALE.toTicks(basePrice));
+        instruments.add(instrument);
+        return instrument;
     }
 
-    @PostConstruct
-    private void initStatsFlux() {
-        this.statsFlux = tradeFlux
-                .groupBy(TradeEvent::getCurrency)
-                .flatMap(groupedFlux ->
-                        groupedFlux
-                                .scan(new StatsAccumulator(groupedFlux.key()), (acc, trade) -> {
-                                    acc.update(trade);
-                                    return acc;
-                                })
-                                .map(StatsAccumulator::toStatsData)
-                )
-                .share();
+    /**
+     * Убирает инструмент другого узла, например при разрыве соединения с ним.
+     */
+    public synchronized void removeRemoteInstrument(Instrument instrument) {
+        if (instruments.remove(instrument) != null) {
+            instrument.complete();
+        }
+    }
+
+    // вызываются потоком соединения с узлом-владельцем: у каждого раздела по-прежнему один пишущий поток
+    public void publishRemote(Instrument instrument, CurrencyData data) {
+        emit(instrument.tickSink, data);
+    }
+
+    public void publishRemote(Instrument instrument, TradeEvent trade) {
+        emit(instrument.tradeSink, trade);
+    }
+
+    public void publishRemote(Instrument instrument, StatsData stats) {
+        emit(instrument.statsSink, stats);
+    }
+
+    public void publishRemote(Instrument instrument, OrderBook book) {
+        emit(instrument.bookSink, book);
+    }
+
+    public void publishRemote(Instrument instrument, ExecutionReport report) {
+        emit(instrument.reportSink, report);
+    }
+
+    private void start(Instrument instrument) {
+        instrument.engine.start();
+        generator.add(instrument.getId(), instrument.model);
+    }
+
+    private void restore(Instrument instrument, CurrencySnapshot snapshot) {
+        LimitOrderBook book = instrument.book;
+        snapshot.restore(book);
+        long[] quoteIds = instrument.quoteIds;
+        System.arraycopy(snapshot.getQuoteIds(), 0, quoteIds, 0, Math.min(quoteIds.length, snapshot.getQuoteIds().length));
+        instrument.prevTicks.set(snapshot.getPrevTicks());
+        instrument.stats = snapshot.getStats();
+        instrument.journaledSequence = snapshot.getSequence();
+        orderIds.accumulateAndGet(snapshot.getLastOrderId(), Math::max);
+    }
+
+    /**
+     * Проигрывает журнал после снимка: заявки и котировки заново сопоставляются и встают в стаканы,
+     * сделки восстанавливают статистику. Номер в записи сопоставляется символу по последней
+     * привязке перед ней; журнал без привязок (старый формат) читается по текущим номерам.
+     */
+    private void recover() {
+        long[] maxOrderId = {orderIds.get()};
+        String[] symbols = new String[InstrumentRegistry.MAX_INSTRUMENTS + 1];
+        Set<String> skipped = new HashSet<>();
+        journal.replay(record -> {
+            if (record.type() == JournalRecord.INSTRUMENT) {
+                symbols[record.currency()] = record.text();
+                return;
+            }
+            String symbol = symbols[record.currency()];
+            Instrument instrument = symbol == null ? instruments.get(record.currency()) : instruments.get(symbol);
+            if (instrument == null || instrument.isRemote()) {
+                String missing = symbol == null ? "#" + record.currency() : symbol;
+                if (skipped.add(missing)) {
+                    log.warn("Journal records of instrument {} skipped: it is not configured on this node", missing);
+                }
+                return;
+            }
+            if (symbol == null && skipped.add("")) {
+                log.warn("Journal has no instrument bindings, replaying it by current instrument numbers");
+            }
+            if (record.sequence() <= instrument.journaledSequence) {
+                return;
+            }
+            instrument.journaledSequence = record.sequence();
+            LimitOrderBook book = instrument.book;
+            maxOrderId[0] = Math.max(maxOrderId[0], record.orderId());
+            switch (record.type()) {
+                case JournalRecord.ORDER -> {
+                    instrument.netVolume.onAccepted(record.side(), record.volume(), record.timestamp());
+                    long remaining = book.match(record.side(), record.price(), record.volume(),
+                            (maker, price, volume) -> { });
+                    if (remaining > 0) {
+                        book.add(record.orderId(), record.side(), record.price(), remaining, record.volume(),
+                                record.text());
+                    }
+                }
+                case JournalRecord.QUOTE -> {
+                    book.add(record.orderId(), record.side(), record.price(), record.volume(), false);
+                    instrument.quoteIds[record.flags()] = record.orderId();
+                }
+                case JournalRecord.CANCEL -> book.cancel(record.orderId());
+                case JournalRecord.TRADE -> instrument.stats.update(new TradeEvent(instrument.getSymbol(),
+                        SCALE.toPrice(record.price()), SCALE.toVolume(record.volume()), record.timestamp()));
+                default -> {
+                    // записи других типов к состоянию стаканов не относятся
+                }
+            }
+        });
+        orderIds.set(maxOrderId[0]);
+    }
+
+    // последняя команда удаляемого инструмента: пользователи узнают, что их заявки сняты
+    private void cancelUserOrders(Instrument instrument, LimitOrderBook book) {
+        List<RestingOrder> userOrders = new ArrayList<>();
+        for (Side side : Side.values()) {
+            book.forEach(side, order -> {
+                if (order.isUserOrder()) {
+                    userOrders.add(order);
+                }
+            });
+        }
+        for (RestingOrder order : userOrders) {
+            removed(instrument, order.getId(), "CANCELLED", 0);
+            book.cancel(order.getId());
+        }
+    }
+
+    /**
+     * Пользовательская заявка снимается из стакана (снятие или замена): журнал и отчёт.
+     * Вызывается на потоке сопоставления до снятия, пока заявка ещё в стакане.
+     */
+    private void removed(Instrument instrument, long orderId, String status, long replacedBy) {
+        long now = System.currentTimeMillis();
+        journal(instrument, JournalRecord.CANCEL, null, 0, orderId, 0, 0, now);
+        RestingOrder order = instrument.book.get(orderId);
+        if (order.getOwner() != null) {
+            report(instrument, orderId, order.getOwner(), order.getSide(), order.getPrice(),
+                    order.getOriginalVolume(), 0, 0, order.getOriginalVolume() - order.getVolume(), 0,
+                    status, replacedBy, now);
+        }
+    }
+
+    // отчёты по обеим сторонам сделки; котировки и заявки без известного владельца отчётов не получают
+    private void reportFill(Instrument instrument, RestingOrder maker, long price, long volume, long now) {
+        if (maker.getOwner() != null) {
+            long remaining = maker.getVolume() - volume;
+            report(instrument, maker.getId(), maker.getOwner(), maker.getSide(), maker.getPrice(),
+                    maker.getOriginalVolume(), price, volume, maker.getOriginalVolume() - remaining, remaining,
+                    remaining == 0 ? "FILLED" : "PARTIALLY_FILLED", 0, now);
+        }
+        instrument.takerFilled += volume;
+        if (instrument.takerOwner != null) {
+            long remaining = instrument.takerVolume - instrument.takerFilled;
+            report(instrument, instrument.takerId, instrument.takerOwner, instrument.takerSide,
+                    instrument.takerPrice, instrument.takerVolume, price, volume, instrument.takerFilled, remaining,
+                    remaining == 0 ? "FILLED" : "PARTIALLY_FILLED", 0, now);
+        }
+    }
+
+    private void report(Instrument instrument, long orderId, String owner, Side side, long price, long volume,
+                        long lastPrice, long lastVolume, long filled, long remaining, String status,
+                        long replacedBy, long timestamp) {
+        emit(instrument.reportSink, new ExecutionReport(orderId, owner, instrument.getSymbol(),
+                side == null ? null : side.name(), SCALE.toPrice(price), SCALE.toVolume(volume),
+                SCALE.toPrice(lastPrice), SCALE.toVolume(lastVolume), SCALE.toVolume(filled),
+                SCALE.toVolume(remaining), status, replacedBy, timestamp));
+    }
+
+    private <T> void emit(Sinks.Many<T> sink, T event) {
+        // отсутствие подписчиков — не потеря; переполнение значит, что кто-то читает без своего буфера
+        if (sink.tryEmitNext(event) == Sinks.EmitResult.FAIL_OVERFLOW) {
+            emitFailures.increment();
+        }
+    }
+
+    // вызывается только на потоке сопоставления инструмента
+    private void journal(Instrument instrument, byte type, Side side, int flags, long orderId, long price,
+                         long volume, long timestamp) {
+        journal(instrument, type, side, flags, orderId, price, volume, timestamp, null);
+    }
+
+    private void journal(Instrument instrument, byte type, Side side, int flags, long orderId, long price,
+                         long volume, long timestamp, String text) {
+        instrument.journaledSequence = journal.append(type, instrument.getId(), side, flags, orderId, price,
+                volume, timestamp, text);
+    }
+
+    /**
+     * Снимает состояние всех валют. Каждая валюта копируется на своём потоке сопоставления
+     * между двумя заявками, так что копия согласована с номером последней записи журнала
+     * этой валюты. На время копирования (O(размер стакана)) сопоставление этой валюты стоит,
+     * приём в кольцевой буфер продолжается; длительность паузы — метрика
+     * {@code exchange.snapshot.capture.pause}. Сериализация идёт уже по копии.
+     * Инструмент, удалённый во время снимка, в него не попадает.
+     */
+    public Mono<List<CurrencySnapshot>> captureSnapshot() {
+        return Flux.fromIterable(localInstruments())
+                .concatMap(instrument -> Mono.fromFuture(instrument.engine.query(book -> captureSnapshot(instrument)))
+                        .takeUntilOther(instrument.whenRemoved()))
+                .collectList();
+    }
+
+    private CurrencySnapshot captureSnapshot(Instrument instrument) {
+        long start = System.nanoTime();
+        CurrencySnapshot snapshot = CurrencySnapshot.capture(instrument.book,
+                instrument.journaledSequence,
+                orderIds.get(),
+                instrument.prevTicks.get(),
+                instrument.quoteIds.clone(),
+                instrument.stats.copy());
+        instrument.capturePause.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return snapshot;
+    }
+
+    @PreDestroy
+    void stopEngines() {
+        generator.stop();
+        localInstruments().forEach(instrument -> instrument.engine.stop());
+    }
+
+    private List<Instrument> localInstruments() {
+        return instruments.list().stream().filter(instrument -> !instrument.isRemote()).toList();
     }
 
     public Flux<StatsData> getStatsFlux() {
         return statsFlux;
     }
 
+    public Flux<TradeEvent> getTradeFlux() {
+        return tradeFlux;
+    }
+
+    /**
+     * Отчёты об исполнении заявок всех пользователей по инструментам этого узла.
+     */
+    public Flux<ExecutionReport> getExecutionFlux() {
+        return executionFlux;
+    }
+
+    /**
+     * Сколько сделок и снимков статистики не удалось отдать в поток из-за переполнения.
+     */
+    public long getEmitFailures() {
+        return emitFailures.sum();
+    }
+
+    public List<String> getCurrencies() {
+        return instruments.list().stream().map(Instrument::getSymbol).toList();
+    }
+
+    public InstrumentRegistry getInstruments() {
+        return instruments;
+    }
+
+    /**
+     * Компактный номер валюты, -1 для неизвестной.
+     */
+    public int currencyId(String currency) {
+        Instrument instrument = instruments.get(currency);
+        return instrument == null ? -1 : instrument.getId();
+    }
+
     private Flux<CurrencyChangedNotification> createNotificationFlux() {
         Flux<CurrencyChangedNotification> changeNotifications = currencyFlux
                 .filter(currencyData -> Math.abs(currencyData.getChange()) > 5)
@@ -105,47 +554,55 @@ public class CurrencyService {
         return Flux.merge(changeNotifications, largeTradeNotifications).share();
     }
 
-    private CurrencyData generateCurrency(
-            String currency,
-            double median,
-            double amplitude,
-            double phase,
-            AtomicReference<Double> prevRef,
-            Long tick
-    ) {
-        double time = tick.doubleValue();
-        double sin = Math.sin(OMEGA * time + phase);
-        double randomFactor = ThreadLocalRandom.current().nextDouble(-0.02, 0.02);
-
-        double price = median * (1 + amplitude * sin + randomFactor);
-
-        long buyVolumeTotal = userOrders.stream()
-                .filter(o -> o.getCurrency().equals(currency) && o.getSide().equalsIgnoreCase("BUY"))
-                .mapToLong(o -> (long) o.getVolume())
-                .sum();
-        long sellVolumeTotal = userOrders.stream()
-                .filter(o -> o.getCurrency().equals(currency) && o.getSide().equalsIgnoreCase("SELL"))
-                .mapToLong(o -> (long) o.getVolume())
-                .sum();
+    /**
+     * Тик инструмента: цена модели, сдвинутая перевесом пользовательских заявок, поданных за 500 мс до {@code now}.
+     */
+    CurrencyData generateCurrency(int id, double modelPrice, long now) {
+        return generateCurrency(instruments.get(id), modelPrice, now);
+    }
+
+    private CurrencyData generateCurrency(Instrument instrument, double modelPrice) {
+        return generateCurrency(instrument, modelPrice, System.currentTimeMillis());
+    }
+
+    private CurrencyData generateCurrency(Instrument instrument, double modelPrice, long now) {
+        long buyVolumeTotal = (long) SCALE.toVolume(instrument.netVolume.recent(Side.BUY, now));
+        long sellVolumeTotal = (long) SCALE.toVolume(instrument.netVolume.recent(Side.SELL, now));
 
         double activityImpact = (buyVolumeTotal - sellVolumeTotal) * 10;
-        price += activityImpact;
+        double price = modelPrice + activityImpact;
+
+        long ticks = SCALE.toTicks(price);
+        long oldTicks = instrument.prevTicks.getAndSet(ticks);
+        double changePct = (double) (ticks - oldTicks) / oldTicks * 100;
 
-        double oldPrice = prevRef.getAndSet(price);
-        double changePct = (price - oldPrice) / oldPrice * 100;
+        return new CurrencyData(instrument.getSymbol(), SCALE.toPrice(ticks), now, changePct);
+    }
 
-        return new CurrencyData(currency, price, System.currentTimeMillis(), changePct);
+    /**
+     * Раз в секунду сдвигает окна статистики и торговый день на потоке сопоставления, чтобы они
+     * устаревали и без сделок; изменившаяся статистика уходит подписчикам. Вызывается генератором.
+     */
+    private void advanceStats(Instrument instrument) {
+        long second = System.currentTimeMillis() / 1000;
+        if (second != instrument.statsSecond) {
+            instrument.statsSecond = second;
+            instrument.engine.execute(book -> {
+                if (instrument.stats.advance(System.currentTimeMillis())) {
+                    emit(instrument.statsSink, instrument.stats.toStatsData());
+                }
+            });
+        }
     }
 
     private Flux<OrderBook> createAutoOrderBookFlux() {
-        return Flux.interval(Duration.ofMillis(500))
+        // снимок стакана готовит поток сопоставления, а дельты и сериализация идут уже на агрегации
+        return Flux.interval(Duration.ofMillis(500), schedulers.aggregation())
                 .filter(tick -> autoGenerateOrderBook)
-                .map(tick -> {
-                    List<OrderBook.Order> bids = generateRandomBids();
-                    List<OrderBook.Order> asks = generateRandomAsks();
-                    processUserOrders(bids, asks);
-                    return new OrderBook(bids, asks);
-                })
+                .concatMap(tick -> Flux.fromIterable(localInstruments())
+                        .concatMap(instrument -> Mono.fromFuture(refreshOrderBook(instrument))
+                                .takeUntilOther(instrument.whenRemoved())
+                                .publishOn(schedulers.aggregation())))
                 .share();
     }
 
@@ -153,152 +610,307 @@ public class CurrencyService {
         this.autoGenerateOrderBook = autoGenerate;
     }
 
-    public void addUserOrder(UserOrder order) {
-        userOrders.offer(order);
+    /**
+     * Передаёт заявку потоку сопоставления её валюты; исполняется сразу, без ожидания тика.
+     * Заявка по инструменту другого узла уходит ему, и номер выдаёт он.
+     *
+     * @return номер заявки для снятия и замены в пределах её валюты; {@link IllegalArgumentException},
+     * если валюта неизвестна или объём и цена недопустимы
+     */
+    public CompletableFuture<Long> addUserOrder(UserOrder order) {
+        Instrument instrument = instruments.get(order.getCurrency());
+        if (instrument == null) {
+            return CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Unknown currency: " + order.getCurrency()));
+        }
+        return submit(instrument, order);
     }
 
-    public Flux<CurrencyData> getCurrencyFlux() {
-        return currencyFlux;
+    /**
+     * То же по номеру инструмента, для клиентов, которые уже знают номер (бинарный WebSocket).
+     */
+    public CompletableFuture<Long> addUserOrder(int instrumentId, UserOrder order) {
+        Instrument instrument = instruments.get(instrumentId);
+        return instrument == null
+                ? CompletableFuture.failedFuture(new IllegalArgumentException("Unknown instrument: " + instrumentId))
+                : submit(instrument, order);
     }
 
-    public Flux<OrderBook> getOrderBookFlux() {
-        return orderBookFlux;
+    private CompletableFuture<Long> submit(Instrument instrument, UserOrder order) {
+        String invalid = invalid(order);
+        if (invalid != null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(invalid));
+        }
+        if (order.getUser() == null) {
+            order.setUser(UserOrder.ANONYMOUS);
+        }
+        if (instrument.isRemote()) {
+            return instrument.route.send(order);
+        }
+        // переход во внутреннее представление — только здесь, на границе API
+        long orderId = orderIds.incrementAndGet();
+        if (!instrument.engine.trySubmit(orderId, Side.of(order.getSide()), orderTicks(instrument, order),
+                SCALE.toLots(order.getVolume()), order.getUser())) {
+            return CompletableFuture.failedFuture(notAccepted(instrument));
+        }
+        instrument.submittedOrders.increment();
+        return CompletableFuture.completedFuture(orderId);
     }
 
-    public Flux<CurrencyChangedNotification> getCurrencyChangedNotificationFlux() {
-        return currencyChangedNotificationFlux;
+    /**
+     * Снимает заявку пользователя. Результат приходит отчётом: CANCELLED или REJECTED,
+     * если заявки уже нет в стакане или она чужая.
+     *
+     * @throws IllegalStateException    если очередь сопоставления валюты заполнена
+     * @throws IllegalArgumentException если валюта неизвестна или уже удалена
+     */
+    public void cancelOrder(String currency, long orderId, String user) {
+        Instrument instrument = instrument(currency);
+        if (instrument.isRemote()) {
+            instrument.route.cancel(orderId, user);
+        } else if (!instrument.engine.tryCancel(orderId, user)) {
+            throw notAccepted(instrument);
+        }
     }
 
-    public OrderBook generateManualOrderBook() {
-        List<OrderBook.Order> bids = generateRandomBids();
-        List<OrderBook.Order> asks = generateRandomAsks();
-        processUserOrders(bids, asks);
-        return new OrderBook(bids, asks);
+    /**
+     * Заменяет заявку пользователя новой с теми же стороной и валютой: старая снимается,
+     * новая сопоставляется и встаёт в конец очереди. Результат приходит отчётами REPLACED и ACCEPTED
+     * или REJECTED.
+     *
+     * @return номер новой заявки; 0, если узел-владелец её не принял
+     */
+    public CompletableFuture<Long> replaceOrder(String currency, long orderId, UserOrder order, String user) {
+        Instrument instrument = instrument(currency);
+        String invalid = invalid(order);
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid);
+        }
+        if (instrument.isRemote()) {
+            return instrument.route.replace(orderId, order, user);
+        }
+        long replacementId = orderIds.incrementAndGet();
+        if (!instrument.engine.tryReplace(orderId, replacementId, orderTicks(instrument, order),
+                SCALE.toLots(order.getVolume()), user)) {
+            return CompletableFuture.failedFuture(notAccepted(instrument));
+        }
+        instrument.submittedOrders.increment();
+        return CompletableFuture.completedFuture(replacementId);
     }
 
-    private void processUserOrders(List<OrderBook.Order> bids, List<OrderBook.Order> asks) {
-        while (!userOrders.isEmpty()) {
-            UserOrder order = userOrders.poll();
-            double orderVolume = order.getVolume();
+    // кольцо сопоставления полно: запрос отклоняется сразу, поток цикла событий не ждёт;
+    // остановленный движок значит, что инструмент удалили между поиском и отправкой
+    private static RuntimeException notAccepted(Instrument instrument) {
+        if (instrument.engine.isStopped()) {
+            return new IllegalArgumentException("Unknown currency: " + instrument.getSymbol());
+        }
+        return new IllegalStateException("Matching queue of " + instrument.getSymbol() + " is full");
+    }
 
+    /**
+     * Почему заявку нельзя принять, или null. Объём — хотя бы один лот, цена (если задана) —
+     * хотя бы один шаг: нулевые, отрицательные и нечисловые значения в стакан не попадают.
+     */
+    private static String invalid(UserOrder order) {
+        double volume = order.getVolume();
+        if (!Double.isFinite(volume) || SCALE.toLots(volume) <= 0) {
+            return "Order volume must be at least one lot: " + volume;
+        }
+        Double price = order.getUserPrice();
+        if (price != null && (!Double.isFinite(price) || SCALE.toTicks(price) <= 0)) {
+            return "Limit price must be positive: " + price;
+        }
+        return null;
+    }
+
+    private Instrument instrument(String currency) {
+        Instrument instrument = instruments.get(currency);
+        if (instrument == null) {
+            throw new IllegalArgumentException("Unknown currency: " + currency);
+        }
+        return instrument;
+    }
+
+    private Instrument localInstrument(String currency) {
+        Instrument instrument = instruments.get(currency);
+        if (instrument == null || instrument.isRemote()) {
+            throw new IllegalArgumentException("Unknown local currency: " + currency);
+        }
+        return instrument;
+    }
 
-            double basePrice = getBasePrice(order.getCurrency());
+    private static long orderTicks(Instrument instrument, UserOrder order) {
+        // Если пользователь указал конкретную цену, берём её.
+        // Если userPrice == null, продолжаем старую логику (basePrice + случайный offset).
+        double finalPrice;
+        if (order.getUserPrice() != null) {
+            finalPrice = order.getUserPrice();
+        } else {
+            double randomOffset = ThreadLocalRandom.current().nextDouble(-1, 1);
+            finalPrice = instrument.getBasePrice() + randomOffset;
+        }
+        return SCALE.toTicks(finalPrice);
+    }
 
-            // Если пользователь указал конкретную цену, берём её.
-            // Если userPrice == null, продолжаем старую логику (basePrice + случайный offset).
-            double finalPrice;
-            if (order.getUserPrice() != null) {
-                finalPrice = order.getUserPrice();
-            } else {
-                double randomOffset = ThreadLocalRandom.current().nextDouble(-1, 1);
-                finalPrice = basePrice + randomOffset;
+    /**
+     * Пачка заявок: номера выдаются одним шагом, заявки каждой валюты уходят её потоку
+     * сопоставления одной командой, а отчёты отдаются после одного ожидания сброса журнала
+     * на всю пачку — ответ подтверждает, что заявки переживут перезапуск.
+     * Отчёты идут в порядке заявок; заявки валюты, чья очередь сопоставления заполнена, отклоняются.
+     * Заявки по инструментам других узлов уходят владельцам, и ответ ждёт выданных ими номеров;
+     * их исполнение приходит отчётами об исполнении.
+     */
+    public Flux<OrderReport> addUserOrders(List<UserOrder> orders) {
+        Instrument[] targets = new Instrument[orders.size()];
+        Map<Instrument, OrderBatch> batches = new LinkedHashMap<>();
+        Map<Instrument, Integer> batchSizes = new HashMap<>();
+        int local = 0;
+        for (int i = 0; i < orders.size(); i++) {
+            // заявка с недопустимыми объёмом или ценой отклоняется, как по неизвестной валюте
+            UserOrder order = orders.get(i);
+            Instrument instrument = invalid(order) == null ? instruments.get(order.getCurrency()) : null;
+            targets[i] = instrument;
+            if (instrument != null && !instrument.isRemote()) {
+                batchSizes.merge(instrument, 1, Integer::sum);
+                local++;
             }
+        }
 
-            if ("BUY".equalsIgnoreCase(order.getSide())) {
-                // Частичная логика исполнения
-                asks.sort(Comparator.comparingDouble(OrderBook.Order::getPrice));
-                int i = 0;
-                while (i < asks.size() && orderVolume > 0) {
-                    OrderBook.Order currentAsk = asks.get(i);
-                    if (currentAsk.getPrice() <= finalPrice) {
-                        double availableVol = currentAsk.getVolume();
-                        if (availableVol <= orderVolume) {
-                            orderVolume -= availableVol;
-                            tradeSink.tryEmitNext(new TradeEvent(
-                                    order.getCurrency(),
-                                    currentAsk.getPrice(),
-                                    availableVol,
-                                    System.currentTimeMillis()
-                            ));
-                            asks.remove(i);
-                        } else {
-                            currentAsk.setVolume(availableVol - orderVolume);
-                            tradeSink.tryEmitNext(new TradeEvent(
-                                    order.getCurrency(),
-                                    currentAsk.getPrice(),
-                                    orderVolume,
-                                    System.currentTimeMillis()
-                            ));
-                            orderVolume = 0;
-                        }
-                    } else {
-                        i++;
+        long nextId = orderIds.getAndAdd(local) + 1;
+        long[] ids = new long[orders.size()];
+        Map<Integer, CompletableFuture<Long>> routed = new HashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Instrument instrument = targets[i];
+            UserOrder order = orders.get(i);
+            if (instrument == null) {
+                continue;
+            }
+            if (order.getUser() == null) {
+                order.setUser(UserOrder.ANONYMOUS);
+            }
+            if (instrument.isRemote()) {
+                // узел не ответил или отключился — заявка отклонена, остальная пачка не ждёт ошибки
+                routed.put(i, instrument.route.send(order).exceptionally(error -> 0L));
+                continue;
+            }
+            ids[i] = nextId++;
+            batches.computeIfAbsent(instrument, key -> new OrderBatch(batchSizes.get(key)))
+                    .add(ids[i], Side.of(order.getSide()), orderTicks(instrument, order),
+                            SCALE.toLots(order.getVolume()), order.getUser());
+        }
+        batches.entrySet().removeIf(entry -> {
+            if (!entry.getKey().engine.trySubmit(entry.getValue())) {
+                return true;
+            }
+            entry.getKey().submittedOrders.increment(entry.getValue().size());
+            return false;
+        });
+
+        return Mono.fromFuture(CompletableFuture.allOf(routed.values().toArray(CompletableFuture[]::new)))
+                .thenMany(Flux.fromIterable(batches.values()))
+                .concatMap(batch -> Mono.fromFuture(batch.done()))
+                .map(OrderBatch::getJournalSequence)
+                .reduce(0L, Math::max)
+                .publishOn(schedulers.io())
+                .doOnNext(sequence -> {
+                    try {
+                        journal.awaitDurable(sequence);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for the journal", e);
                     }
-                }
-                // Остаток (не исполненная часть) уходит в bids
-                if (orderVolume > 0) {
-                    bids.add(new OrderBook.Order(finalPrice, orderVolume));
-                }
+                })
+                .flatMapMany(sequence -> {
+                    routed.forEach((i, orderId) -> ids[i] = orderId.join());
+                    return Flux.fromArray(reports(orders, targets, ids, batches));
+                });
+    }
 
-            } else {
-                // SELL-логика
-                bids.sort((o1, o2) -> Double.compare(o2.getPrice(), o1.getPrice()));
-                int i = 0;
-                while (i < bids.size() && orderVolume > 0) {
-                    OrderBook.Order currentBid = bids.get(i);
-                    if (currentBid.getPrice() >= finalPrice) {
-                        double availableVol = currentBid.getVolume();
-                        if (availableVol <= orderVolume) {
-                            orderVolume -= availableVol;
-                            tradeSink.tryEmitNext(new TradeEvent(
-                                    order.getCurrency(),
-                                    currentBid.getPrice(),
-                                    availableVol,
-                                    System.currentTimeMillis()
-                            ));
-                            bids.remove(i);
-                        } else {
-                            currentBid.setVolume(availableVol - orderVolume);
-                            tradeSink.tryEmitNext(new TradeEvent(
-                                    order.getCurrency(),
-                                    currentBid.getPrice(),
-                                    orderVolume,
-                                    System.currentTimeMillis()
-                            ));
-                            orderVolume = 0;
-                        }
-                    } else {
-                        i++;
-                    }
-                }
-                // Остаток уходит в asks
-                if (orderVolume > 0) {
-                    asks.add(new OrderBook.Order(finalPrice, orderVolume));
-                }
+    private static OrderReport[] reports(List<UserOrder> orders, Instrument[] targets, long[] ids,
+                                         Map<Instrument, OrderBatch> batches) {
+        OrderReport[] reports = new OrderReport[orders.size()];
+        Map<Instrument, Integer> positions = new HashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            UserOrder order = orders.get(i);
+            Instrument instrument = targets[i];
+            OrderBatch batch = instrument == null ? null : batches.get(instrument);
+            if (batch == null) {
+                // номер заявки другого узла выдал владелец; 0 — он её не принял
+                boolean routed = instrument != null && instrument.isRemote() && ids[i] != 0;
+                reports[i] = new OrderReport(routed ? ids[i] : 0, order.getCurrency(), order.getSide(),
+                        order.getUserPrice() != null ? order.getUserPrice() : 0, order.getVolume(), 0, 0,
+                        routed ? "ROUTED" : "REJECTED");
+                continue;
             }
+            int position = positions.merge(instrument, 1, Integer::sum) - 1;
+            long filled = batch.volume(position) - batch.remaining(position);
+            String status = batch.remaining(position) == 0 ? "FILLED"
+                    : filled > 0 ? "PARTIALLY_FILLED" : "RESTING";
+            reports[i] = new OrderReport(ids[i], instrument.getSymbol(), batch.side(position).name(),
+                    SCALE.toPrice(batch.price(position)), SCALE.toVolume(batch.volume(position)),
+                    SCALE.toVolume(filled),
+                    filled == 0 ? 0 : SCALE.toPrice(1) * batch.filledNotional(position) / filled,
+                    status);
         }
+        return reports;
+    }
 
-        bids.sort((o1, o2) -> Double.compare(o2.getPrice(), o1.getPrice()));
-        asks.sort((o1, o2) -> Double.compare(o1.getPrice(), o2.getPrice()));
+    public Flux<CurrencyData> getCurrencyFlux() {
+        return currencyFlux;
     }
 
-    private List<OrderBook.Order> generateRandomBids() {
-        List<OrderBook.Order> bids = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
-            double price = MEDIAN_USD - i - ThreadLocalRandom.current().nextDouble(0.5);
-            double volume = ThreadLocalRandom.current().nextDouble(10, 100);
-            bids.add(new OrderBook.Order(price, volume));
-        }
-        return bids;
+    public Flux<OrderBook> getOrderBookFlux() {
+        return orderBookFlux;
     }
 
-    private List<OrderBook.Order> generateRandomAsks() {
-        List<OrderBook.Order> asks = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
-            double price = MEDIAN_USD + i + ThreadLocalRandom.current().nextDouble(0.5);
-            double volume = ThreadLocalRandom.current().nextDouble(10, 100);
-            asks.add(new OrderBook.Order(price, volume));
+    public Flux<CurrencyChangedNotification> getCurrencyChangedNotificationFlux() {
+        return currencyChangedNotificationFlux;
+    }
+
+    public OrderBook generateManualOrderBook(String currency) {
+        return refreshOrderBook(localInstrument(currency)).join();
+    }
+
+    private CompletableFuture<OrderBook> refreshOrderBook(Instrument instrument) {
+        instrument.engine.execute(book -> requoteMarketMaker(instrument, book));
+        return instrument.engine.query(book -> book.snapshot(BOOK_DEPTH));
+    }
+
+    /**
+     * Маркет-мейкер снимает свои прошлые котировки и выставляет новые вокруг базовой цены.
+     * Пользовательские заявки при этом остаются в стакане. Котировки встают без сопоставления,
+     * поэтому цена котировки не заходит за лучшую встречную пользовательскую заявку:
+     * иначе стакан остался бы пересечённым и эти заявки никогда бы не исполнились.
+     */
+    private void requoteMarketMaker(Instrument instrument, LimitOrderBook book) {
+        long[] quoteIds = instrument.quoteIds;
+        long now = System.currentTimeMillis();
+        // сначала снимаются все прошлые котировки: дальше лучшие цены стакана — только пользовательские
+        for (int slot = 0; slot < quoteIds.length; slot++) {
+            if (book.cancel(quoteIds[slot]) != null) {
+                journal(instrument, JournalRecord.CANCEL, null, 0, quoteIds[slot], 0, 0, now);
+            }
+        }
+        long maxBid = book.bestAsk() - 1;
+        long minAsk = book.bestBid() + 1;
+        double basePrice = instrument.getBasePrice();
+        for (int i = 0; i < QUOTE_LEVELS; i++) {
+            double bidPrice = basePrice - i - ThreadLocalRandom.current().nextDouble(0.5);
+            double askPrice = basePrice + i + ThreadLocalRandom.current().nextDouble(0.5);
+            quote(instrument, book, i, Side.BUY, Math.min(SCALE.toTicks(bidPrice), maxBid),
+                    SCALE.toLots(ThreadLocalRandom.current().nextDouble(10, 100)), now);
+            quote(instrument, book, QUOTE_LEVELS + i, Side.SELL, Math.max(SCALE.toTicks(askPrice), minAsk),
+                    SCALE.toLots(ThreadLocalRandom.current().nextDouble(10, 100)), now);
         }
-        return asks;
     }
 
-    private double getBasePrice(String currency) {
-        return switch (currency) {
-            case "USD" -> MEDIAN_USD;
-            case "EUR" -> MEDIAN_EUR;
-            case "CNY" -> MEDIAN_CNY;
-            default -> MEDIAN_USD;
-        };
+    // котировки журналируются как обычные команды стакана, чтобы проигрывание давало те же сделки
+    private void quote(Instrument instrument, LimitOrderBook book, int slot, Side side, long price, long volume,
+                       long now) {
+        long[] quoteIds = instrument.quoteIds;
+        quoteIds[slot] = orderIds.incrementAndGet();
+        journal(instrument, JournalRecord.QUOTE, side, slot, quoteIds[slot], price, volume, now);
+        book.add(quoteIds[slot], side, price, volume, false);
     }
 
 }
@@ -0,0 +1,156 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.engine.LimitOrderBook;
+import com.nesterrovv.currencyexchange.engine.MatchingEngine;
+import com.nesterrovv.currencyexchange.engine.Side;
+import com.nesterrovv.currencyexchange.generator.PriceModel;
+import com.nesterrovv.currencyexchange.model.CurrencyData;
+import com.nesterrovv.currencyexchange.model.ExecutionReport;
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Инструмент биржи со всем своим состоянием: стакан и поток сопоставления, модель цены,
+ * статистика и отдельные sink'и тиков, сделок и статистики. Инструменты друг с другом
+ * ничего не делят, поэтому их число масштабируется по ядрам.
+ * <p>
+ * Котировки маркет-мейкера, статистику и номер последней записи журнала меняет
+ * только поток сопоставления инструмента.
+ * <p>
+ * Инструмент другого узла кластера ({@link #isRemote()}) стакана здесь не имеет:
+ * заявки уходят владельцу через {@link OrderRoute}, а разделы потоков и снимки стакана
+ * наполняет соединение с этим узлом.
+ */
+public class Instrument {
+
+    private final int id;
+    private final String symbol;
+    private final double basePrice;
+    private final String modelName;
+    final PriceModel model;
+
+    final LimitOrderBook book;
+    MatchingEngine engine;
+    final OrderRoute route;
+    final long[] quoteIds;
+    StatsAccumulator stats;
+    long journaledSequence;
+
+    // входящая заявка, которую сейчас сопоставляет поток инструмента, — для отчётов по ней
+    long takerId;
+    Side takerSide;
+    long takerPrice;
+    long takerVolume;
+    long takerFilled;
+    String takerOwner;
+
+    final NetVolumeTracker netVolume = new NetVolumeTracker();
+    // секунда последнего сдвига окон статистики: пишет и читает только генератор
+    long statsSecond;
+    // предыдущая цена в шагах цены: пишет генератор, читает снимок
+    final AtomicLong prevTicks;
+
+    Counter submittedOrders;
+    Timer capturePause;
+    final List<Meter> meters = new ArrayList<>();
+
+    // у каждого sink'а один пишущий поток: тики — генератор, сделки и статистика — поток сопоставления;
+    // общего буфера нет, подписчики сами держат ограниченные буферы (см. SubscriberPolicies)
+    final Sinks.Many<CurrencyData> tickSink = Sinks.many().multicast().directBestEffort();
+    final Sinks.Many<TradeEvent> tradeSink = Sinks.many().multicast().directBestEffort();
+    final Sinks.Many<StatsData> statsSink = Sinks.many().multicast().directBestEffort();
+    // только у инструментов другого узла: свои стаканы снимаются по таймеру (см. CurrencyService)
+    final Sinks.Many<OrderBook> bookSink = Sinks.many().multicast().directBestEffort();
+    // отчёты об исполнении пишет поток сопоставления, у инструментов другого узла — соединение с ним
+    final Sinks.Many<ExecutionReport> reportSink = Sinks.many().multicast().directBestEffort();
+    private final Sinks.Empty<Void> removed = Sinks.empty();
+
+    Instrument(int id, String symbol, double basePrice, String modelName, PriceModel model,
+               LimitOrderBook book, OrderRoute route, int quoteSlots, long initialTicks) {
+        this.id = id;
+        this.symbol = symbol;
+        this.basePrice = basePrice;
+        this.modelName = modelName;
+        this.model = model;
+        this.book = book;
+        this.route = route;
+        this.quoteIds = new long[quoteSlots];
+        this.stats = new StatsAccumulator(symbol);
+        this.prevTicks = new AtomicLong(initialTicks);
+    }
+
+    /**
+     * Компактный номер: индекс в реестре, байт валюты в журнале и бинарном протоколе.
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public double getBasePrice() {
+        return basePrice;
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    /**
+     * Инструмент принадлежит другому узлу кластера.
+     */
+    public boolean isRemote() {
+        return route != null;
+    }
+
+    public Flux<CurrencyData> getTickFlux() {
+        return tickSink.asFlux();
+    }
+
+    public Flux<TradeEvent> getTradeFlux() {
+        return tradeSink.asFlux();
+    }
+
+    public Flux<StatsData> getStatsFlux() {
+        return statsSink.asFlux();
+    }
+
+    Flux<OrderBook> getBookFlux() {
+        return bookSink.asFlux();
+    }
+
+    public Flux<ExecutionReport> getReportFlux() {
+        return reportSink.asFlux();
+    }
+
+    /**
+     * Завершается, когда инструмент удалён: запросы к его остановленному потоку
+     * сопоставления уже не будут выполнены.
+     */
+    public Mono<Void> whenRemoved() {
+        return removed.asMono();
+    }
+
+    // после удаления инструмента его разделы потоков завершаются
+    void complete() {
+        tickSink.tryEmitComplete();
+        tradeSink.tryEmitComplete();
+        statsSink.tryEmitComplete();
+        bookSink.tryEmitComplete();
+        reportSink.tryEmitComplete();
+        removed.tryEmitEmpty();
+    }
+}
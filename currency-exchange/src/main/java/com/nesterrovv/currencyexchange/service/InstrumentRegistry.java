@@ -0,0 +1,122 @@
+package com.nesterrovv.currencyexchange.service;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Реестр инструментов: символ и компактный номер. Поиск по номеру — чтение массива
+ * без блокировок; добавление и удаление редкие и заменяют массив копией.
+ * Номер закреплён за символом: удалённый и снова добавленный инструмент (например,
+ * после переподключения узла кластера) получает прежний номер, так что записи журнала
+ * и подписки по номеру всегда относятся к одному инструменту.
+ */
+public class InstrumentRegistry {
+
+    /**
+     * Номер занимает байт в журнале и бинарном протоколе, 0xFF означает «все валюты».
+     */
+    public static final int MAX_INSTRUMENTS = 0xFF;
+
+    private volatile Instrument[] byId = new Instrument[0];
+    private final Map<String, Instrument> bySymbol = new ConcurrentHashMap<>();
+    // только живые добавления: уже зарегистрированные выдаёт added() из list(),
+    // так что удалённые инструменты здесь не копятся
+    private final Sinks.Many<Instrument> added = Sinks.many().multicast().directBestEffort();
+    private final Map<String, Integer> assignedIds = new HashMap<>();
+
+    /**
+     * Резервирует номер для нового инструмента.
+     */
+    synchronized int reserve(String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            throw new IllegalArgumentException("Instrument symbol is required");
+        }
+        if (bySymbol.containsKey(symbol)) {
+            throw new IllegalArgumentException("Instrument " + symbol + " already exists");
+        }
+        Integer assigned = assignedIds.get(symbol);
+        if (assigned != null) {
+            return assigned;
+        }
+        if (assignedIds.size() == MAX_INSTRUMENTS) {
+            throw new IllegalArgumentException("Instrument limit of " + MAX_INSTRUMENTS + " reached");
+        }
+        int id = assignedIds.size();
+        assignedIds.put(symbol, id);
+        return id;
+    }
+
+    synchronized void add(Instrument instrument) {
+        if (bySymbol.putIfAbsent(instrument.getSymbol(), instrument) != null) {
+            throw new IllegalArgumentException("Instrument " + instrument.getSymbol() + " already exists");
+        }
+        Instrument[] updated = Arrays.copyOf(byId, Math.max(byId.length, instrument.getId() + 1));
+        updated[instrument.getId()] = instrument;
+        byId = updated;
+        added.tryEmitNext(instrument);
+    }
+
+    /**
+     * Убирает именно этот экземпляр, если он ещё зарегистрирован.
+     */
+    synchronized Instrument remove(Instrument instrument) {
+        if (instrument != null && bySymbol.remove(instrument.getSymbol(), instrument)) {
+            Instrument[] updated = byId.clone();
+            updated[instrument.getId()] = null;
+            byId = updated;
+            return instrument;
+        }
+        return null;
+    }
+
+    /**
+     * Инструмент по номеру, null для неизвестного или удалённого.
+     */
+    public Instrument get(int id) {
+        Instrument[] current = byId;
+        return id >= 0 && id < current.length ? current[id] : null;
+    }
+
+    /**
+     * Инструмент по символу, null для неизвестного. Только на границе API.
+     */
+    public Instrument get(String symbol) {
+        return symbol == null ? null : bySymbol.get(symbol);
+    }
+
+    /**
+     * Текущие инструменты в порядке номеров.
+     */
+    public List<Instrument> list() {
+        List<Instrument> result = new ArrayList<>();
+        for (Instrument instrument : byId) {
+            if (instrument != null) {
+                result.add(instrument);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Текущие инструменты, затем будущие. Подписка на живой поток и снимок берутся
+     * под тем же замком, что и add(), поэтому добавление между ними не теряется
+     * и не приходит дважды.
+     */
+    public Flux<Instrument> added() {
+        return Flux.create(sink -> {
+            synchronized (this) {
+                Disposable live = added.asFlux().subscribe(sink::next, sink::error, sink::complete);
+                sink.onDispose(live);
+                list().forEach(sink::next);
+            }
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.engine.Side;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Объём (в лотах) пользовательских заявок инструмента, принятых за последние {@link #WINDOW_MILLIS}
+ * миллисекунд, по сторонам. Как и прежде, на цену влияют только недавно поданные заявки:
+ * стоящая в стакане крупная заявка не сдвигает цену на каждом тике.
+ * <p>
+ * Окно — кольцо корзин по времени приёма, так что чтение — O(корзин) независимо от числа заявок.
+ * Пишет один поток (поток сопоставления или восстановление до его запуска), читает генератор.
+ */
+public class NetVolumeTracker {
+
+    public static final long WINDOW_MILLIS = 500;
+    private static final int BUCKETS = 5;
+    private static final long BUCKET_MILLIS = WINDOW_MILLIS / BUCKETS;
+
+    // по корзине на сторону: номер интервала и объём за него
+    private final AtomicLongArray intervals = new AtomicLongArray(Side.values().length * BUCKETS);
+    private final AtomicLongArray volumes = new AtomicLongArray(Side.values().length * BUCKETS);
+
+    public NetVolumeTracker() {
+        for (int i = 0; i < intervals.length(); i++) {
+            intervals.set(i, Long.MIN_VALUE);
+        }
+    }
+
+    public void onAccepted(Side side, long volume, long timeMillis) {
+        long interval = Math.floorDiv(timeMillis, BUCKET_MILLIS);
+        int slot = slot(side, interval);
+        long current = intervals.get(slot);
+        if (interval == current) {
+            volumes.addAndGet(slot, volume);
+        } else if (interval > current) {
+            // сначала объём, потом номер: читатель сверяет номер до и после чтения объёма
+            intervals.set(slot, Long.MIN_VALUE);
+            volumes.set(slot, volume);
+            intervals.set(slot, interval);
+        }
+        // ещё более старая заявка уже вне окна
+    }
+
+    public long recent(Side side, long nowMillis) {
+        long now = Math.floorDiv(nowMillis, BUCKET_MILLIS);
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            int slot = side.ordinal() * BUCKETS + i;
+            long interval = intervals.get(slot);
+            long volume = volumes.get(slot);
+            if (interval > now - BUCKETS && interval <= now && intervals.get(slot) == interval) {
+                total += volume;
+            }
+        }
+        return total;
+    }
+
+    private static int slot(Side side, long interval) {
+        return side.ordinal() * BUCKETS + (int) Math.floorMod(interval, (long) BUCKETS);
+    }
+}
@@ -0,0 +1,115 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.OrderBookUpdate;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Превращает поток снимков стакана в снимок + дельты уровней.
+ * Дельты считаются один раз на общем потоке и раздаются всем подписчикам.
+ */
+@Service
+public class OrderBookDeltaService {
+
+    private final Map<String, BookState> states = new ConcurrentHashMap<>();
+    private final Flux<OrderBookUpdate> deltaFlux;
+
+    public OrderBookDeltaService(CurrencyService currencyService) {
+        this.deltaFlux = currencyService.getOrderBookFlux()
+                .map(this::diff)
+                .filter(update -> !update.getChanges().isEmpty())
+                .share();
+    }
+
+    /**
+     * Снимок с текущим номером, затем дельты с большими номерами. На дельты подписываемся
+     * до снятия снимка и копим их, иначе изменения между снимком и подпиской пропали бы.
+     */
+    public Flux<OrderBookUpdate> subscribe(String currency) {
+        return Flux.defer(() -> {
+            Sinks.Many<OrderBookUpdate> buffered = Sinks.many().unicast().onBackpressureBuffer();
+            Disposable live = deltaFlux
+                    .filter(update -> update.getCurrency().equals(currency))
+                    .subscribe(buffered::tryEmitNext, buffered::tryEmitError, buffered::tryEmitComplete);
+            OrderBookUpdate snapshot = snapshot(currency);
+            return buffered.asFlux()
+                    .filter(update -> update.getSequence() > snapshot.getSequence())
+                    .startWith(snapshot)
+                    .doFinally(signal -> live.dispose());
+        });
+    }
+
+    /**
+     * Общий поток дельт всех валют, без начального снимка.
+     */
+    public Flux<OrderBookUpdate> getDeltaFlux() {
+        return deltaFlux;
+    }
+
+    /**
+     * Запрос на пересинхронизацию после пропуска в номерах.
+     */
+    public Mono<OrderBookUpdate> resync(String currency) {
+        return Mono.fromSupplier(() -> snapshot(currency));
+    }
+
+    private OrderBookUpdate snapshot(String currency) {
+        BookState state = states.getOrDefault(currency, BookState.EMPTY);
+        List<OrderBookUpdate.LevelChange> levels = new ArrayList<>(state.bids.size() + state.asks.size());
+        state.bids.forEach((price, volume) -> levels.add(new OrderBookUpdate.LevelChange("BUY", price, volume)));
+        state.asks.forEach((price, volume) -> levels.add(new OrderBookUpdate.LevelChange("SELL", price, volume)));
+        return new OrderBookUpdate(currency, state.sequence, true, levels);
+    }
+
+    // вызывается только из общего потока снимков, поэтому состояние валюты меняет один поток
+    private OrderBookUpdate diff(OrderBook book) {
+        BookState previous = states.getOrDefault(book.getCurrency(), BookState.EMPTY);
+        Map<Double, Double> bids = levels(book.getBids());
+        Map<Double, Double> asks = levels(book.getAsks());
+
+        List<OrderBookUpdate.LevelChange> changes = new ArrayList<>();
+        diffSide("BUY", previous.bids, bids, changes);
+        diffSide("SELL", previous.asks, asks, changes);
+
+        long sequence = changes.isEmpty() ? previous.sequence : previous.sequence + 1;
+        states.put(book.getCurrency(), new BookState(sequence, bids, asks));
+        return new OrderBookUpdate(book.getCurrency(), sequence, false, changes);
+    }
+
+    private static void diffSide(String side, Map<Double, Double> before, Map<Double, Double> after,
+                                 List<OrderBookUpdate.LevelChange> changes) {
+        after.forEach((price, volume) -> {
+            if (!volume.equals(before.get(price))) {
+                changes.add(new OrderBookUpdate.LevelChange(side, price, volume));
+            }
+        });
+        before.keySet().forEach(price -> {
+            if (!after.containsKey(price)) {
+                changes.add(new OrderBookUpdate.LevelChange(side, price, 0));
+            }
+        });
+    }
+
+    private static Map<Double, Double> levels(List<OrderBook.Order> orders) {
+        Map<Double, Double> levels = new LinkedHashMap<>();
+        for (OrderBook.Order order : orders) {
+            levels.put(order.getPrice(), order.getVolume());
+        }
+        return levels;
+    }
+
+    private record BookState(long sequence, Map<Double, Double> bids, Map<Double, Double> asks) {
+
+        static final BookState EMPTY = new BookState(0, Map.of(), Map.of());
+    }
+}
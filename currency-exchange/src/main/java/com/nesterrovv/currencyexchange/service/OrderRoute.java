@@ -0,0 +1,24 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.UserOrder;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Доставка заявок и команд по ним узлу кластера, которому принадлежит инструмент.
+ * Номера заявок выдаёт узел-владелец; отчёты об исполнении приходят от него же.
+ */
+public interface OrderRoute {
+
+    /**
+     * @return номер заявки на узле-владельце, 0 — если он её не принял
+     */
+    CompletableFuture<Long> send(UserOrder order);
+
+    void cancel(long orderId, String user);
+
+    /**
+     * @return номер новой заявки на узле-владельце, 0 — если он её не принял
+     */
+    CompletableFuture<Long> replace(long orderId, UserOrder order, String user);
+}
@@ -0,0 +1,256 @@
+package com.nesterrovv.currencyexchange.service;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Скользящее окно статистики сделок длиной {@code seconds} секунд.
+ * Сделки складываются в кольцо посекундных корзин, суммы объёма и оборота
+ * поддерживаются инкрементально, максимум и минимум — монотонными очередями
+ * по корзинам. Сделка обходится в O(1) (амортизированно), память не зависит
+ * от числа сделок.
+ */
+class RollingWindow {
+
+    private final int seconds;
+    private final long[] bucketSecond;
+    private final double[] bucketVolume;
+    private final double[] bucketNotional;
+    private final long[] bucketCount;
+    private final double[] bucketHigh;
+    private final double[] bucketLow;
+
+    private final MonotonicDeque highs;
+    private final MonotonicDeque lows;
+
+    private long currentSecond = Long.MIN_VALUE;
+    private double volume;
+    private double notional;
+    private long count;
+
+    RollingWindow(int seconds) {
+        this.seconds = seconds;
+        this.bucketSecond = new long[seconds];
+        this.bucketVolume = new double[seconds];
+        this.bucketNotional = new double[seconds];
+        this.bucketCount = new long[seconds];
+        this.bucketHigh = new double[seconds];
+        this.bucketLow = new double[seconds];
+        Arrays.fill(bucketSecond, Long.MIN_VALUE);
+        this.highs = new MonotonicDeque(seconds + 1, true);
+        this.lows = new MonotonicDeque(seconds + 1, false);
+    }
+
+    /**
+     * Независимая копия окна (для снимка состояния).
+     */
+    RollingWindow(RollingWindow source) {
+        this.seconds = source.seconds;
+        this.bucketSecond = source.bucketSecond.clone();
+        this.bucketVolume = source.bucketVolume.clone();
+        this.bucketNotional = source.bucketNotional.clone();
+        this.bucketCount = source.bucketCount.clone();
+        this.bucketHigh = source.bucketHigh.clone();
+        this.bucketLow = source.bucketLow.clone();
+        this.highs = new MonotonicDeque(source.highs);
+        this.lows = new MonotonicDeque(source.lows);
+        this.currentSecond = source.currentSecond;
+        this.volume = source.volume;
+        this.notional = source.notional;
+        this.count = source.count;
+    }
+
+    void add(long second, double price, double tradeVolume) {
+        advance(second);
+        // опоздавшая сделка учитывается в текущей секунде, чтобы очереди оставались упорядоченными
+        long effectiveSecond = Math.max(second, currentSecond);
+        int slot = slot(effectiveSecond);
+        if (bucketSecond[slot] != effectiveSecond) {
+            bucketSecond[slot] = effectiveSecond;
+            bucketVolume[slot] = 0;
+            bucketNotional[slot] = 0;
+            bucketCount[slot] = 0;
+            bucketHigh[slot] = Double.NEGATIVE_INFINITY;
+            bucketLow[slot] = Double.POSITIVE_INFINITY;
+        }
+        bucketVolume[slot] += tradeVolume;
+        bucketNotional[slot] += price * tradeVolume;
+        bucketCount[slot]++;
+        volume += tradeVolume;
+        notional += price * tradeVolume;
+        count++;
+        if (price > bucketHigh[slot]) {
+            bucketHigh[slot] = price;
+            highs.offer(effectiveSecond, price);
+        }
+        if (price < bucketLow[slot]) {
+            bucketLow[slot] = price;
+            lows.offer(effectiveSecond, price);
+        }
+    }
+
+    /**
+     * Сдвигает окно к секунде {@code second}, вычитая выпавшие корзины.
+     */
+    void advance(long second) {
+        if (second <= currentSecond) {
+            return;
+        }
+        long steps = currentSecond == Long.MIN_VALUE ? seconds : Math.min(second - currentSecond, seconds);
+        long cutoff = second - seconds;
+        for (long s = second - steps + 1; s <= second; s++) {
+            int slot = slot(s);
+            if (bucketSecond[slot] != Long.MIN_VALUE && bucketSecond[slot] <= cutoff) {
+                volume -= bucketVolume[slot];
+                notional -= bucketNotional[slot];
+                count -= bucketCount[slot];
+                bucketSecond[slot] = Long.MIN_VALUE;
+            }
+        }
+        if (count == 0) {
+            // гасим накопленную ошибку округления
+            volume = 0;
+            notional = 0;
+        }
+        highs.expire(cutoff);
+        lows.expire(cutoff);
+        currentSecond = second;
+    }
+
+    double high() {
+        return highs.peek();
+    }
+
+    double low() {
+        return lows.peek();
+    }
+
+    double volume() {
+        return volume;
+    }
+
+    long count() {
+        return count;
+    }
+
+    double vwap() {
+        return volume > 0 ? notional / volume : Double.NaN;
+    }
+
+    /**
+     * Пишет только непустые корзины; очереди максимумов и минимумов из них восстанавливаются.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        int buckets = 0;
+        for (long second : bucketSecond) {
+            if (second != Long.MIN_VALUE) {
+                buckets++;
+            }
+        }
+        out.writeLong(currentSecond);
+        out.writeInt(buckets);
+        for (int slot = 0; slot < seconds; slot++) {
+            if (bucketSecond[slot] != Long.MIN_VALUE) {
+                out.writeLong(bucketSecond[slot]);
+                out.writeDouble(bucketVolume[slot]);
+                out.writeDouble(bucketNotional[slot]);
+                out.writeLong(bucketCount[slot]);
+                out.writeDouble(bucketHigh[slot]);
+                out.writeDouble(bucketLow[slot]);
+            }
+        }
+    }
+
+    /**
+     * Заполняет пустое окно состоянием, записанным {@link #writeTo}.
+     */
+    void readFrom(DataInput in) throws IOException {
+        currentSecond = in.readLong();
+        int buckets = in.readInt();
+        for (int i = 0; i < buckets; i++) {
+            long second = in.readLong();
+            int slot = slot(second);
+            bucketSecond[slot] = second;
+            bucketVolume[slot] = in.readDouble();
+            bucketNotional[slot] = in.readDouble();
+            bucketCount[slot] = in.readLong();
+            bucketHigh[slot] = in.readDouble();
+            bucketLow[slot] = in.readDouble();
+            volume += bucketVolume[slot];
+            notional += bucketNotional[slot];
+            count += bucketCount[slot];
+        }
+        if (buckets == 0) {
+            return;
+        }
+        // итоговые экстремумы корзин в порядке времени дают те же монотонные очереди
+        for (long second = currentSecond - seconds + 1; second <= currentSecond; second++) {
+            int slot = slot(second);
+            if (bucketSecond[slot] == second) {
+                highs.offer(second, bucketHigh[slot]);
+                lows.offer(second, bucketLow[slot]);
+            }
+        }
+    }
+
+    private int slot(long second) {
+        return (int) Math.floorMod(second, (long) seconds);
+    }
+
+    /**
+     * Монотонная очередь пар (секунда, значение): голова — максимум (или минимум) окна.
+     */
+    private static final class MonotonicDeque {
+
+        private final long[] seconds;
+        private final double[] values;
+        private final boolean max;
+        private int head;
+        private int size;
+
+        MonotonicDeque(int capacity, boolean max) {
+            this.seconds = new long[capacity];
+            this.values = new double[capacity];
+            this.max = max;
+        }
+
+        MonotonicDeque(MonotonicDeque source) {
+            this.seconds = source.seconds.clone();
+            this.values = source.values.clone();
+            this.max = source.max;
+            this.head = source.head;
+            this.size = source.size;
+        }
+
+        void offer(long second, double value) {
+            while (size > 0 && dominates(value, values[index(size - 1)])) {
+                size--;
+            }
+            int tail = index(size);
+            seconds[tail] = second;
+            values[tail] = value;
+            size++;
+        }
+
+        void expire(long cutoff) {
+            while (size > 0 && seconds[head] <= cutoff) {
+                head = (head + 1) % seconds.length;
+                size--;
+            }
+        }
+
+        double peek() {
+            return size == 0 ? Double.NaN : values[head];
+        }
+
+        private boolean dominates(double value, double existing) {
+            return max ? value >= existing : value <= existing;
+        }
+
+        private int index(int offset) {
+            return (head + offset) % seconds.length;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.journal.Journal;
+import com.nesterrovv.currencyexchange.snapshot.CurrencySnapshot;
+import com.nesterrovv.currencyexchange.snapshot.SnapshotStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Периодически снимает состояние валют и сохраняет его в фоне.
+ * После записи снимка сегменты журнала, целиком им покрытые, удаляются —
+ * так время перезапуска ограничено хвостом журнала за один интервал, а не всей историей.
+ */
+@Slf4j
+@Service
+public class SnapshotService {
+
+    private final CurrencyService currencyService;
+    private final SnapshotStore snapshotStore;
+    private final Journal journal;
+    private final ExecutionSchedulers schedulers;
+    private final Disposable schedule;
+
+    public SnapshotService(CurrencyService currencyService, SnapshotStore snapshotStore, Journal journal,
+                           ExecutionSchedulers schedulers,
+                           @Value("${exchange.snapshot.interval-ms:10000}") long intervalMs) {
+        this.currencyService = currencyService;
+        this.snapshotStore = snapshotStore;
+        this.journal = journal;
+        this.schedulers = schedulers;
+        // следующий снимок не начинается, пока не записан предыдущий
+        this.schedule = Flux.interval(Duration.ofMillis(intervalMs), schedulers.aggregation())
+                .onBackpressureDrop()
+                .concatMap(tick -> takeSnapshot(), 1)
+                .subscribe();
+    }
+
+    Mono<Void> takeSnapshot() {
+        return currencyService.captureSnapshot()
+                .publishOn(schedulers.io())
+                .doOnNext(this::persist)
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("State snapshot failed", e);
+                    return Mono.empty();
+                });
+    }
+
+    private void persist(List<CurrencySnapshot> snapshots) {
+        // снимок не должен ссылаться на записи, которых после сбоя может не оказаться в журнале:
+        // иначе журнал выдал бы их номера заново, а восстановление пропустило бы новые записи
+        try {
+            journal.awaitDurable(snapshots.stream().mapToLong(CurrencySnapshot::getSequence).max().orElse(0));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        snapshotStore.write(snapshots);
+        // записи не новее самого раннего номера среди валют учтены снимком
+        long covered = snapshots.stream().mapToLong(CurrencySnapshot::getSequence).min().orElse(0);
+        journal.truncate(covered);
+    }
+
+    /**
+     * Последний снимок перед остановкой, чтобы следующий старт почти не проигрывал журнал.
+     */
+    @PreDestroy
+    void stop() {
+        schedule.dispose();
+        takeSnapshot().block();
+    }
+}
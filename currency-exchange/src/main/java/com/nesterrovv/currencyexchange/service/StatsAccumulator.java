@@ -3,31 +3,168 @@ package com.nesterrovv.currencyexchange.service;
 import com.nesterrovv.currencyexchange.model.StatsData;
 import com.nesterrovv.currencyexchange.model.TradeEvent;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика сделок одной валюты: скользящие окна в 1 минуту и 1 час
+ * и торговый день, который обнуляется на границе суток.
+ * Каждая сделка обходится в O(1), память ограничена размером окон.
+ * Без сделок окна и день сдвигаются через {@link #advance}, иначе статистика застывает.
+ */
 public class StatsAccumulator {
 
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
     private final String currency;
-    private double maxPrice = Double.MIN_VALUE;
-    private double minPrice = Double.MAX_VALUE;
-    private double totalVolume = 0.0;
+    private final long dayOffsetMillis;
+    private final RollingWindow minute;
+    private final RollingWindow hour;
+
+    private long day = Long.MIN_VALUE;
+    private double dayHigh;
+    private double dayLow;
+    private double dayVolume;
+    private double dayNotional;
+    private long dayTradeCount;
+    private double lastPrice = Double.NaN;
 
     public StatsAccumulator(String currency) {
+        this(currency, ZoneOffset.UTC);
+    }
+
+    /**
+     * @param tradingDayZone смещение, в котором начинается торговый день
+     */
+    public StatsAccumulator(String currency, ZoneOffset tradingDayZone) {
         this.currency = currency;
+        this.dayOffsetMillis = TimeUnit.SECONDS.toMillis(tradingDayZone.getTotalSeconds());
+        this.minute = new RollingWindow(60);
+        this.hour = new RollingWindow(3600);
     }
 
-    public void update(TradeEvent trade) {
+    private StatsAccumulator(StatsAccumulator source) {
+        this.currency = source.currency;
+        this.dayOffsetMillis = source.dayOffsetMillis;
+        this.minute = new RollingWindow(source.minute);
+        this.hour = new RollingWindow(source.hour);
+        this.day = source.day;
+        this.dayHigh = source.dayHigh;
+        this.dayLow = source.dayLow;
+        this.dayVolume = source.dayVolume;
+        this.dayNotional = source.dayNotional;
+        this.dayTradeCount = source.dayTradeCount;
+        this.lastPrice = source.lastPrice;
+    }
+
+    /**
+     * Независимая копия: снимок сериализуется с ней, пока оригинал продолжает считать сделки.
+     */
+    public StatsAccumulator copy() {
+        return new StatsAccumulator(this);
+    }
+
+    /**
+     * Учитывает сделку и возвращает новый снимок статистики.
+     */
+    public StatsData update(TradeEvent trade) {
         double price = trade.getPrice();
         double volume = trade.getVolume();
-        if (price > maxPrice) maxPrice = price;
-        if (price < minPrice) minPrice = price;
-        totalVolume += volume;
+        long timestamp = trade.getTimestamp();
+
+        advanceDay(timestamp);
+        if (dayTradeCount == 0 || price > dayHigh) dayHigh = price;
+        if (dayTradeCount == 0 || price < dayLow) dayLow = price;
+        dayVolume += volume;
+        dayNotional += price * volume;
+        dayTradeCount++;
+        lastPrice = price;
+
+        long second = TimeUnit.MILLISECONDS.toSeconds(timestamp);
+        minute.add(second, price, volume);
+        hour.add(second, price, volume);
+        return toStatsData();
+    }
+
+    /**
+     * Сдвигает окна и торговый день к моменту {@code timestamp} без новой сделки.
+     *
+     * @return изменилась ли статистика
+     */
+    public boolean advance(long timestamp) {
+        long minuteCount = minute.count();
+        long hourCount = hour.count();
+        boolean newDay = advanceDay(timestamp);
+        long second = TimeUnit.MILLISECONDS.toSeconds(timestamp);
+        minute.advance(second);
+        hour.advance(second);
+        return newDay || minute.count() != minuteCount || hour.count() != hourCount;
+    }
+
+    private boolean advanceDay(long timestamp) {
+        long currentDay = Math.floorDiv(timestamp + dayOffsetMillis, DAY_MILLIS);
+        if (currentDay <= day) {
+            return false;
+        }
+        boolean traded = dayTradeCount > 0;
+        day = currentDay;
+        dayHigh = Double.NaN;
+        dayLow = Double.NaN;
+        dayVolume = 0;
+        dayNotional = 0;
+        dayTradeCount = 0;
+        return traded;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeLong(day);
+        out.writeDouble(dayHigh);
+        out.writeDouble(dayLow);
+        out.writeDouble(dayVolume);
+        out.writeDouble(dayNotional);
+        out.writeLong(dayTradeCount);
+        out.writeDouble(lastPrice);
+        minute.writeTo(out);
+        hour.writeTo(out);
+    }
+
+    /**
+     * Заполняет только что созданный аккумулятор состоянием, записанным {@link #writeTo}.
+     */
+    public void readFrom(DataInput in) throws IOException {
+        day = in.readLong();
+        dayHigh = in.readDouble();
+        dayLow = in.readDouble();
+        dayVolume = in.readDouble();
+        dayNotional = in.readDouble();
+        dayTradeCount = in.readLong();
+        lastPrice = in.readDouble();
+        minute.readFrom(in);
+        hour.readFrom(in);
     }
 
     public StatsData toStatsData() {
         StatsData stats = new StatsData();
         stats.setCurrency(currency);
-        stats.setDayHigh(maxPrice);
-        stats.setDayLow(minPrice);
-        stats.setDayVolume(totalVolume);
+        stats.setLastPrice(lastPrice);
+        stats.setDayHigh(dayHigh);
+        stats.setDayLow(dayLow);
+        stats.setDayVolume(dayVolume);
+        stats.setDayVwap(dayVolume > 0 ? dayNotional / dayVolume : Double.NaN);
+        stats.setDayTradeCount(dayTradeCount);
+        stats.setMinuteHigh(minute.high());
+        stats.setMinuteLow(minute.low());
+        stats.setMinuteVolume(minute.volume());
+        stats.setMinuteVwap(minute.vwap());
+        stats.setMinuteTradeCount(minute.count());
+        stats.setHourHigh(hour.high());
+        stats.setHourLow(hour.low());
+        stats.setHourVolume(hour.volume());
+        stats.setHourVwap(hour.vwap());
+        stats.setHourTradeCount(hour.count());
         return stats;
     }
 
@@ -0,0 +1,180 @@
+package com.nesterrovv.currencyexchange.snapshot;
+
+import com.nesterrovv.currencyexchange.engine.LimitOrderBook;
+import com.nesterrovv.currencyexchange.engine.RestingOrder;
+import com.nesterrovv.currencyexchange.engine.Side;
+import com.nesterrovv.currencyexchange.service.StatsAccumulator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Состояние одной валюты на момент снимка: заявки стакана в порядке приоритета,
+ * котировки маркет-мейкера, опорная цена генератора и статистика сделок.
+ * Записи журнала этой валюты с номером не больше {@code sequence} в снимке уже учтены.
+ * Заявки хранятся в колонках примитивов, так что копия стакана — это один проход без упаковки.
+ * У пользовательских заявок сохраняются владелец и исходный объём: после восстановления
+ * снять или заменить заявку может только её владелец, и отчёты продолжают уходить ему.
+ */
+public class CurrencySnapshot {
+
+    private final String currency;
+    private final long sequence;
+    private final long lastOrderId;
+    private final long prevTicks;
+    private final long[] quoteIds;
+    private final StatsAccumulator stats;
+
+    private final int orderCount;
+    private final long[] orderIds;
+    private final byte[] sides;
+    private final long[] prices;
+    private final long[] volumes;
+    private final boolean[] userOrders;
+    private final long[] originalVolumes;
+    private final String[] owners;
+
+    private CurrencySnapshot(String currency, long sequence, long lastOrderId, long prevTicks,
+                             long[] quoteIds, StatsAccumulator stats, int orderCount) {
+        this.currency = currency;
+        this.sequence = sequence;
+        this.lastOrderId = lastOrderId;
+        this.prevTicks = prevTicks;
+        this.quoteIds = quoteIds;
+        this.stats = stats;
+        this.orderCount = orderCount;
+        this.orderIds = new long[orderCount];
+        this.sides = new byte[orderCount];
+        this.prices = new long[orderCount];
+        this.volumes = new long[orderCount];
+        this.userOrders = new boolean[orderCount];
+        this.originalVolumes = new long[orderCount];
+        this.owners = new String[orderCount];
+    }
+
+    /**
+     * Копирует стакан. Вызывается на потоке сопоставления валюты; остальные аргументы
+     * должны быть уже независимыми копиями.
+     */
+    public static CurrencySnapshot capture(LimitOrderBook book, long sequence, long lastOrderId, long prevTicks,
+                                           long[] quoteIds, StatsAccumulator stats) {
+        CurrencySnapshot snapshot = new CurrencySnapshot(book.getCurrency(), sequence, lastOrderId, prevTicks,
+                quoteIds, stats, book.size());
+        int[] position = {0};
+        for (Side side : Side.values()) {
+            book.forEach(side, order -> snapshot.set(position[0]++, order));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Ставит заявки снимка в пустой стакан с сохранением приоритета.
+     */
+    public void restore(LimitOrderBook book) {
+        Side[] values = Side.values();
+        for (int i = 0; i < orderCount; i++) {
+            if (userOrders[i]) {
+                book.add(orderIds[i], values[sides[i]], prices[i], volumes[i], originalVolumes[i], owners[i]);
+            } else {
+                book.add(orderIds[i], values[sides[i]], prices[i], volumes[i], false);
+            }
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(currency);
+        out.writeLong(sequence);
+        out.writeLong(lastOrderId);
+        out.writeLong(prevTicks);
+        out.writeInt(quoteIds.length);
+        for (long quoteId : quoteIds) {
+            out.writeLong(quoteId);
+        }
+        out.writeInt(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            out.writeLong(orderIds[i]);
+            out.writeByte(sides[i]);
+            out.writeLong(prices[i]);
+            out.writeLong(volumes[i]);
+            out.writeBoolean(userOrders[i]);
+            out.writeLong(originalVolumes[i]);
+            out.writeBoolean(owners[i] != null);
+            if (owners[i] != null) {
+                out.writeUTF(owners[i]);
+            }
+        }
+        stats.writeTo(out);
+    }
+
+    /**
+     * @param version версия формата файла; в версии 1 не было владельцев и исходных объёмов
+     */
+    public static CurrencySnapshot readFrom(DataInput in, int version) throws IOException {
+        String currency = in.readUTF();
+        long sequence = in.readLong();
+        long lastOrderId = in.readLong();
+        long prevTicks = in.readLong();
+        long[] quoteIds = new long[in.readInt()];
+        for (int i = 0; i < quoteIds.length; i++) {
+            quoteIds[i] = in.readLong();
+        }
+        int orderCount = in.readInt();
+        StatsAccumulator stats = new StatsAccumulator(currency);
+        CurrencySnapshot snapshot = new CurrencySnapshot(currency, sequence, lastOrderId, prevTicks,
+                quoteIds, stats, orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            snapshot.orderIds[i] = in.readLong();
+            snapshot.sides[i] = in.readByte();
+            snapshot.prices[i] = in.readLong();
+            snapshot.volumes[i] = in.readLong();
+            snapshot.userOrders[i] = in.readBoolean();
+            if (version >= 2) {
+                snapshot.originalVolumes[i] = in.readLong();
+                snapshot.owners[i] = in.readBoolean() ? in.readUTF() : null;
+            } else {
+                snapshot.originalVolumes[i] = snapshot.volumes[i];
+            }
+        }
+        stats.readFrom(in);
+        return snapshot;
+    }
+
+    private void set(int i, RestingOrder order) {
+        orderIds[i] = order.getId();
+        sides[i] = (byte) order.getSide().ordinal();
+        prices[i] = order.getPrice();
+        volumes[i] = order.getVolume();
+        userOrders[i] = order.isUserOrder();
+        originalVolumes[i] = order.getOriginalVolume();
+        owners[i] = order.getOwner();
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getLastOrderId() {
+        return lastOrderId;
+    }
+
+    public long getPrevTicks() {
+        return prevTicks;
+    }
+
+    public long[] getQuoteIds() {
+        return quoteIds;
+    }
+
+    public StatsAccumulator getStats() {
+        return stats;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+}
@@ -0,0 +1,114 @@
+package com.nesterrovv.currencyexchange.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Снимок в одном файле: заголовок magic:4 version:4 length:4 crc:4 и двоичное тело.
+ * Новый снимок пишется во временный файл, сбрасывается на диск и атомарно
+ * переименовывается поверх старого, так что на диске всегда целый снимок.
+ */
+public class FileSnapshotStore implements SnapshotStore {
+
+    private static final int MAGIC = 0x43584753;
+    // версия 2: владельцы и исходные объёмы заявок; файлы версии 1 по-прежнему читаются
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 16;
+
+    private final Path file;
+    private final Path tempFile;
+
+    public FileSnapshotStore(Path directory) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.file = directory.resolve("state.snapshot");
+        this.tempFile = directory.resolve("state.snapshot.tmp");
+    }
+
+    @Override
+    public void write(List<CurrencySnapshot> snapshots) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+            out.writeInt(snapshots.size());
+            for (CurrencySnapshot snapshot : snapshots) {
+                snapshot.writeTo(out);
+            }
+            out.flush();
+            byte[] bytes = body.toByteArray();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(bytes.length)
+                    .putInt((int) crc.getValue())
+                    .flip();
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer payload = ByteBuffer.wrap(bytes);
+                while (header.hasRemaining() || payload.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, payload});
+                }
+                channel.force(true);
+            }
+            Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<CurrencySnapshot> read() {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try {
+            ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+                throw new IllegalStateException("Unsupported snapshot file " + file);
+            }
+            int version = data.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalStateException("Unsupported snapshot file " + file + " version " + version);
+            }
+            int length = data.getInt();
+            int expectedCrc = data.getInt();
+            if (data.remaining() != length) {
+                throw new IllegalStateException("Truncated snapshot file " + file);
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(data.array(), HEADER_SIZE, length);
+            if ((int) crc.getValue() != expectedCrc) {
+                throw new IllegalStateException("Corrupted snapshot file " + file);
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data.array(), HEADER_SIZE, length));
+            int count = in.readInt();
+            List<CurrencySnapshot> snapshots = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                snapshots.add(CurrencySnapshot.readFrom(in, version));
+            }
+            return snapshots;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.nesterrovv.currencyexchange.snapshot;
+
+import java.util.List;
+
+/**
+ * Хранилище последнего снимка состояния валют.
+ */
+public interface SnapshotStore {
+
+    /**
+     * Хранилище, которое ничего не сохраняет.
+     */
+    SnapshotStore NONE = new SnapshotStore() {
+
+        @Override
+        public void write(List<CurrencySnapshot> snapshots) {
+        }
+
+        @Override
+        public List<CurrencySnapshot> read() {
+            return List.of();
+        }
+    };
+
+    /**
+     * Атомарно заменяет сохранённый снимок.
+     */
+    void write(List<CurrencySnapshot> snapshots);
+
+    /**
+     * Последний сохранённый снимок, пустой список если снимков ещё не было.
+     */
+    List<CurrencySnapshot> read();
+}
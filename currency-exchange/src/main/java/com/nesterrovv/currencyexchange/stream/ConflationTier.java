@@ -0,0 +1,67 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Общий для всех подписчиков одной частоты буфер: по каждой валюте держит последнее событие
+ * и раз в период отдаёт накопленное. Склейка идёт один раз на уровень, а не на соединение,
+ * поэтому медленный уровень почти ничего не стоит; источник читается, пока у уровня есть подписчики.
+ */
+final class ConflationTier {
+
+    // порядок валют — порядок первого события в периоде
+    private final Map<String, EncodedEvent> latest = new LinkedHashMap<>();
+    private final LongAdder conflated;
+    private final Flux<EncodedEvent> events;
+
+    ConflationTier(Flux<EncodedEvent> source, Duration period, Scheduler timer, LongAdder conflated) {
+        this.conflated = conflated;
+        this.events = Flux.<EncodedEvent>create(sink -> {
+            Disposable upstream = source.subscribe(this::offer, sink::error, sink::complete);
+            Disposable ticks = Flux.interval(period, period, timer).subscribe(tick -> flush(sink));
+            sink.onDispose(Disposables.composite(upstream, ticks, this::clear));
+        }).share();
+    }
+
+    Flux<EncodedEvent> events() {
+        return events;
+    }
+
+    private void offer(EncodedEvent event) {
+        synchronized (latest) {
+            if (latest.put(event.currency(), event) != null) {
+                conflated.increment();
+            }
+        }
+    }
+
+    // вызывается только таймером уровня
+    private void flush(FluxSink<EncodedEvent> sink) {
+        List<EncodedEvent> batch;
+        synchronized (latest) {
+            if (latest.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(latest.values());
+            latest.clear();
+        }
+        batch.forEach(sink::next);
+    }
+
+    private void clear() {
+        synchronized (latest) {
+            latest.clear();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Событие SSE, уже превращённое в байты ("data:...\n\n").
+ * Массив общий для всех соединений и не меняется после создания.
+ *
+ * @param createdNanos момент сериализации по {@link System#nanoTime()}, от него считается задержка до записи
+ */
+public record EncodedEvent(String currency, byte[] bytes, long createdNanos) {
+
+    public EncodedEvent(String currency, byte[] bytes) {
+        this(currency, bytes, System.nanoTime());
+    }
+
+    /**
+     * Обёртка без копирования: каждое соединение получает свой буфер над теми же байтами.
+     */
+    public DataBuffer toDataBuffer() {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+
+    /**
+     * То же событие, перед которым идёт маркер пропуска ("event:gap") с числом потерянных событий.
+     * Копия делается только для конкретного отставшего подписчика.
+     */
+    public EncodedEvent withGap(long missed) {
+        byte[] marker = ("event:gap\ndata:{\"missed\":" + missed + "}\n\n").getBytes(StandardCharsets.UTF_8);
+        byte[] result = new byte[marker.length + bytes.length];
+        System.arraycopy(marker, 0, result, 0, marker.length);
+        System.arraycopy(bytes, 0, result, marker.length, bytes.length);
+        return new EncodedEvent(currency, result, createdNanos);
+    }
+}
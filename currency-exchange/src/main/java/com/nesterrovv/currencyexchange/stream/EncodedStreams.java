@@ -0,0 +1,104 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие потоки SSE: каждое событие сериализуется один раз на общем потоке агрегации
+ * (не на генераторе и не на потоке сопоставления), а все соединения пишут одни и те же байты.
+ * Тики и статистика есть ещё и в прореженном виде ({@link StreamRate}): по одному общему буферу на частоту.
+ */
+@Component
+public class EncodedStreams {
+
+    private final Flux<EncodedEvent> currency;
+    private final Flux<EncodedEvent> orderBook;
+    private final Flux<EncodedEvent> notification;
+    private final Flux<EncodedEvent> stats;
+    private final Map<StreamRate, Flux<EncodedEvent>> currencyByRate = new EnumMap<>(StreamRate.class);
+    private final Map<StreamRate, Flux<EncodedEvent>> statsByRate = new EnumMap<>(StreamRate.class);
+    private final MeterRegistry meterRegistry;
+
+    public EncodedStreams(CurrencyService currencyService, SseEventEncoder encoder, SubscriberPolicies policies,
+                          ExecutionSchedulers schedulers, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.currency = schedulers.toAggregation(currencyService.getCurrencyFlux())
+                .map(data -> encoder.encode(data.getCurrency(), data))
+                .share();
+        this.orderBook = currencyService.getOrderBookFlux()
+                .map(book -> encoder.encode(book.getCurrency(), book))
+                .share();
+        this.notification = schedulers.toAggregation(currencyService.getCurrencyChangedNotificationFlux())
+                .map(note -> encoder.encode(note.getCurrentCurrency(), note))
+                .share();
+        this.stats = schedulers.toAggregation(currencyService.getStatsFlux())
+                .map(data -> encoder.encode(data.getCurrency(), data))
+                .share();
+        for (StreamRate rate : StreamRate.values()) {
+            currencyByRate.put(rate, throttle("currency", currency, rate, policies, schedulers.aggregation()));
+            statsByRate.put(rate, throttle("stats", stats, rate, policies, schedulers.aggregation()));
+        }
+    }
+
+    static Flux<EncodedEvent> throttle(String stream, Flux<EncodedEvent> source, StreamRate rate,
+                                       SubscriberPolicies policies, Scheduler timer) {
+        if (rate == StreamRate.RAW) {
+            return source;
+        }
+        return new ConflationTier(source, rate.period(), timer,
+                policies.counters(rate.streamName(stream)).conflated()).events();
+    }
+
+    public Flux<EncodedEvent> currency() {
+        return currency;
+    }
+
+    public Flux<EncodedEvent> orderBook() {
+        return orderBook;
+    }
+
+    public Flux<EncodedEvent> notification() {
+        return notification;
+    }
+
+    public Flux<EncodedEvent> currency(StreamRate rate) {
+        return currencyByRate.get(rate);
+    }
+
+    public Flux<EncodedEvent> stats() {
+        return stats;
+    }
+
+    public Flux<EncodedEvent> stats(StreamRate rate) {
+        return statsByRate.get(rate);
+    }
+
+    /**
+     * Пишет готовые события в ответ, сбрасывая буфер после каждого,
+     * и замеряет задержку от сериализации события до передачи его в соединение.
+     */
+    public Mono<Void> write(ServerHttpResponse response, String stream, Flux<EncodedEvent> events) {
+        response.getHeaders().setContentType(MediaType.TEXT_EVENT_STREAM);
+        Timer emitToWrite = Timer.builder("exchange.stream.emit.to.write")
+                .description("Time from event serialization to handing it to the connection")
+                .tag("stream", stream)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        return response.writeAndFlushWith(events.map(event -> {
+            emitToWrite.record(System.nanoTime() - event.createdNanos(), TimeUnit.NANOSECONDS);
+            return Mono.just(event.toDataBuffer());
+        }));
+    }
+}
@@ -0,0 +1,88 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Буфер подписчика, в котором по каждому ключу лежит только последнее событие.
+ * Источник читается без ограничений, подписчику отдаётся столько, сколько он запросил;
+ * память — не больше одного события на ключ.
+ */
+final class LatestByKey<T> {
+
+    private final FluxSink<T> sink;
+    private final Function<T, ?> key;
+    private final LongAdder conflated;
+    // порядок ключей — порядок первого события, так что ни одна валюта не голодает
+    private final Map<Object, T> pending = new LinkedHashMap<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    // источник завершился: поток закрывается, когда подписчик заберёт оставшиеся события
+    private volatile boolean done;
+
+    private LatestByKey(FluxSink<T> sink, Function<T, ?> key, LongAdder conflated) {
+        this.sink = sink;
+        this.key = key;
+        this.conflated = conflated;
+    }
+
+    static <T> Flux<T> conflate(Flux<T> source, Function<T, ?> key, LongAdder conflated) {
+        return Flux.create(sink -> {
+            LatestByKey<T> buffer = new LatestByKey<>(sink, key, conflated);
+            sink.onRequest(n -> buffer.drain());
+            Disposable upstream = source.subscribe(buffer::offer, sink::error, buffer::complete);
+            sink.onDispose(upstream);
+        });
+    }
+
+    private void offer(T event) {
+        synchronized (pending) {
+            if (pending.put(key.apply(event), event) != null) {
+                conflated.increment();
+            }
+        }
+        drain();
+    }
+
+    private void complete() {
+        done = true;
+        drain();
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (true) {
+                boolean finished = done;
+                T next;
+                synchronized (pending) {
+                    Iterator<T> iterator = pending.values().iterator();
+                    if (!iterator.hasNext()) {
+                        if (finished) {
+                            sink.complete();
+                            return;
+                        }
+                        break;
+                    }
+                    if (sink.requestedFromDownstream() == 0) {
+                        break;
+                    }
+                    next = iterator.next();
+                    iterator.remove();
+                }
+                sink.next(next);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
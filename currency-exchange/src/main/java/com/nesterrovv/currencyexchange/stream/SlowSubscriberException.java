@@ -0,0 +1,11 @@
+package com.nesterrovv.currencyexchange.stream;
+
+/**
+ * Подписчик отстал от потока дальше допустимого и отключается.
+ */
+public class SlowSubscriberException extends RuntimeException {
+
+    public SlowSubscriberException(String message) {
+        super(message);
+    }
+}
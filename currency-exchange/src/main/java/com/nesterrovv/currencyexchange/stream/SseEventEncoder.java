@@ -0,0 +1,37 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Сериализует событие в формат text/event-stream один раз, независимо от числа подписчиков.
+ */
+@Component
+public class SseEventEncoder {
+
+    private static final byte[] DATA = "data:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper;
+
+    public SseEventEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public EncodedEvent encode(String currency, Object event) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            out.write(DATA);
+            objectMapper.writeValue(out, event);
+            out.write(END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new EncodedEvent(currency, out.toByteArray());
+    }
+}
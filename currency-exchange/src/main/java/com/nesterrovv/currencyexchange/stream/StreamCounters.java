@@ -0,0 +1,43 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики одного потока по всем его подписчикам.
+ */
+public class StreamCounters {
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder disconnected = new LongAdder();
+
+    /**
+     * Подписчиков прямо сейчас.
+     */
+    public AtomicInteger subscribers() {
+        return subscribers;
+    }
+
+    /**
+     * Событий, заменённых более новым по тому же ключу до отправки медленному подписчику.
+     */
+    public LongAdder conflated() {
+        return conflated;
+    }
+
+    /**
+     * Событий, вытесненных из переполненного буфера подписчика.
+     */
+    public LongAdder dropped() {
+        return dropped;
+    }
+
+    /**
+     * Подписчиков, отключённых из-за отставания.
+     */
+    public LongAdder disconnected() {
+        return disconnected;
+    }
+}
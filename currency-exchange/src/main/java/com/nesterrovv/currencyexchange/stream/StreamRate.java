@@ -0,0 +1,42 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import java.time.Duration;
+
+/**
+ * Частота рыночных данных, которую выбирает подписчик ({@code ?rate=}): каждое событие
+ * или не чаще раза в период по каждой валюте.
+ */
+public enum StreamRate {
+
+    RAW("raw", Duration.ZERO),
+    FAST("100ms", Duration.ofMillis(100)),
+    SLOW("1s", Duration.ofSeconds(1));
+
+    private final String name;
+    private final Duration period;
+
+    StreamRate(String name, Duration period) {
+        this.name = name;
+        this.period = period;
+    }
+
+    public static StreamRate of(String name) {
+        for (StreamRate rate : values()) {
+            if (rate.name.equalsIgnoreCase(name)) {
+                return rate;
+            }
+        }
+        throw new IllegalArgumentException("Unknown rate: " + name + ", expected raw, 100ms or 1s");
+    }
+
+    public Duration period() {
+        return period;
+    }
+
+    /**
+     * Имя потока для метрик и политик: у каждого уровня свои счётчики.
+     */
+    public String streamName(String stream) {
+        return this == RAW ? stream : stream + "-" + name;
+    }
+}
@@ -0,0 +1,133 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Политики обратного давления для отдельного подписчика общего потока.
+ * Каждая политика читает общий поток без ограничений и держит свой ограниченный буфер,
+ * так что медленный клиент не тормозит остальных и не раздувает кучу.
+ */
+@Component
+public class SubscriberPolicies {
+
+    private final int bufferSize;
+    private final long maxLagNanos;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StreamCounters> counters = new ConcurrentHashMap<>();
+
+    public SubscriberPolicies(@Value("${exchange.stream.buffer-size:256}") int bufferSize,
+                              @Value("${exchange.stream.max-lag-ms:5000}") long maxLagMillis,
+                              MeterRegistry meterRegistry) {
+        this.bufferSize = bufferSize;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMillis);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Для тиков и статистики: подписчик получает последнее значение по каждому ключу,
+     * промежуточные пропускаются.
+     */
+    public <T> Flux<T> conflateLatest(String stream, Flux<T> source, Function<T, ?> key) {
+        StreamCounters streamCounters = counters(stream);
+        return track(streamCounters, LatestByKey.conflate(source, key, streamCounters.conflated()));
+    }
+
+    /**
+     * Для сделок: кольцо фиксированного размера, при переполнении вытесняются старые события,
+     * а следующее отправленное событие помечается числом пропущенных ({@code markGap}).
+     */
+    public <T> Flux<T> dropOldest(String stream, Flux<T> source, BiFunction<Long, T, T> markGap) {
+        StreamCounters streamCounters = counters(stream);
+        return track(streamCounters, Flux.defer(() -> {
+            AtomicLong missed = new AtomicLong();
+            return source
+                    .onBackpressureBuffer(bufferSize, event -> {
+                        missed.incrementAndGet();
+                        streamCounters.dropped().increment();
+                    }, BufferOverflowStrategy.DROP_OLDEST)
+                    .map(event -> {
+                        long gap = missed.getAndSet(0);
+                        return gap == 0 ? event : markGap.apply(gap, event);
+                    });
+        }));
+    }
+
+    /**
+     * Для дельт стакана, которые нельзя ни пропускать, ни склеивать: подписчик, отставший
+     * больше чем на {@code max-lag-ms} или переполнивший буфер, отключается и
+     * пересинхронизируется со снимка при переподключении.
+     */
+    public <T> Flux<T> disconnectWhenBehind(String stream, Flux<T> source) {
+        StreamCounters streamCounters = counters(stream);
+        return track(streamCounters, source
+                .map(event -> new Stamped<>(System.nanoTime(), event))
+                .onBackpressureBuffer(bufferSize)
+                .<T>handle((stamped, sink) -> {
+                    long lag = System.nanoTime() - stamped.nanos();
+                    if (lag > maxLagNanos) {
+                        sink.error(new SlowSubscriberException(stream + " subscriber is "
+                                + TimeUnit.NANOSECONDS.toMillis(lag) + " ms behind"));
+                    } else {
+                        sink.next(stamped.event());
+                    }
+                })
+                .onErrorMap(Exceptions::isOverflow,
+                        error -> new SlowSubscriberException(stream + " subscriber overflowed its buffer"))
+                .doOnError(SlowSubscriberException.class, error -> streamCounters.disconnected().increment()));
+    }
+
+    public StreamCounters counters(String stream) {
+        return counters.computeIfAbsent(stream, this::register);
+    }
+
+    public Map<String, StreamCounters> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+    private static <T> Flux<T> track(StreamCounters streamCounters, Flux<T> flux) {
+        return flux
+                .doOnSubscribe(subscription -> streamCounters.subscribers().incrementAndGet())
+                .doFinally(signal -> streamCounters.subscribers().decrementAndGet());
+    }
+
+    private StreamCounters register(String stream) {
+        StreamCounters streamCounters = new StreamCounters();
+        Gauge.builder("exchange.stream.subscribers", streamCounters.subscribers(), AtomicInteger::get)
+                .description("Current subscribers of the stream")
+                .tag("stream", stream)
+                .register(meterRegistry);
+        FunctionCounter.builder("exchange.stream.conflated", streamCounters.conflated(), LongAdder::sum)
+                .description("Events replaced by a newer one before reaching a slow subscriber")
+                .tag("stream", stream)
+                .register(meterRegistry);
+        FunctionCounter.builder("exchange.stream.dropped", streamCounters.dropped(), LongAdder::sum)
+                .description("Events evicted from a full subscriber buffer")
+                .tag("stream", stream)
+                .register(meterRegistry);
+        FunctionCounter.builder("exchange.stream.disconnected", streamCounters.disconnected(), LongAdder::sum)
+                .description("Subscribers disconnected for falling behind")
+                .tag("stream", stream)
+                .register(meterRegistry);
+        return streamCounters;
+    }
+
+    private record Stamped<T>(long nanos, T event) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.nesterrovv.currencyexchange.websocket;
+
+import com.nesterrovv.currencyexchange.model.CurrencyData;
+import com.nesterrovv.currencyexchange.model.OrderBookUpdate;
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Бинарный формат рыночных данных для WebSocket. Все поля фиксированной ширины, big-endian,
+ * цены и объёмы — long, умноженные на {@link #SCALE}.
+ *
+ * <pre>
+ * заголовок (18 байт): type:1 currency:1 sequence:8 timestamp:8
+ * TICK       : price:8 changePct:8
+ * TRADE      : price:8 volume:8
+ * BOOK_LEVEL : side:1 price:8 volume:8   (volume 0 — уровень ушёл)
+ * STATS      : high:8 low:8 volume:8
+ *
+ * от клиента:
+ * SUBSCRIBE / UNSUBSCRIBE : type:1 currency:1 channels:1   (currency 0xFF — все валюты)
+ * ORDER                   : type:1 currency:1 side:1 price:8 volume:8
+ *     (price 0 — лимитная около базовой цены инструмента, как заявка REST без цены)
+ * </pre>
+ * Короче указанной длины сообщения клиента не принимаются.
+ */
+public final class BinaryCodec {
+
+    public static final byte TICK = 1;
+    public static final byte TRADE = 2;
+    public static final byte BOOK_LEVEL = 3;
+    public static final byte BOOK_SNAPSHOT_LEVEL = 4;
+    public static final byte STATS = 5;
+
+    public static final byte SUBSCRIBE = 16;
+    public static final byte UNSUBSCRIBE = 17;
+    public static final byte ORDER = 32;
+
+    public static final int CHANNEL_TICKS = 1;
+    public static final int CHANNEL_BOOK = 2;
+    public static final int CHANNEL_TRADES = 4;
+    public static final int CHANNEL_STATS = 8;
+
+    public static final int ALL_CURRENCIES = 0xFF;
+    public static final byte SIDE_BUY = 0;
+    public static final byte SIDE_SELL = 1;
+
+    public static final long SCALE = 1_000_000L;
+
+    static final int HEADER_SIZE = 18;
+    static final int SUBSCRIBE_SIZE = 3;
+    static final int ORDER_SIZE = 19;
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Длина сообщения клиента этого типа; для неизвестного — только тип и валюта.
+     */
+    static int requestSize(byte type) {
+        return switch (type) {
+            case SUBSCRIBE, UNSUBSCRIBE -> SUBSCRIBE_SIZE;
+            case ORDER -> ORDER_SIZE;
+            default -> 2;
+        };
+    }
+
+    public static byte[] tick(int currency, long sequence, CurrencyData data) {
+        return header(HEADER_SIZE + 16, TICK, currency, sequence, data.getTimestamp())
+                .putLong(scale(data.getPrice()))
+                .putLong(scale(data.getChange()))
+                .array();
+    }
+
+    public static byte[] trade(int currency, long sequence, TradeEvent trade) {
+        return header(HEADER_SIZE + 16, TRADE, currency, sequence, trade.getTimestamp())
+                .putLong(scale(trade.getPrice()))
+                .putLong(scale(trade.getVolume()))
+                .array();
+    }
+
+    public static byte[] stats(int currency, long sequence, long timestamp, StatsData stats) {
+        return header(HEADER_SIZE + 24, STATS, currency, sequence, timestamp)
+                .putLong(scale(stats.getDayHigh()))
+                .putLong(scale(stats.getDayLow()))
+                .putLong(scale(stats.getDayVolume()))
+                .array();
+    }
+
+    /**
+     * Все изменения уровней одного обновления стакана — записи подряд в одном сообщении.
+     */
+    public static byte[] book(int currency, long timestamp, OrderBookUpdate update) {
+        int recordSize = HEADER_SIZE + 17;
+        ByteBuffer buffer = ByteBuffer.allocate(recordSize * update.getChanges().size());
+        byte type = update.isSnapshot() ? BOOK_SNAPSHOT_LEVEL : BOOK_LEVEL;
+        for (OrderBookUpdate.LevelChange change : update.getChanges()) {
+            buffer.put(type)
+                    .put((byte) currency)
+                    .putLong(update.getSequence())
+                    .putLong(timestamp)
+                    .put("BUY".equals(change.getSide()) ? SIDE_BUY : SIDE_SELL)
+                    .putLong(scale(change.getPrice()))
+                    .putLong(scale(change.getVolume()));
+        }
+        return buffer.array();
+    }
+
+    public static long scale(double value) {
+        return Math.round(value * SCALE);
+    }
+
+    public static double unscale(long value) {
+        return (double) value / SCALE;
+    }
+
+    private static ByteBuffer header(int size, byte type, int currency, long sequence, long timestamp) {
+        return ByteBuffer.allocate(size)
+                .put(type)
+                .put((byte) currency)
+                .putLong(sequence)
+                .putLong(timestamp);
+    }
+}
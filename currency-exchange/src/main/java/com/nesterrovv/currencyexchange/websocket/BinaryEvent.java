@@ -0,0 +1,7 @@
+package com.nesterrovv.currencyexchange.websocket;
+
+/**
+ * Закодированное сообщение одного канала; байты общие для всех сессий.
+ */
+record BinaryEvent(int channel, int currency, byte[] bytes) {
+}
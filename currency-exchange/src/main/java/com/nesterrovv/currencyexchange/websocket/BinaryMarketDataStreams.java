@@ -0,0 +1,61 @@
+package com.nesterrovv.currencyexchange.websocket;
+
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import com.nesterrovv.currencyexchange.service.InstrumentRegistry;
+import com.nesterrovv.currencyexchange.service.OrderBookDeltaService;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Общий поток бинарных сообщений всех каналов. Каждое событие кодируется один раз,
+ * номера идут отдельно по каждой паре канал/валюта.
+ * Инструменты, добавленные на ходу, подключаются к потоку сразу.
+ */
+@Component
+public class BinaryMarketDataStreams {
+
+    private final Flux<BinaryEvent> events;
+
+    public BinaryMarketDataStreams(CurrencyService currencyService, OrderBookDeltaService orderBookDeltaService,
+                                   ExecutionSchedulers schedulers) {
+        // тики, сделки и статистика кодируются прямо из раздела инструмента (на агрегации, не на источнике):
+        // номер известен заранее, счётчики номеров свои у каждого раздела
+        Flux<BinaryEvent> instruments = currencyService.getInstruments().added()
+                .flatMap(instrument -> encode(instrument, schedulers), InstrumentRegistry.MAX_INSTRUMENTS);
+        Flux<BinaryEvent> book = orderBookDeltaService.getDeltaFlux()
+                .mapNotNull(update -> {
+                    // снимки стакана редкие, поиск по символу здесь дешёвый; удалённый инструмент пропускаем
+                    int id = currencyService.currencyId(update.getCurrency());
+                    return id < 0 ? null : new BinaryEvent(BinaryCodec.CHANNEL_BOOK, id,
+                            BinaryCodec.book(id, System.currentTimeMillis(), update));
+                });
+
+        this.events = Flux.merge(instruments, book).share();
+    }
+
+    private static Flux<BinaryEvent> encode(Instrument instrument, ExecutionSchedulers schedulers) {
+        int id = instrument.getId();
+        AtomicLong tickSequence = new AtomicLong();
+        AtomicLong tradeSequence = new AtomicLong();
+        AtomicLong statsSequence = new AtomicLong();
+        return Flux.merge(
+                schedulers.toAggregation(instrument.getTickFlux()).map(data ->
+                        new BinaryEvent(BinaryCodec.CHANNEL_TICKS, id,
+                                BinaryCodec.tick(id, tickSequence.incrementAndGet(), data))),
+                schedulers.toAggregation(instrument.getTradeFlux()).map(trade ->
+                        new BinaryEvent(BinaryCodec.CHANNEL_TRADES, id,
+                                BinaryCodec.trade(id, tradeSequence.incrementAndGet(), trade))),
+                schedulers.toAggregation(instrument.getStatsFlux()).map(data ->
+                        new BinaryEvent(BinaryCodec.CHANNEL_STATS, id,
+                                BinaryCodec.stats(id, statsSequence.incrementAndGet(), System.currentTimeMillis(),
+                                        data))));
+    }
+
+    Flux<BinaryEvent> events() {
+        return events;
+    }
+}
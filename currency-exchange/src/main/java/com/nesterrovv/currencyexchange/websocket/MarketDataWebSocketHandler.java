@@ -0,0 +1,159 @@
+package com.nesterrovv.currencyexchange.websocket;
+
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import com.nesterrovv.currencyexchange.service.InstrumentRegistry;
+import com.nesterrovv.currencyexchange.service.OrderBookDeltaService;
+import com.nesterrovv.currencyexchange.stream.SubscriberPolicies;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Бинарный WebSocket: подписки по валютам и каналам, приём заявок в том же соединении.
+ * Формат сообщений описан в {@link BinaryCodec}. Заявки сессии принадлежат пользователю
+ * из параметра {@code user} адреса подключения ({@code /api/ws/market?user=...}); без него —
+ * пользователю сессии {@code ws-<id>}, так что чужие анонимные клиенты их не снимут.
+ */
+@Component
+public class MarketDataWebSocketHandler implements WebSocketHandler {
+
+    private final CurrencyService currencyService;
+    private final OrderBookDeltaService orderBookDeltaService;
+    private final BinaryMarketDataStreams streams;
+    private final SubscriberPolicies policies;
+
+    public MarketDataWebSocketHandler(CurrencyService currencyService,
+                                      OrderBookDeltaService orderBookDeltaService,
+                                      BinaryMarketDataStreams streams,
+                                      SubscriberPolicies policies) {
+        this.currencyService = currencyService;
+        this.orderBookDeltaService = orderBookDeltaService;
+        this.streams = streams;
+        this.policies = policies;
+    }
+
+    @Override
+    public Mono<Void> handle(WebSocketSession session) {
+        InstrumentRegistry instruments = currencyService.getInstruments();
+        // маска подписанных каналов по номеру валюты; подписка на все валюты
+        // заполняет все номера, так что инструменты, добавленные позже, в неё тоже попадают
+        AtomicIntegerArray subscriptions = new AtomicIntegerArray(InstrumentRegistry.MAX_INSTRUMENTS);
+        // ответы только этой сессии (снимок стакана при подписке)
+        Sinks.Many<byte[]> replies = Sinks.many().unicast().onBackpressureBuffer();
+        String user = user(session);
+
+        Mono<Void> input = session.receive()
+                .filter(message -> message.getType() == WebSocketMessage.Type.BINARY)
+                .concatMap(message -> onMessage(message.getPayload(), user, instruments, subscriptions, replies))
+                .then();
+
+        Flux<BinaryEvent> subscribed = streams.events()
+                .filter(event -> (subscriptions.get(event.currency()) & event.channel()) != 0);
+        // тики и статистика склеиваются до последнего значения, сделки вытесняются из кольца
+        // (пропуск видно по номерам), отставший от дельт стакана клиент отключается
+        Flux<byte[]> broadcast = Flux.merge(
+                policies.conflateLatest("ws-market", subscribed.filter(event ->
+                                event.channel() == BinaryCodec.CHANNEL_TICKS || event.channel() == BinaryCodec.CHANNEL_STATS),
+                        event -> event.channel() << 8 | event.currency()),
+                policies.dropOldest("ws-trades", subscribed.filter(event ->
+                        event.channel() == BinaryCodec.CHANNEL_TRADES), (missed, event) -> event),
+                policies.disconnectWhenBehind("ws-book", subscribed.filter(event ->
+                        event.channel() == BinaryCodec.CHANNEL_BOOK)))
+                .map(BinaryEvent::bytes);
+        Mono<Void> output = session.send(Flux.merge(broadcast, replies.asFlux())
+                .map(bytes -> session.binaryMessage(factory -> factory.wrap(bytes))));
+
+        return Mono.zip(input, output).then();
+    }
+
+    Mono<Void> onMessage(DataBuffer payload, String user, InstrumentRegistry instruments,
+                         AtomicIntegerArray subscriptions, Sinks.Many<byte[]> replies) {
+        // обрезанное сообщение пропускаем: чтение за его концом оборвало бы входящий поток сессии
+        int length = payload.readableByteCount();
+        if (length < 2) {
+            return Mono.empty();
+        }
+        byte type = payload.read();
+        int currency = payload.read() & 0xFF;
+        if (length < BinaryCodec.requestSize(type)) {
+            return Mono.empty();
+        }
+        switch (type) {
+            case BinaryCodec.SUBSCRIBE -> {
+                int channels = payload.read() & 0xFF;
+                List<Instrument> newBookSubscriptions = new ArrayList<>();
+                for (int id = 0; id < InstrumentRegistry.MAX_INSTRUMENTS; id++) {
+                    if (currency == BinaryCodec.ALL_CURRENCIES || currency == id) {
+                        int previous = subscriptions.getAndUpdate(id, mask -> mask | channels);
+                        Instrument instrument = instruments.get(id);
+                        if (instrument != null && (channels & ~previous & BinaryCodec.CHANNEL_BOOK) != 0) {
+                            newBookSubscriptions.add(instrument);
+                        }
+                    }
+                }
+                // новый подписчик стакана сначала получает снимок, дальше — дельты
+                return Flux.fromIterable(newBookSubscriptions)
+                        .concatMap(instrument -> orderBookDeltaService.resync(instrument.getSymbol())
+                                .doOnNext(snapshot -> replies.tryEmitNext(
+                                        BinaryCodec.book(instrument.getId(), System.currentTimeMillis(), snapshot))))
+                        .then();
+            }
+            case BinaryCodec.UNSUBSCRIBE -> {
+                int channels = payload.read() & 0xFF;
+                for (int id = 0; id < InstrumentRegistry.MAX_INSTRUMENTS; id++) {
+                    if (currency == BinaryCodec.ALL_CURRENCIES || currency == id) {
+                        subscriptions.getAndUpdate(id, mask -> mask & ~channels);
+                    }
+                }
+            }
+            case BinaryCodec.ORDER -> {
+                Instrument instrument = instruments.get(currency);
+                if (instrument != null) {
+                    byte side = payload.read();
+                    long price = readLong(payload);
+                    long volume = readLong(payload);
+                    currencyService.addUserOrder(currency, new UserOrder(
+                            side == BinaryCodec.SIDE_BUY ? "BUY" : "SELL",
+                            instrument.getSymbol(),
+                            BinaryCodec.unscale(volume),
+                            price == 0 ? null : BinaryCodec.unscale(price),
+                            user));
+                }
+            }
+            default -> {
+                // неизвестные сообщения игнорируем
+            }
+        }
+        return Mono.empty();
+    }
+
+    private static String user(WebSocketSession session) {
+        String user = UriComponentsBuilder.fromUri(session.getHandshakeInfo().getUri()).build()
+                .getQueryParams().getFirst("user");
+        return user == null || user.isEmpty()
+                ? "ws-" + session.getId()
+                : UriUtils.decode(user, StandardCharsets.UTF_8);
+    }
+
+    private static long readLong(DataBuffer payload) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (payload.read() & 0xFF);
+        }
+        return value;
+    }
+}
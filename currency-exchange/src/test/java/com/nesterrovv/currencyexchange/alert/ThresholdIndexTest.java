@@ -0,0 +1,63 @@
+package com.nesterrovv.currencyexchange.alert;
+
+import com.nesterrovv.currencyexchange.model.AlertRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ThresholdIndexTest {
+
+    private final ThresholdIndex index = new ThresholdIndex();
+
+    @Test
+    void crossingUpFiresOnlyRulesInRange() {
+        AlertRule low = rule(1, 100);
+        AlertRule middle = rule(2, 105);
+        AlertRule high = rule(3, 110);
+        index.add(110, high);
+        index.add(100, low);
+        index.add(105, middle);
+
+        assertThat(crossed(99, 105)).containsExactly(low, middle);
+        // порог, равный прошлому значению, уже пересечён
+        assertThat(crossed(105, 109)).isEmpty();
+        assertThat(crossed(110, 100)).isEmpty();
+    }
+
+    @Test
+    void removesOnlyTheGivenRuleAmongEqualThresholds() {
+        AlertRule first = rule(1, 100);
+        AlertRule second = rule(2, 100);
+        index.add(100, first);
+        index.add(100, second);
+
+        assertThat(index.remove(100, first)).isTrue();
+        assertThat(index.remove(100, first)).isFalse();
+        assertThat(crossed(0, 200)).containsExactly(second);
+        assertThat(index.remove(100, second)).isTrue();
+        assertThat(index.isEmpty()).isTrue();
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        for (int i = 1; i <= 1_000; i++) {
+            index.add(i, rule(i, i));
+        }
+
+        assertThat(crossed(250, 260)).extracting(AlertRule::getId)
+                .containsExactly(251L, 252L, 253L, 254L, 255L, 256L, 257L, 258L, 259L, 260L);
+    }
+
+    private List<AlertRule> crossed(double previous, double current) {
+        List<AlertRule> fired = new ArrayList<>();
+        index.crossed(previous, current, fired::add);
+        return fired;
+    }
+
+    private static AlertRule rule(long id, double threshold) {
+        return new AlertRule(id, "alice", "USD", "PRICE_ABOVE", threshold, 0);
+    }
+}
@@ -0,0 +1,130 @@
+package com.nesterrovv.currencyexchange.cluster;
+
+import com.nesterrovv.currencyexchange.model.CurrencyData;
+import com.nesterrovv.currencyexchange.model.ExecutionReport;
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClusterCodecTest {
+
+    @Test
+    void instrumentAnnouncementCarriesPriceSymbolAndModel() {
+        Instrument instrument = mock(Instrument.class);
+        when(instrument.getId()).thenReturn(5);
+        when(instrument.getSymbol()).thenReturn("ЮАНЬ");
+        when(instrument.getModelName()).thenReturn("sine");
+        when(instrument.getBasePrice()).thenReturn(12.5);
+
+        ByteBuffer frame = body(ClusterCodec.instrument(instrument), ClusterCodec.INSTRUMENT, 5);
+
+        assertThat(frame.getDouble()).isEqualTo(12.5);
+        assertThat(ClusterCodec.readString(frame)).isEqualTo("ЮАНЬ");
+        assertThat(ClusterCodec.readString(frame)).isEqualTo("sine");
+        assertThat(frame.hasRemaining()).isFalse();
+        assertThat(body(ClusterCodec.removed(5), ClusterCodec.REMOVED, 5).hasRemaining()).isFalse();
+    }
+
+    @Test
+    void marketDataRoundTrips() {
+        CurrencyData tick = new CurrencyData("USD", 80.25, 1_000, -0.5);
+        TradeEvent trade = new TradeEvent("USD", 80.5, 3.25, 2_000);
+        StatsData stats = new StatsData("USD", 80.5,
+                81, 79, 100, 80.1, 10,
+                80.6, 80.4, 5, 80.5, 2,
+                81, 79.5, 50, 80.2, 7);
+        OrderBook book = new OrderBook("USD",
+                List.of(new OrderBook.Order(80.4, 1), new OrderBook.Order(80.3, 2)),
+                List.of(new OrderBook.Order(80.6, 3)));
+
+        assertThat(ClusterCodec.readTick(body(ClusterCodec.tick(1, tick), ClusterCodec.TICK, 1), "USD"))
+                .isEqualTo(tick);
+        assertThat(ClusterCodec.readTrade(body(ClusterCodec.trade(1, trade), ClusterCodec.TRADE, 1), "USD"))
+                .isEqualTo(trade);
+        assertThat(ClusterCodec.readStats(body(ClusterCodec.stats(1, stats), ClusterCodec.STATS, 1), "USD"))
+                .isEqualTo(stats);
+        assertThat(ClusterCodec.readBook(body(ClusterCodec.book(1, book), ClusterCodec.BOOK, 1), "USD"))
+                .isEqualTo(book);
+    }
+
+    @Test
+    void ordersAndRepliesRoundTrip() {
+        UserOrder limit = new UserOrder("SELL", "USD", 2.5, 81.0, "alice");
+        UserOrder market = new UserOrder("BUY", "USD", 1, null, "боб");
+
+        ByteBuffer order = body(ClusterCodec.order(2, 77, limit), ClusterCodec.ORDER, 2);
+        assertThat(order.getLong()).isEqualTo(77);
+        assertThat(ClusterCodec.readOrder(order, "USD")).isEqualTo(limit);
+
+        ByteBuffer replace = body(ClusterCodec.replace(2, 78, 900, market, "боб"), ClusterCodec.REPLACE, 2);
+        assertThat(replace.getLong()).isEqualTo(78);
+        assertThat(replace.getLong()).isEqualTo(900);
+        assertThat(ClusterCodec.readOrder(replace, "USD")).isEqualTo(market);
+
+        ByteBuffer cancel = body(ClusterCodec.cancel(2, 900, "alice"), ClusterCodec.CANCEL, 2);
+        assertThat(cancel.getLong()).isEqualTo(900);
+        assertThat(ClusterCodec.readString(cancel)).isEqualTo("alice");
+
+        ByteBuffer reply = body(ClusterCodec.orderId(2, 77, 901), ClusterCodec.ORDER_ID, 2);
+        assertThat(reply.getLong()).isEqualTo(77);
+        assertThat(reply.getLong()).isEqualTo(901);
+    }
+
+    @Test
+    void executionReportRoundTripsWithAndWithoutSide() {
+        ExecutionReport fill = new ExecutionReport(10, "alice", "USD", "SELL", 81, 2.5, 81, 1, 1, 1.5,
+                "PARTIALLY_FILLED", 0, 3_000);
+        ExecutionReport rejected = new ExecutionReport(11, "bob", "USD", null, 0, 0, 0, 0, 0, 0,
+                "REJECTED", 0, 3_001);
+
+        for (ExecutionReport report : List.of(fill, rejected)) {
+            ByteBuffer frame = body(ClusterCodec.execution(3, report), ClusterCodec.EXECUTION, 3);
+            assertThat(ClusterCodec.readExecution(frame, "USD")).isEqualTo(report);
+            assertThat(frame.hasRemaining()).isFalse();
+        }
+    }
+
+    @Test
+    void frameDecoderSplitsAStreamIntoBodies() {
+        EmbeddedChannel channel = new EmbeddedChannel(ClusterCodec.frameDecoder());
+        byte[] first = ClusterCodec.orderId(1, 1, 2);
+        byte[] second = ClusterCodec.removed(4);
+        ByteBuf stream = Unpooled.buffer().writeBytes(first).writeBytes(second);
+
+        // кадр, пришедший по частям, собирается целиком
+        channel.writeInbound(stream.readRetainedSlice(first.length + 3));
+        channel.writeInbound(stream);
+
+        ByteBuf body = channel.readInbound();
+        assertThat(body.readableBytes()).isEqualTo(first.length - 4);
+        assertThat(body.readByte()).isEqualTo(ClusterCodec.ORDER_ID);
+        body.release();
+        body = channel.readInbound();
+        assertThat(body.readByte()).isEqualTo(ClusterCodec.REMOVED);
+        assertThat(body.readByte()).isEqualTo((byte) 4);
+        body.release();
+        assertThat(channel.finish()).isFalse();
+    }
+
+    // проверяет длину и заголовок кадра, возвращает тело после них, как его видит получатель
+    private static ByteBuffer body(byte[] frame, byte type, int id) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        assertThat(buffer.getInt()).isEqualTo(frame.length - 4);
+        assertThat(buffer.get()).isEqualTo(type);
+        assertThat(buffer.get() & 0xFF).isEqualTo(id);
+        return buffer;
+    }
+}
@@ -0,0 +1,153 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LimitOrderBookTest {
+
+    private final LimitOrderBook book = new LimitOrderBook("USD", new PriceScale(4, 2));
+    private final List<long[]> trades = new ArrayList<>();
+    private final TradeListener recorder =
+            (maker, price, volume) -> trades.add(new long[]{maker.getId(), price, volume});
+
+    @Test
+    void matchesBestPriceFirstAndFifoWithinLevel() {
+        book.add(1, Side.SELL, 101, 5, true);
+        book.add(2, Side.SELL, 100, 5, true);
+        book.add(3, Side.SELL, 100, 5, true);
+
+        long remaining = book.match(Side.BUY, 101, 12, recorder);
+
+        assertThat(remaining).isZero();
+        // сделки по цене встречной заявки: сначала лучший уровень, внутри него — по очереди
+        assertThat(trades).containsExactly(
+                new long[]{2, 100, 5},
+                new long[]{3, 100, 5},
+                new long[]{1, 101, 2});
+        assertThat(book.get(1).getVolume()).isEqualTo(3);
+        assertThat(book.get(2)).isNull();
+        assertThat(book.bestAsk()).isEqualTo(101);
+    }
+
+    @Test
+    void stopsAtLimitPriceAndReturnsRemainder() {
+        book.add(1, Side.BUY, 99, 5, true);
+        book.add(2, Side.BUY, 98, 5, true);
+
+        long remaining = book.match(Side.SELL, 99, 8, recorder);
+
+        assertThat(remaining).isEqualTo(3);
+        assertThat(trades).containsExactly(new long[]{1, 99, 5});
+        assertThat(book.bestBid()).isEqualTo(98);
+    }
+
+    @Test
+    void cancelRemovesOrderAndEmptyLevel() {
+        book.add(1, Side.BUY, 99, 5, true);
+        book.add(2, Side.BUY, 98, 5, true);
+
+        RestingOrder cancelled = book.cancel(1);
+
+        assertThat(cancelled.getId()).isEqualTo(1);
+        assertThat(book.cancel(1)).isNull();
+        assertThat(book.bestBid()).isEqualTo(98);
+        assertThat(book.size()).isEqualTo(1);
+    }
+
+    @Test
+    void emptySidesReportSentinelPrices() {
+        assertThat(book.bestBid()).isEqualTo(Long.MIN_VALUE);
+        assertThat(book.bestAsk()).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    void rejectsReservedOrderIdZero() {
+        assertThatThrownBy(() -> book.add(0, Side.BUY, 99, 5, true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(book.get(0)).isNull();
+        assertThat(book.cancel(0)).isNull();
+    }
+
+    @Test
+    void userOrderKeepsOwnerAndOriginalVolume() {
+        book.add(7, Side.SELL, 100, 3, 10, "alice");
+
+        RestingOrder order = book.get(7);
+
+        assertThat(order.isUserOrder()).isTrue();
+        assertThat(order.getOwner()).isEqualTo("alice");
+        assertThat(order.getVolume()).isEqualTo(3);
+        assertThat(order.getOriginalVolume()).isEqualTo(10);
+    }
+
+    @Test
+    void forEachWalksFromBestLevelInQueueOrder() {
+        book.add(1, Side.BUY, 98, 1, true);
+        book.add(2, Side.BUY, 99, 1, true);
+        book.add(3, Side.BUY, 99, 1, true);
+        List<Long> ids = new ArrayList<>();
+
+        book.forEach(Side.BUY, order -> ids.add(order.getId()));
+
+        assertThat(ids).containsExactly(2L, 3L, 1L);
+    }
+
+    @Test
+    void indexStaysConsistentThroughGrowthAndRemovals() {
+        // случайные добавления и снятия против HashMap: проверяет рост индекса и сдвиг при удалении
+        SplittableRandom random = new SplittableRandom(7);
+        Map<Long, Long> expected = new HashMap<>();
+        for (long id = 1; id <= 20_000; id++) {
+            long price = 100 + random.nextInt(50);
+            book.add(id, Side.BUY, price, 1, true);
+            expected.put(id, price);
+            if (random.nextInt(3) == 0) {
+                long victim = 1 + random.nextLong(id);
+                RestingOrder cancelled = book.cancel(victim);
+                Long removed = expected.remove(victim);
+                assertThat(cancelled == null).isEqualTo(removed == null);
+            }
+        }
+        assertThat(book.size()).isEqualTo(expected.size());
+        expected.forEach((id, price) -> assertThat(book.get(id).getPrice()).isEqualTo(price));
+    }
+
+    @Test
+    void levelsStaySortedThroughInsertsAndRemovalsAtAnyDepth() {
+        // много разных уровней в случайном порядке против TreeMap: лучший уровень и обход сверху вниз
+        SplittableRandom random = new SplittableRandom(11);
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            long price = 1 + random.nextInt(50_000);
+            book.add(id, Side.SELL, price, 1, true);
+            expected.merge(price, 1L, Long::sum);
+            ids.add(id);
+            if (random.nextInt(2) == 0) {
+                long victim = ids.remove(random.nextInt(ids.size()));
+                long victimPrice = book.cancel(victim).getPrice();
+                expected.computeIfPresent(victimPrice, (key, count) -> count == 1 ? null : count - 1);
+            }
+        }
+
+        assertThat(book.bestAsk()).isEqualTo(expected.firstKey());
+        List<Long> walked = new ArrayList<>();
+        book.forEach(Side.SELL, order -> {
+            if (walked.isEmpty() || walked.get(walked.size() - 1) != order.getPrice()) {
+                walked.add(order.getPrice());
+            }
+        });
+        assertThat(walked).containsExactlyElementsOf(expected.keySet());
+        assertThat(book.snapshot(5).getAsks()).extracting(order -> order.getPrice())
+                .containsExactlyElementsOf(expected.keySet().stream().limit(5).map(book.getScale()::toPrice).toList());
+    }
+}
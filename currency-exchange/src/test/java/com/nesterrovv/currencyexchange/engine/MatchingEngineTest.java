@@ -0,0 +1,148 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MatchingEngineTest {
+
+    private final LimitOrderBook book = new LimitOrderBook("USD", new PriceScale(4, 2));
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final MatchingEngine engine = new MatchingEngine(book, 1024,
+            (maker, price, volume) -> events.add("trade " + maker.getId() + " " + volume),
+            new OrderListener() {
+                @Override
+                public void onCancel(long orderId) {
+                    events.add("cancel " + orderId);
+                }
+
+                @Override
+                public void onReplace(long replacedId, long orderId) {
+                    events.add("replace " + replacedId + " " + orderId);
+                }
+
+                @Override
+                public void onRejected(long orderId, String owner) {
+                    events.add("rejected " + orderId + " " + owner);
+                }
+
+                @Override
+                public void onFailed(OrderEvent.Type type, long orderId, String owner, RuntimeException error) {
+                    events.add("failed " + type);
+                }
+            });
+
+    @AfterEach
+    void stop() {
+        engine.stop();
+    }
+
+    @Test
+    void userCancelsOnlyOwnOrders() throws Exception {
+        engine.start();
+        engine.submit(1, Side.BUY, 100, 5, "alice");
+        engine.cancel(1, "bob");
+        await();
+        assertThat(book.get(1)).isNotNull();
+
+        engine.cancel(1, "alice");
+        await();
+
+        assertThat(book.get(1)).isNull();
+        assertThat(events).containsExactly("rejected 1 bob", "cancel 1");
+    }
+
+    @Test
+    void userCannotCancelQuotesOrOrdersWithoutOwner() throws Exception {
+        engine.start();
+        engine.execute(b -> b.add(1, Side.SELL, 101, 5, false));
+        engine.submit(2, Side.SELL, 102, 5);
+        engine.cancel(1, "alice");
+        engine.cancel(2, "alice");
+        await();
+
+        assertThat(book.size()).isEqualTo(2);
+        assertThat(events).containsExactly("rejected 1 alice", "rejected 2 alice");
+
+        // внутренняя команда без владельца снимает любую заявку
+        engine.cancel(1);
+        await();
+        assertThat(book.get(1)).isNull();
+    }
+
+    @Test
+    void replaceKeepsSideAndOwnerAndLosesPriority() throws Exception {
+        engine.start();
+        engine.submit(1, Side.BUY, 100, 5, "alice");
+        engine.submit(2, Side.BUY, 100, 5, "bob");
+        engine.replace(1, 3, 100, 4, "alice");
+        engine.submit(4, Side.SELL, 100, 6, "carol");
+        await();
+
+        assertThat(book.get(1)).isNull();
+        RestingOrder replacement = book.get(3);
+        assertThat(replacement.getSide()).isEqualTo(Side.BUY);
+        assertThat(replacement.getOwner()).isEqualTo("alice");
+        // замена встала за заявкой bob: продажа сначала исполняет её
+        assertThat(events).containsExactly("replace 1 3", "trade 2 5", "trade 3 1");
+        assertThat(replacement.getVolume()).isEqualTo(3);
+    }
+
+    @Test
+    void replaceOfForeignOrderIsRejected() throws Exception {
+        engine.start();
+        engine.submit(1, Side.BUY, 100, 5, "alice");
+        engine.replace(1, 2, 101, 5, "bob");
+        await();
+
+        assertThat(book.get(1)).isNotNull();
+        assertThat(book.get(2)).isNull();
+        assertThat(events).containsExactly("rejected 1 bob");
+    }
+
+    @Test
+    void keepsRunningAfterCommandThrows() throws Exception {
+        engine.start();
+        engine.execute(b -> {
+            throw new IllegalStateException("boom");
+        });
+        engine.submit(1, Side.BUY, 100, 5, "alice");
+        await();
+
+        assertThat(engine.failures()).isEqualTo(1);
+        assertThat(events).containsExactly("failed COMMAND");
+        assertThat(book.get(1)).isNotNull();
+    }
+
+    @Test
+    void stopProcessesAcceptedCommandsFirstAndRejectsLaterOnes() {
+        engine.start();
+        OrderBatch batch = new OrderBatch(1);
+        batch.add(2, Side.SELL, 100, 3, "bob");
+        engine.submit(1, Side.BUY, 100, 5, "alice");
+        engine.submit(batch);
+
+        engine.stop(b -> events.add("last " + b.get(1).getVolume()));
+
+        // заявка и пачка, принятые до остановки, сопоставлены раньше последней команды
+        assertThat(events).containsExactly("trade 1 3", "last 2");
+        assertThat(batch.done()).isCompleted();
+        assertThat(engine.isStopped()).isTrue();
+        assertThat(engine.trySubmit(3, Side.BUY, 100, 1, "alice")).isFalse();
+        assertThat(engine.execute(b -> events.add("late"))).isFalse();
+        assertThat(engine.query(LimitOrderBook::size)).isCompletedExceptionally();
+        assertThatThrownBy(() -> engine.submit(3, Side.BUY, 100, 1, "alice"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    // очередь FIFO: ответ на запрос означает, что всё до него обработано
+    private void await() throws Exception {
+        engine.query(LimitOrderBook::size).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,26 @@
+package com.nesterrovv.currencyexchange.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderRingBufferTest {
+
+    private final OrderRingBuffer ring = new OrderRingBuffer(4);
+
+    @Test
+    void tryNextRefusesWhenFullAndResumesAfterDrain() {
+        for (int i = 0; i < ring.capacity(); i++) {
+            long sequence = ring.tryNext();
+            assertThat(sequence).isEqualTo(i);
+            ring.get(sequence).setCancel(i + 1, null);
+            ring.publish(sequence);
+        }
+
+        assertThat(ring.tryNext()).isEqualTo(-1);
+        assertThat(ring.size()).isEqualTo(ring.capacity());
+
+        assertThat(ring.drain(event -> { })).isEqualTo(ring.capacity());
+        assertThat(ring.tryNext()).isEqualTo(ring.capacity());
+    }
+}
@@ -0,0 +1,221 @@
+package com.nesterrovv.currencyexchange.journal;
+
+import com.nesterrovv.currencyexchange.engine.Side;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedFileJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsInOrder() {
+        try (MappedFileJournal journal = open(16)) {
+            long order = journal.append(JournalRecord.ORDER, 3, Side.BUY, 0, 10, 1000, 5, 111);
+            long cancel = journal.append(JournalRecord.CANCEL, 3, null, 0, 10, 0, 0, 112);
+
+            List<String> records = replay(journal);
+
+            assertThat(order).isEqualTo(1);
+            assertThat(cancel).isEqualTo(2);
+            assertThat(records).containsExactly(
+                    "1 ORDER 3 BUY 10 1000 5 111 null",
+                    "2 CANCEL 3 null 10 0 0 112 null");
+        }
+    }
+
+    @Test
+    void returnsTextWithItsRecordAndHidesTextChunks() {
+        String owner = "очень-длинное-имя-пользователя@example.com";
+        try (MappedFileJournal journal = open(16)) {
+            long sequence = journal.append(JournalRecord.ORDER, 0, Side.SELL, 0, 7, 1000, 5, 1, owner);
+            journal.append(JournalRecord.TRADE, 0, Side.SELL, 0, 7, 1000, 5, 2);
+
+            List<String> records = replay(journal);
+
+            // строка занимает несколько записей TEXT перед заявкой, обработчик их не видит
+            assertThat(sequence).isGreaterThan(2);
+            assertThat(records).hasSize(2);
+            assertThat(records.get(0)).startsWith(sequence + " ORDER").endsWith(" " + owner);
+            assertThat(records.get(1)).contains(" TRADE ").endsWith(" null");
+        }
+    }
+
+    @Test
+    void stopsAtTornRecordAndOverwritesItOnReopen() throws IOException {
+        try (MappedFileJournal journal = open(16)) {
+            for (int i = 1; i <= 3; i++) {
+                journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, i, 1000, 1, i);
+            }
+        }
+        // недописанная при сбое третья запись: её crc больше не сходится
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(2L * JournalRecord.SIZE + 30);
+            file.write(0x5A);
+        }
+
+        try (MappedFileJournal journal = open(16)) {
+            assertThat(replay(journal)).hasSize(2);
+
+            long sequence = journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 4, 1000, 1, 4);
+
+            assertThat(sequence).isEqualTo(3);
+            assertThat(replay(journal)).extracting(line -> line.split(" ")[4]).containsExactly("1", "2", "4");
+        }
+    }
+
+    @Test
+    void repeatsInstrumentBindingsInEverySegmentSoTruncationKeepsThem() throws IOException {
+        try (MappedFileJournal journal = open(4)) {
+            journal.append(JournalRecord.INSTRUMENT, 0, null, 0, 0, 0, 0, 1, "USD");
+            // по 4 записи в сегменте: привязка (со своей записью TEXT) и 2 заявки
+            for (int i = 1; i <= 8; i++) {
+                journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, i, 1000, 1, i);
+            }
+            assertThat(segments()).hasSize(4);
+
+            journal.truncate(12);
+
+            assertThat(segments()).hasSize(1);
+            assertThat(replay(journal)).containsExactly(
+                    "14 INSTRUMENT 0 null 0 0 0 7 USD",
+                    "15 ORDER 0 BUY 7 1000 1 7 null",
+                    "16 ORDER 0 BUY 8 1000 1 8 null");
+        }
+    }
+
+    @Test
+    void continuesSequenceAfterCrashRightAfterSegmentRoll() throws IOException {
+        try (MappedFileJournal journal = open(4)) {
+            for (int i = 1; i <= 4; i++) {
+                journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, i, 1000, 1, i);
+            }
+        }
+        // сбой сразу после создания следующего сегмента: файл есть, целых записей в нём нет
+        Path last = segments().get(segments().size() - 1);
+        Files.write(directory.resolve(last.getFileName().toString().replace("0000000000", "0000000001")),
+                new byte[4 * JournalRecord.SIZE]);
+
+        try (MappedFileJournal journal = open(4)) {
+            long sequence = journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 5, 1000, 1, 5);
+
+            assertThat(sequence).isEqualTo(5);
+            assertThat(replay(journal)).extracting(line -> line.split(" ")[0])
+                    .containsExactly("1", "2", "3", "4", "5");
+        }
+    }
+
+    @Test
+    void padsSegmentTailSoSequencesStayContiguous() throws IOException {
+        try (MappedFileJournal journal = open(4)) {
+            journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 1, 1000, 1, 1);
+            journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 2, 1000, 1, 2);
+            journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 3, 1000, 1, 3);
+            // строка с заявкой занимает 3 места и не помещается в последнее место первого сегмента
+            long sequence = journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 4, 1000, 1, 4, "x".repeat(40));
+
+            assertThat(sequence).isEqualTo(7);
+            assertThat(segments()).hasSize(2);
+            assertThat(replay(journal)).extracting(line -> line.split(" ")[0])
+                    .containsExactly("1", "2", "3", "7");
+
+            journal.truncate(4);
+
+            assertThat(segments()).hasSize(1);
+        }
+    }
+
+    @Test
+    void concurrentWritersGetDistinctSequencesInTheirOwnOrder() throws Exception {
+        int writers = 4;
+        int perWriter = 5_000;
+        long[][] sequences = new long[writers][perWriter];
+        try (MappedFileJournal journal = open(64)) {
+            journal.append(JournalRecord.INSTRUMENT, 0, null, 0, 0, 0, 0, 0, "USD");
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        // каждый третий — со строкой, чтобы записи разной длины упирались в хвосты сегментов
+                        sequences[writer][i] = journal.append(JournalRecord.ORDER, writer, Side.BUY, 0, i,
+                                1000, 1, i, i % 3 == 0 ? "user-" + writer : null);
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long last = Stream.of(sequences).mapToLong(row -> row[perWriter - 1]).max().orElseThrow();
+            journal.awaitDurable(last);
+
+            List<List<Long>> replayed = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                replayed.add(new ArrayList<>());
+            }
+            journal.replay(record -> {
+                if (record.type() == JournalRecord.ORDER) {
+                    assertThat(record.orderId()).isEqualTo(replayed.get(record.currency()).size());
+                    assertThat(record.text()).isEqualTo(record.orderId() % 3 == 0
+                            ? "user-" + record.currency() : null);
+                    replayed.get(record.currency()).add(record.sequence());
+                }
+            });
+            for (int w = 0; w < writers; w++) {
+                assertThat(replayed.get(w)).containsExactly(Arrays.stream(sequences[w]).boxed().toArray(Long[]::new));
+            }
+        }
+    }
+
+    @Test
+    void rejectsRecordLargerThanSegment() {
+        try (MappedFileJournal journal = open(2)) {
+            assertThatThrownBy(() -> journal.append(JournalRecord.ORDER, 0, Side.BUY, 0, 1, 1000, 1, 1,
+                    "x".repeat(JournalRecord.TEXT_CHUNK * 2)))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private MappedFileJournal open(int recordsPerSegment) {
+        return new MappedFileJournal(directory, recordsPerSegment, 1, TimeUnit.MILLISECONDS);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static List<String> replay(Journal journal) {
+        List<String> records = new ArrayList<>();
+        journal.replay(record -> records.add(record.sequence() + " " + typeName(record.type()) + " "
+                + record.currency() + " " + record.side() + " " + record.orderId() + " " + record.price() + " "
+                + record.volume() + " " + record.timestamp() + " " + record.text()));
+        return records;
+    }
+
+    private static String typeName(byte type) {
+        return switch (type) {
+            case JournalRecord.ORDER -> "ORDER";
+            case JournalRecord.QUOTE -> "QUOTE";
+            case JournalRecord.CANCEL -> "CANCEL";
+            case JournalRecord.TRADE -> "TRADE";
+            case JournalRecord.INSTRUMENT -> "INSTRUMENT";
+            default -> String.valueOf(type);
+        };
+    }
+}
@@ -0,0 +1,120 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CandleAggregatorTest {
+
+    private static final long T0 = Instant.parse("2026-01-01T10:00:00Z").toEpochMilli();
+    private static final long SECOND = 1_000;
+    private static final long MINUTE = 60_000;
+
+    private final CandleAggregator candles = new CandleAggregator("USD");
+    private final List<double[]> trades = new ArrayList<>();
+
+    @Test
+    void everyResolutionMatchesCandlesBuiltDirectlyFromTrades() {
+        // два часа сделок с шагом до 40 с: пересекаются границы секунд, минут, 5 минут и часа;
+        // объёмы целые, чтобы суммы по периодам совпадали точно
+        SplittableRandom random = new SplittableRandom(3);
+        for (long t = T0 + 250; t < T0 + 2 * 3_600_000L; t += random.nextLong(40 * SECOND)) {
+            trade(t, 100 + random.nextInt(50) * 0.01, 1 + random.nextInt(9));
+        }
+
+        for (CandleResolution resolution : CandleResolution.values()) {
+            CandleSeries series = candles.range(resolution, 0, Long.MAX_VALUE);
+
+            assertThat(rows(series)).as(resolution.getLabel()).containsExactlyElementsOf(expected(resolution));
+        }
+    }
+
+    @Test
+    void openCandleIncludesDataStillInLowerResolutions() {
+        trade(T0 + 100, 10, 1);
+        trade(T0 + 30 * SECOND, 12, 2);
+        // минута 10:00 закрыта и влита в 5m; 10:01:10 ещё в секундах, 10:01:10.5 — в открытой секунде
+        trade(T0 + MINUTE + 10 * SECOND, 8, 3);
+        trade(T0 + MINUTE + 10 * SECOND + 500, 9, 4);
+
+        CandleSeries fiveMinutes = candles.range(CandleResolution.M5, T0, T0 + 5 * MINUTE);
+        assertThat(rows(fiveMinutes)).containsExactly(row(T0, 10, 12, 8, 9, 10));
+
+        // хвост в мелких периодах относится к свече 10:01, а не к закрытой 10:00
+        CandleSeries minutes = candles.range(CandleResolution.M1, T0, Long.MAX_VALUE);
+        assertThat(rows(minutes)).containsExactly(
+                row(T0, 10, 12, 10, 12, 3),
+                row(T0 + MINUTE, 8, 9, 8, 9, 7));
+
+        // диапазон, обрезанный до открытой свечи, её не захватывает
+        assertThat(rows(candles.range(CandleResolution.M1, T0, T0 + MINUTE)))
+                .containsExactly(row(T0, 10, 12, 10, 12, 3));
+        assertThat(rows(candles.range(CandleResolution.H1, T0 + 3_600_000L, Long.MAX_VALUE))).isEmpty();
+    }
+
+    @Test
+    void ringKeepsOnlyTheLatestCandlesAfterWrapAround() {
+        int capacity = CandleResolution.S1.getCapacity();
+        for (int i = 0; i < capacity + 100; i++) {
+            trade(T0 + i * SECOND, 100 + i % 7, 1);
+        }
+
+        CandleSeries seconds = candles.range(CandleResolution.S1, 0, Long.MAX_VALUE);
+        assertThat(seconds.getTime()).hasSize(capacity);
+        assertThat(seconds.getTime()[0]).isEqualTo(T0 + 100 * SECOND);
+        assertThat(seconds.getTime()[capacity - 1]).isEqualTo(T0 + (capacity + 99) * SECOND);
+
+        // поиск по времени внутри кольца, перешедшего через конец массива
+        long from = T0 + (capacity - 10) * SECOND;
+        CandleSeries tail = candles.range(CandleResolution.S1, from, from + 20 * SECOND);
+        assertThat(tail.getTime()).hasSize(20);
+        assertThat(tail.getTime()[0]).isEqualTo(from);
+        assertThat(tail.getClose()[0]).isEqualTo(100 + (capacity - 10) % 7);
+
+        // свечи крупнее по-прежнему собраны из всех секунд, включая вытесненные из кольца
+        for (CandleResolution resolution : List.of(CandleResolution.M1, CandleResolution.M5, CandleResolution.H1)) {
+            assertThat(rows(candles.range(resolution, 0, Long.MAX_VALUE))).as(resolution.getLabel())
+                    .containsExactlyElementsOf(expected(resolution));
+        }
+    }
+
+    private void trade(long timestamp, double price, double volume) {
+        candles.onPrice(timestamp, price, volume);
+        trades.add(new double[]{timestamp, price, volume});
+    }
+
+    // свечи прямо по сделкам: open — первая цена периода, close — последняя
+    private List<List<Double>> expected(CandleResolution resolution) {
+        TreeMap<Long, double[]> byPeriod = new TreeMap<>();
+        for (double[] trade : trades) {
+            double price = trade[1];
+            byPeriod.merge(resolution.floor((long) trade[0]),
+                    new double[]{price, price, price, price, trade[2]},
+                    (candle, next) -> new double[]{candle[0], Math.max(candle[1], price),
+                            Math.min(candle[2], price), price, candle[4] + next[4]});
+        }
+        List<List<Double>> rows = new ArrayList<>();
+        byPeriod.forEach((time, candle) -> rows.add(row(time, candle[0], candle[1], candle[2], candle[3], candle[4])));
+        return rows;
+    }
+
+    private static List<List<Double>> rows(CandleSeries series) {
+        List<List<Double>> rows = new ArrayList<>();
+        for (int i = 0; i < series.getTime().length; i++) {
+            rows.add(row(series.getTime()[i], series.getOpen()[i], series.getHigh()[i], series.getLow()[i],
+                    series.getClose()[i], series.getVolume()[i]));
+        }
+        return rows;
+    }
+
+    private static List<Double> row(long time, double open, double high, double low, double close, double volume) {
+        return List.of((double) time, open, high, low, close, volume);
+    }
+}
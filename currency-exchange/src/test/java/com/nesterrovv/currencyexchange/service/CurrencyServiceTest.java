@@ -0,0 +1,169 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.cluster.ClusterProperties;
+import com.nesterrovv.currencyexchange.execution.ExecutionProperties;
+import com.nesterrovv.currencyexchange.execution.ExecutionSchedulers;
+import com.nesterrovv.currencyexchange.generator.GeneratorProperties;
+import com.nesterrovv.currencyexchange.generator.PriceModels;
+import com.nesterrovv.currencyexchange.generator.SineModelProvider;
+import com.nesterrovv.currencyexchange.journal.Journal;
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.OrderReport;
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.snapshot.SnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CurrencyServiceTest {
+
+    private ExecutionSchedulers schedulers;
+    private CurrencyService service;
+
+    @BeforeEach
+    void start() {
+        GeneratorProperties properties = new GeneratorProperties();
+        properties.setTicksPerSecond(1);
+        properties.setInstruments(List.of(instrument("USD"), instrument("EUR")));
+        schedulers = new ExecutionSchedulers(new ExecutionProperties());
+        service = new CurrencyService(Journal.NONE, SnapshotStore.NONE, new SimpleMeterRegistry(), properties,
+                new PriceModels(List.of(new SineModelProvider())), new ClusterProperties(), schedulers);
+    }
+
+    @AfterEach
+    void stop() {
+        service.stopEngines();
+        schedulers.dispose();
+    }
+
+    @Test
+    void marketMakerQuotesDoNotCrossUserOrders() {
+        // котировки ставятся вокруг 100 без сопоставления: без ограничения покупки выше 95 пересекли бы продажу
+        service.addUserOrder(new UserOrder("SELL", "USD", 1, 95.0, "alice")).join();
+        service.addUserOrder(new UserOrder("BUY", "EUR", 1, 105.0, "bob")).join();
+
+        for (String currency : List.of("USD", "EUR")) {
+            OrderBook book = service.generateManualOrderBook(currency);
+
+            double bestBid = book.getBids().stream().mapToDouble(OrderBook.Order::getPrice).max().orElseThrow();
+            double bestAsk = book.getAsks().stream().mapToDouble(OrderBook.Order::getPrice).min().orElseThrow();
+            assertThat(bestBid).as(currency).isLessThan(bestAsk);
+        }
+    }
+
+    @Test
+    void orderIdsStartAboveReservedZero() {
+        long orderId = service.addUserOrder(new UserOrder("BUY", "USD", 1, 90.0, "alice")).join();
+
+        assertThat(orderId).isPositive();
+    }
+
+    @Test
+    void removingInstrumentCancelsRestingUserOrders() {
+        List<String> reports = new CopyOnWriteArrayList<>();
+        service.getInstruments().get("USD").getReportFlux()
+                .subscribe(report -> reports.add(report.getOrderId() + " " + report.getStatus()));
+        long orderId = service.addUserOrder(new UserOrder("BUY", "USD", 1, 50.0, "alice")).join();
+
+        assertThat(service.removeInstrument("USD")).isTrue();
+
+        assertThat(reports).containsExactly(orderId + " ACCEPTED", orderId + " CANCELLED");
+    }
+
+    @Test
+    void batchReportsCarryIdsIssuedByTheOwningNode() {
+        service.addRemoteInstrument("JPY", 1, "sine", new OrderRoute() {
+            @Override
+            public CompletableFuture<Long> send(UserOrder order) {
+                return "alice".equals(order.getUser()) ? CompletableFuture.completedFuture(42L)
+                        : CompletableFuture.failedFuture(new IllegalStateException("peer disconnected"));
+            }
+
+            @Override
+            public void cancel(long orderId, String user) {
+            }
+
+            @Override
+            public CompletableFuture<Long> replace(long orderId, UserOrder order, String user) {
+                return CompletableFuture.completedFuture(0L);
+            }
+        });
+
+        List<OrderReport> reports = service.addUserOrders(List.of(
+                        new UserOrder("BUY", "USD", 1, 50.0, "alice"),
+                        new UserOrder("BUY", "JPY", 1, 1.0, "alice"),
+                        new UserOrder("BUY", "JPY", 1, 1.0, "bob")))
+                .collectList()
+                .block(Duration.ofSeconds(5));
+
+        assertThat(reports).extracting(OrderReport::getStatus).containsExactly("RESTING", "ROUTED", "REJECTED");
+        assertThat(reports.get(0).getOrderId()).isPositive();
+        assertThat(reports).extracting(OrderReport::getOrderId).endsWith(42L, 0L);
+    }
+
+    @Test
+    void batchesRacingInstrumentRemovalAllGetReports() throws InterruptedException {
+        List<String> statuses = new CopyOnWriteArrayList<>();
+        Thread client = Thread.ofPlatform().start(() -> {
+            for (int i = 0; i < 200; i++) {
+                service.addUserOrders(List.of(new UserOrder("BUY", "EUR", 1, 50.0, "alice")))
+                        .map(OrderReport::getStatus)
+                        .doOnNext(statuses::add)
+                        .blockLast(Duration.ofSeconds(5));
+            }
+        });
+        while (statuses.isEmpty()) {
+            Thread.onSpinWait();
+        }
+
+        service.removeInstrument("EUR");
+        client.join();
+
+        // ни одна пачка не зависла: до удаления заявки встают в стакан, после — отклоняются
+        assertThat(statuses).hasSize(200).containsOnly("RESTING", "REJECTED").endsWith("REJECTED");
+    }
+
+    @Test
+    void rejectsUnknownCurrencyAndInvalidVolumeOrPrice() {
+        List<UserOrder> invalid = List.of(
+                new UserOrder("BUY", "XXX", 1, 90.0, "alice"),
+                new UserOrder("BUY", "USD", 0, 90.0, "alice"),
+                new UserOrder("BUY", "USD", -1, 90.0, "alice"),
+                new UserOrder("BUY", "USD", Double.NaN, 90.0, "alice"),
+                new UserOrder("BUY", "USD", 1, 0.0, "alice"),
+                new UserOrder("BUY", "USD", 1, -90.0, "alice"),
+                new UserOrder("BUY", "USD", 1, Double.POSITIVE_INFINITY, "alice"));
+
+        for (UserOrder order : invalid) {
+            assertThat(service.addUserOrder(order)).as(order.toString())
+                    .failsWithin(Duration.ofSeconds(1))
+                    .withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatThrownBy(() -> service.replaceOrder("USD", 1, invalid.get(1), "alice"))
+                .isInstanceOf(IllegalArgumentException.class);
+        // в пачке недопустимая заявка отклоняется, остальные исполняются
+        assertThat(service.addUserOrders(List.of(invalid.get(4), new UserOrder("BUY", "USD", 1, 50.0, "alice")))
+                .map(OrderReport::getStatus)
+                .collectList()
+                .block(Duration.ofSeconds(5)))
+                .containsExactly("REJECTED", "RESTING");
+    }
+
+    private static GeneratorProperties.Instrument instrument(String symbol) {
+        GeneratorProperties.Instrument instrument = new GeneratorProperties.Instrument();
+        instrument.setSymbol(symbol);
+        instrument.setPrice(100);
+        return instrument;
+    }
+}
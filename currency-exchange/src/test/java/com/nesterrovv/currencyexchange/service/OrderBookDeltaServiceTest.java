@@ -0,0 +1,83 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.OrderBook;
+import com.nesterrovv.currencyexchange.model.OrderBookUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderBookDeltaServiceTest {
+
+    private final Sinks.Many<OrderBook> books = Sinks.many().multicast().directBestEffort();
+    private OrderBookDeltaService service;
+
+    @BeforeEach
+    void setUp() {
+        CurrencyService currencyService = mock(CurrencyService.class);
+        when(currencyService.getOrderBookFlux()).thenReturn(books.asFlux());
+        service = new OrderBookDeltaService(currencyService);
+    }
+
+    @Test
+    void snapshotHoldsAllLevelsAndDeltasOnlyChanges() {
+        Disposable shared = service.getDeltaFlux().subscribe();
+        books.tryEmitNext(book(100, 5, 101, 7));
+
+        List<OrderBookUpdate> updates = service.subscribe("USD").take(2).collectList()
+                .doOnSubscribe(subscription -> books.tryEmitNext(book(100, 5, 101, 3)))
+                .block(Duration.ofSeconds(5));
+        shared.dispose();
+
+        assertThat(updates.get(0).isSnapshot()).isTrue();
+        assertThat(updates.get(0).getSequence()).isEqualTo(1);
+        assertThat(updates.get(0).getChanges()).containsExactly(
+                new OrderBookUpdate.LevelChange("BUY", 100, 5),
+                new OrderBookUpdate.LevelChange("SELL", 101, 7));
+        assertThat(updates.get(1).isSnapshot()).isFalse();
+        assertThat(updates.get(1).getSequence()).isEqualTo(2);
+        assertThat(updates.get(1).getChanges()).containsExactly(new OrderBookUpdate.LevelChange("SELL", 101, 3));
+    }
+
+    @Test
+    void subscribingWhileBookChangesLosesAndRepeatsNothing() throws InterruptedException {
+        // общий поток дельт живёт всё время, как в приложении: номера растут и без подписчиков
+        Disposable shared = service.getDeltaFlux().subscribe();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread publisher = new Thread(() -> {
+            for (long volume = 1; running.get(); volume++) {
+                books.tryEmitNext(book(100, volume, 101, 1));
+            }
+        });
+        publisher.start();
+        try {
+            for (int i = 0; i < 200; i++) {
+                List<OrderBookUpdate> updates = service.subscribe("USD").take(20).collectList()
+                        .block(Duration.ofSeconds(5));
+
+                assertThat(updates.get(0).isSnapshot()).isTrue();
+                for (int j = 1; j < updates.size(); j++) {
+                    assertThat(updates.get(j).isSnapshot()).isFalse();
+                    assertThat(updates.get(j).getSequence()).isEqualTo(updates.get(j - 1).getSequence() + 1);
+                }
+            }
+        } finally {
+            running.set(false);
+            publisher.join();
+            shared.dispose();
+        }
+    }
+
+    private static OrderBook book(double bid, double bidVolume, double ask, double askVolume) {
+        return new OrderBook("USD", List.of(new OrderBook.Order(bid, bidVolume)),
+                List.of(new OrderBook.Order(ask, askVolume)));
+    }
+}
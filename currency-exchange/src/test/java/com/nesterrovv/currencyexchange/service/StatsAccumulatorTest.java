@@ -0,0 +1,89 @@
+package com.nesterrovv.currencyexchange.service;
+
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class StatsAccumulatorTest {
+
+    private static final long NOON = Instant.parse("2026-01-01T12:00:00Z").toEpochMilli();
+
+    private final StatsAccumulator stats = new StatsAccumulator("USD");
+
+    @Test
+    void aggregatesTradesInWindowsAndDay() {
+        stats.update(trade(10, 1, NOON));
+        stats.update(trade(12, 2, NOON + 1_000));
+        StatsData data = stats.update(trade(11, 1, NOON + 2_000));
+
+        assertThat(data.getLastPrice()).isEqualTo(11);
+        assertThat(data.getMinuteHigh()).isEqualTo(12);
+        assertThat(data.getMinuteLow()).isEqualTo(10);
+        assertThat(data.getMinuteVolume()).isEqualTo(4);
+        assertThat(data.getMinuteVwap()).isCloseTo(45.0 / 4, within(1e-9));
+        assertThat(data.getDayTradeCount()).isEqualTo(3);
+    }
+
+    @Test
+    void windowsExpireWithoutNewTrades() {
+        stats.update(trade(10, 1, NOON));
+        stats.update(trade(12, 1, NOON + 30_000));
+
+        assertThat(stats.advance(NOON + 31_000)).isFalse();
+        // первая сделка выпала из минутного окна, максимум остался от второй
+        assertThat(stats.advance(NOON + 60_000)).isTrue();
+        StatsData data = stats.toStatsData();
+        assertThat(data.getMinuteTradeCount()).isEqualTo(1);
+        assertThat(data.getMinuteLow()).isEqualTo(12);
+
+        assertThat(stats.advance(NOON + 120_000)).isTrue();
+        data = stats.toStatsData();
+        assertThat(data.getMinuteTradeCount()).isZero();
+        assertThat(data.getMinuteHigh()).isNaN();
+        assertThat(data.getHourTradeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void tradingDayResetsWithoutNewTrades() {
+        stats.update(trade(10, 1, NOON));
+
+        assertThat(stats.advance(NOON + 12 * 3_600_000L)).isTrue();
+        StatsData data = stats.toStatsData();
+        assertThat(data.getDayTradeCount()).isZero();
+        assertThat(data.getDayHigh()).isNaN();
+
+        // первая сделка нового дня задаёт и максимум, и минимум
+        data = stats.update(trade(9, 1, NOON + 13 * 3_600_000L));
+        assertThat(data.getDayHigh()).isEqualTo(9);
+        assertThat(data.getDayLow()).isEqualTo(9);
+    }
+
+    @Test
+    void survivesSnapshotRoundTrip() throws IOException {
+        stats.update(trade(10, 1, NOON));
+        stats.update(trade(12, 2, NOON + 90_000));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stats.writeTo(new DataOutputStream(bytes));
+
+        StatsAccumulator restored = new StatsAccumulator("USD");
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(restored.toStatsData()).isEqualTo(stats.toStatsData());
+        assertThat(restored.update(trade(11, 1, NOON + 91_000)))
+                .isEqualTo(stats.update(trade(11, 1, NOON + 91_000)));
+    }
+
+    private static TradeEvent trade(double price, double volume, long timestamp) {
+        return new TradeEvent("USD", price, volume, timestamp);
+    }
+}
@@ -0,0 +1,151 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConflationTierTest {
+
+    private static final List<String> CURRENCIES = List.of("USD", "EUR", "GBP");
+
+    private final Sinks.Many<EncodedEvent> source = Sinks.many().multicast().directBestEffort();
+
+    @Test
+    void emitsOnlyTheLatestEventPerCurrencyOnEachTick() {
+        ManualTimer timer = new ManualTimer();
+        LongAdder conflated = new LongAdder();
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        ConflationTier tier = new ConflationTier(source.asFlux(), Duration.ofMillis(100), timer, conflated);
+        tier.events().map(ConflationTierTest::text).subscribe(first::add);
+        tier.events().map(ConflationTierTest::text).subscribe(second::add);
+
+        emit("USD", 1);
+        emit("EUR", 1);
+        emit("USD", 2);
+        emit("USD", 3);
+        assertThat(first).isEmpty();
+
+        timer.tick();
+        // порядок валют — порядок их первого события в периоде
+        assertThat(first).containsExactly("USD 3", "EUR 1");
+
+        timer.tick();
+        assertThat(first).hasSize(2);
+
+        emit("EUR", 2);
+        timer.tick();
+        assertThat(first).containsExactly("USD 3", "EUR 1", "EUR 2");
+        // уровень общий: второй подписчик получает то же, а склейка считается один раз
+        assertThat(second).isEqualTo(first);
+        assertThat(conflated.sum()).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StreamRate.class)
+    void eachTierEmitsAtMostOneEventPerCurrencyPerPeriod(StreamRate rate) throws InterruptedException {
+        Scheduler timer = Schedulers.newSingle("tier-" + rate);
+        SubscriberPolicies policies = new SubscriberPolicies(256, 5000, new SimpleMeterRegistry());
+        Map<String, AtomicInteger> received = new ConcurrentHashMap<>();
+        Disposable subscription = EncodedStreams.throttle("test", source.asFlux(), rate, policies, timer)
+                .subscribe(event -> received.computeIfAbsent(event.currency(), key -> new AtomicInteger())
+                        .incrementAndGet());
+        long periodMillis = rate.period().toMillis();
+        long durationMillis = Math.max(3 * periodMillis, 300);
+
+        int emitted = 0;
+        long start = System.nanoTime();
+        while (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < durationMillis) {
+            for (String currency : CURRENCIES) {
+                emit(currency, emitted);
+            }
+            emitted++;
+            Thread.sleep(1);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Disposables.composite(subscription, timer).dispose();
+
+        for (String currency : CURRENCIES) {
+            int count = received.get(currency).get();
+            if (rate == StreamRate.RAW) {
+                assertThat(count).as(currency).isEqualTo(emitted);
+            } else {
+                // не больше одного события на валюту за каждый полный период, плюс один неполный
+                assertThat(count).as(currency + " at " + rate).isPositive()
+                        .isLessThanOrEqualTo((int) (elapsedMillis / periodMillis) + 1);
+            }
+        }
+    }
+
+    private void emit(String currency, int value) {
+        source.tryEmitNext(new EncodedEvent(currency, (currency + " " + value).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String text(EncodedEvent event) {
+        return new String(event.bytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Таймер уровня, который срабатывает только по {@link #tick()}.
+     */
+    private static final class ManualTimer implements Scheduler {
+
+        private final List<Runnable> periodic = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Disposable schedule(Runnable task) {
+            task.run();
+            return Disposables.disposed();
+        }
+
+        @Override
+        public Disposable schedulePeriodically(Runnable task, long initialDelay, long period, TimeUnit unit) {
+            periodic.add(task);
+            return () -> periodic.remove(task);
+        }
+
+        @Override
+        public Worker createWorker() {
+            // интервал уровня планирует тики через воркер
+            return new Worker() {
+                @Override
+                public Disposable schedule(Runnable task) {
+                    return ManualTimer.this.schedule(task);
+                }
+
+                @Override
+                public Disposable schedulePeriodically(Runnable task, long initialDelay, long period,
+                                                       TimeUnit unit) {
+                    return ManualTimer.this.schedulePeriodically(task, initialDelay, period, unit);
+                }
+
+                @Override
+                public void dispose() {
+                    periodic.clear();
+                }
+            };
+        }
+
+        void tick() {
+            periodic.forEach(Runnable::run);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.nesterrovv.currencyexchange.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SubscriberPoliciesTest {
+
+    private final SubscriberPolicies policies = new SubscriberPolicies(4, 50, new SimpleMeterRegistry());
+
+    @Test
+    void conflateLatestKeepsOnlyTheLastEventPerKeyForASlowSubscriber() {
+        SlowSubscriber<String> subscriber = new SlowSubscriber<>();
+        policies.conflateLatest("ticks", Flux.just("USD:1", "EUR:1", "USD:2", "GBP:1", "USD:3", "EUR:2"),
+                        event -> event.substring(0, 3))
+                .subscribe(subscriber);
+
+        assertThat(subscriber.values).isEmpty();
+        assertThat(subscriber.completed).isFalse();
+        subscriber.request(10);
+
+        // ключи отдаются в порядке их первого события
+        assertThat(subscriber.values).containsExactly("USD:3", "EUR:2", "GBP:1");
+        assertThat(subscriber.completed).isTrue();
+        assertThat(policies.counters("ticks").conflated().sum()).isEqualTo(3);
+    }
+
+    @Test
+    void conflateLatestPassesEveryEventToAFastSubscriber() {
+        SlowSubscriber<String> subscriber = new SlowSubscriber<>();
+        Sinks.Many<String> source = Sinks.many().multicast().directBestEffort();
+        policies.conflateLatest("ticks", source.asFlux(), event -> event.substring(0, 3)).subscribe(subscriber);
+        subscriber.request(Long.MAX_VALUE);
+
+        source.tryEmitNext("USD:1");
+        source.tryEmitNext("USD:2");
+
+        assertThat(subscriber.values).containsExactly("USD:1", "USD:2");
+        assertThat(policies.counters("ticks").conflated().sum()).isZero();
+    }
+
+    @Test
+    void dropOldestMarksTheFirstEventAfterOverflowWithTheGap() {
+        SlowSubscriber<String> subscriber = new SlowSubscriber<>();
+        policies.dropOldest("trades", Flux.range(1, 10).map(String::valueOf), (gap, event) -> event + "+gap" + gap)
+                .subscribe(subscriber);
+
+        subscriber.request(10);
+
+        // в буфере на 4 события остались последние; 6 вытеснены
+        assertThat(subscriber.values).containsExactly("7+gap6", "8", "9", "10");
+        assertThat(subscriber.completed).isTrue();
+        assertThat(policies.counters("trades").dropped().sum()).isEqualTo(6);
+    }
+
+    @Test
+    void disconnectWhenBehindDropsASubscriberThatOverflowsItsBuffer() {
+        SlowSubscriber<Integer> subscriber = new SlowSubscriber<>();
+        policies.disconnectWhenBehind("deltas", Flux.range(1, 10)).subscribe(subscriber);
+
+        // отключение приходит со следующим запросом подписчика, после уже принятых в буфер событий
+        subscriber.request(100);
+
+        assertThat(subscriber.values).containsExactly(1, 2, 3, 4);
+        assertThat(subscriber.error).isInstanceOf(SlowSubscriberException.class)
+                .hasMessageContaining("overflowed");
+        assertThat(policies.counters("deltas").disconnected().sum()).isEqualTo(1);
+        assertThat(policies.counters("deltas").subscribers().get()).isZero();
+    }
+
+    @Test
+    void disconnectWhenBehindDropsASubscriberThatLagsBeyondTheLimit() throws InterruptedException {
+        SlowSubscriber<Integer> subscriber = new SlowSubscriber<>();
+        Sinks.Many<Integer> source = Sinks.many().multicast().directBestEffort();
+        policies.disconnectWhenBehind("deltas", source.asFlux()).subscribe(subscriber);
+        subscriber.request(1);
+        source.tryEmitNext(1);
+        source.tryEmitNext(2);
+
+        Thread.sleep(100);
+        subscriber.request(1);
+
+        // первое событие пришло вовремя, второе пролежало в буфере дольше 50 мс
+        assertThat(subscriber.values).containsExactly(1);
+        assertThat(subscriber.error).isInstanceOf(SlowSubscriberException.class).hasMessageContaining("behind");
+        assertThat(policies.counters("deltas").disconnected().sum()).isEqualTo(1);
+    }
+
+    // ничего не запрашивает сам: тест решает, когда подписчик готов читать
+    private static final class SlowSubscriber<T> extends BaseSubscriber<T> {
+
+        final List<T> values = new CopyOnWriteArrayList<>();
+        volatile Throwable error;
+        volatile boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        protected void hookOnError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.nesterrovv.currencyexchange.websocket;
+
+import com.nesterrovv.currencyexchange.model.CurrencyData;
+import com.nesterrovv.currencyexchange.model.OrderBookUpdate;
+import com.nesterrovv.currencyexchange.model.StatsData;
+import com.nesterrovv.currencyexchange.model.TradeEvent;
+import com.nesterrovv.currencyexchange.model.UserOrder;
+import com.nesterrovv.currencyexchange.service.CurrencyService;
+import com.nesterrovv.currencyexchange.service.Instrument;
+import com.nesterrovv.currencyexchange.service.InstrumentRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BinaryCodecTest {
+
+    private static final int USD = 3;
+
+    private final CurrencyService currencyService = mock(CurrencyService.class);
+    private final InstrumentRegistry instruments = mock(InstrumentRegistry.class);
+    private final AtomicIntegerArray subscriptions = new AtomicIntegerArray(InstrumentRegistry.MAX_INSTRUMENTS);
+    private final MarketDataWebSocketHandler handler =
+            new MarketDataWebSocketHandler(currencyService, null, null, null);
+
+    @Test
+    void tickAndTradeHaveHeaderAndTwoFields() {
+        ByteBuffer tick = ByteBuffer.wrap(BinaryCodec.tick(USD, 42, new CurrencyData("USD", 80.1234, 1_000, -1.5)));
+        ByteBuffer trade = ByteBuffer.wrap(BinaryCodec.trade(USD, 43, new TradeEvent("USD", 80.5, 2.25, 2_000)));
+
+        assertThat(tick.remaining()).isEqualTo(BinaryCodec.HEADER_SIZE + 16);
+        assertHeader(tick, BinaryCodec.TICK, 42, 1_000);
+        assertThat(BinaryCodec.unscale(tick.getLong())).isEqualTo(80.1234);
+        assertThat(BinaryCodec.unscale(tick.getLong())).isEqualTo(-1.5);
+
+        assertThat(trade.remaining()).isEqualTo(BinaryCodec.HEADER_SIZE + 16);
+        assertHeader(trade, BinaryCodec.TRADE, 43, 2_000);
+        assertThat(BinaryCodec.unscale(trade.getLong())).isEqualTo(80.5);
+        assertThat(BinaryCodec.unscale(trade.getLong())).isEqualTo(2.25);
+    }
+
+    @Test
+    void statsCarryDayHighLowAndVolume() {
+        StatsData data = new StatsData();
+        data.setDayHigh(81);
+        data.setDayLow(79.5);
+        data.setDayVolume(1_000.25);
+
+        ByteBuffer stats = ByteBuffer.wrap(BinaryCodec.stats(USD, 7, 3_000, data));
+
+        assertThat(stats.remaining()).isEqualTo(BinaryCodec.HEADER_SIZE + 24);
+        assertHeader(stats, BinaryCodec.STATS, 7, 3_000);
+        assertThat(BinaryCodec.unscale(stats.getLong())).isEqualTo(81);
+        assertThat(BinaryCodec.unscale(stats.getLong())).isEqualTo(79.5);
+        assertThat(BinaryCodec.unscale(stats.getLong())).isEqualTo(1_000.25);
+    }
+
+    @Test
+    void bookWritesOneFullRecordPerLevelChange() {
+        OrderBookUpdate update = new OrderBookUpdate("USD", 9, true, List.of(
+                new OrderBookUpdate.LevelChange("BUY", 79.9, 10),
+                new OrderBookUpdate.LevelChange("SELL", 80.1, 0)));
+
+        ByteBuffer book = ByteBuffer.wrap(BinaryCodec.book(USD, 4_000, update));
+
+        assertThat(book.remaining()).isEqualTo(2 * (BinaryCodec.HEADER_SIZE + 17));
+        assertHeader(book, BinaryCodec.BOOK_SNAPSHOT_LEVEL, 9, 4_000);
+        assertThat(book.get()).isEqualTo(BinaryCodec.SIDE_BUY);
+        assertThat(BinaryCodec.unscale(book.getLong())).isEqualTo(79.9);
+        assertThat(BinaryCodec.unscale(book.getLong())).isEqualTo(10);
+        // у каждой записи свой заголовок: клиент может читать их по одной
+        assertHeader(book, BinaryCodec.BOOK_SNAPSHOT_LEVEL, 9, 4_000);
+        assertThat(book.get()).isEqualTo(BinaryCodec.SIDE_SELL);
+        assertThat(BinaryCodec.unscale(book.getLong())).isEqualTo(80.1);
+        assertThat(book.getLong()).isZero();
+        assertThat(book.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void orderFrameIsDecodedIntoUserOrder() {
+        knowUsd();
+
+        handle(order(BinaryCodec.SIDE_SELL, BinaryCodec.scale(80.25), BinaryCodec.scale(1.5)));
+        handle(order(BinaryCodec.SIDE_BUY, 0, BinaryCodec.scale(2)));
+
+        ArgumentCaptor<UserOrder> orders = ArgumentCaptor.forClass(UserOrder.class);
+        verify(currencyService, times(2)).addUserOrder(anyInt(), orders.capture());
+        assertThat(orders.getAllValues()).containsExactly(
+                new UserOrder("SELL", "USD", 1.5, 80.25, "alice"),
+                // цена 0 — заявка без цены, около базовой цены инструмента
+                new UserOrder("BUY", "USD", 2, null, "alice"));
+    }
+
+    @Test
+    void subscribeFrameSetsChannelMask() {
+        knowUsd();
+
+        handle(new byte[]{BinaryCodec.SUBSCRIBE, USD, BinaryCodec.CHANNEL_TICKS | BinaryCodec.CHANNEL_TRADES});
+        handle(new byte[]{BinaryCodec.UNSUBSCRIBE, USD, BinaryCodec.CHANNEL_TICKS});
+
+        assertThat(subscriptions.get(USD)).isEqualTo(BinaryCodec.CHANNEL_TRADES);
+        assertThat(subscriptions.get(USD + 1)).isZero();
+    }
+
+    @Test
+    void truncatedFramesAreIgnored() {
+        knowUsd();
+        byte[] order = order(BinaryCodec.SIDE_BUY, BinaryCodec.scale(80), BinaryCodec.scale(1));
+
+        handle(new byte[0]);
+        handle(new byte[]{BinaryCodec.ORDER});
+        handle(Arrays.copyOf(order, BinaryCodec.ORDER_SIZE - 1));
+        handle(new byte[]{BinaryCodec.SUBSCRIBE, USD});
+
+        verify(currencyService, never()).addUserOrder(anyInt(), any());
+        assertThat(subscriptions.get(USD)).isZero();
+    }
+
+    private void knowUsd() {
+        Instrument instrument = mock(Instrument.class);
+        when(instrument.getSymbol()).thenReturn("USD");
+        when(instruments.get(USD)).thenReturn(instrument);
+    }
+
+    // обрезанное сообщение не должно ронять входящий поток: обработка завершается без ошибки
+    private void handle(byte[] frame) {
+        handler.onMessage(DefaultDataBufferFactory.sharedInstance.wrap(frame), "alice", instruments, subscriptions,
+                Sinks.many().unicast().onBackpressureBuffer()).block();
+    }
+
+    private static byte[] order(byte side, long price, long volume) {
+        return ByteBuffer.allocate(BinaryCodec.ORDER_SIZE)
+                .put(BinaryCodec.ORDER)
+                .put((byte) USD)
+                .put(side)
+                .putLong(price)
+                .putLong(volume)
+                .array();
+    }
+
+    private static void assertHeader(ByteBuffer buffer, byte type, long sequence, long timestamp) {
+        assertThat(buffer.get()).isEqualTo(type);
+        assertThat(buffer.get() & 0xFF).isEqualTo(USD);
+        assertThat(buffer.getLong()).isEqualTo(sequence);
+        assertThat(buffer.getLong()).isEqualTo(timestamp);
+    }
+}